@@ -17,8 +17,13 @@ package net.oneandone.maven.plugins.cycles;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 import net.oneandone.maven.plugins.cycles.analyzer.ComponentAnalyzer;
+import net.oneandone.maven.plugins.cycles.classes.DependencyKind;
+import net.oneandone.maven.plugins.cycles.graph.NameFilter;
+import net.oneandone.maven.plugins.cycles.graph.NamePatterns;
+import net.oneandone.maven.plugins.cycles.layers.LayerRules;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -27,7 +32,6 @@ import org.apache.maven.plugin.MojoFailureException;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 
-
 /**
  * Talk about dependency cycles.
  * 
@@ -35,18 +39,40 @@ import com.google.common.base.Strings;
  * 
  * @goal cycles
  * @requiresProject true
+ * @threadSafe
  */
 public final class CyclesMojo extends AbstractMojo {
     /**
      * @parameter property="project.build.outputDirectory" 
      */
     private File classDir;
+
+    /**
+     * Defaults to test-classes next to the class directory.
+     * 
+     * @parameter property="project.build.testOutputDirectory" 
+     */
+    private File testClassDir;
     
     /**
      * @parameter property="nameprefix"
      */
     private String namePrefix;
 
+    /**
+     * Include patterns on class names; see {@link NamePatterns} for the syntax.
+     * 
+     * @parameter property="includes"
+     */
+    private String[] includes;
+
+    /**
+     * Exclude patterns on class names; see {@link NamePatterns} for the syntax.
+     * 
+     * @parameter property="excludes"
+     */
+    private String[] excludes;
+
     /**
      * @parameter property="shorten" default-value="true"
      */
@@ -62,11 +88,118 @@ public final class CyclesMojo extends AbstractMojo {
      */
     private boolean includeTestClasses;
 
+    /**
+     * Iff true (and includeTestClasses is true), main and test classes are parsed once but reported apart: the 
+     * cycles of the main classes, then those that only exist with the test classes.
+     * 
+     * @parameter property="separateTestClasses" default-value="false"
+     */
+    private boolean separateTestClasses;
+
+    /**
+     * Fold nested, anonymous and synthetic classes into their top-level class.
+     *
+     * @parameter property="collapseInnerClasses" default-value="false"
+     */
+    private boolean collapseInnerClasses;
+
     /**
      * @parameter property="writeDotFiles" default-value="true"
      */
     private boolean writeDotFiles;
 
+    /**
+     * Iff true, an SVG picture is written for each component; no Graphviz needed.
+     *
+     * @parameter property="writeSvgFiles" default-value="false"
+     */
+    private boolean writeSvgFiles;
+
+    /**
+     * Components with more packages are written as an overview graph of package clusters plus one
+     * graph per cluster, so that Graphviz can still lay them out.
+     *
+     * @parameter property="maxDotPackages" default-value="100"
+     */
+    private int maxDotPackages;
+
+    /**
+     * Maximum number of elementary cycles listed per component; 0 (the default) lists none.
+     *
+     * @parameter property="maxCycles" default-value="0"
+     */
+    private int maxCycles;
+
+    /**
+     * Maximum number of packages in a listed elementary cycle.
+     *
+     * @parameter property="maxCycleLength" default-value="6"
+     */
+    private int maxCycleLength;
+
+    /**
+     * Maximum time in milliseconds spent listing elementary cycles per component.
+     *
+     * @parameter property="cycleTimeout" default-value="10000"
+     */
+    private long cycleTimeout;
+
+    /**
+     * Iff true, afferent and efferent coupling, instability, abstractness and distance from the main sequence
+     * are shown for each package, and written to target/package-metrics.csv.
+     *
+     * @parameter property="metrics" default-value="false"
+     */
+    private boolean showMetrics;
+
+    /**
+     * Iff true, class dependencies are kept in a memory-mapped file (target/class-dependencies.bin)
+     * instead of on the heap. For analyses that are too large for the build's heap.
+     *
+     * @parameter property="offHeap" default-value="false"
+     */
+    private boolean offHeap;
+
+    /**
+     * Iff greater than 0, only that many of the heaviest dependencies and of the most involved packages are 
+     * listed for each cycle, followed by totals for the rest.
+     *
+     * @parameter property="reportLimit" default-value="0"
+     */
+    private int reportLimit;
+
+    /**
+     * Iff true, the source lines of the class dependencies behind each cycle-breaking dependency are shown, 
+     * as File.java:123. Requires the classes to be compiled with line numbers (the default).
+     *
+     * @parameter property="showSourceLocations" default-value="false"
+     */
+    private boolean showSourceLocations;
+
+    /**
+     * Iff true, the analysis is skipped if neither the class files nor the configuration changed since the 
+     * last run; the previous report (target/cycles-report.txt) is shown again and the graph files are kept.
+     *
+     * @parameter property="skipIfUnchanged" default-value="false"
+     */
+    private boolean skipIfUnchanged;
+
+    /**
+     * "packages" or "classes" to write the whole package or class graph to target/dependencies.graphml, with
+     * component numbers, weights, dependency kinds and cycle-breaking dependencies as attributes.
+     *
+     * @parameter property="graphExport"
+     */
+    private String graphExport;
+
+    /**
+     * The kinds of class dependencies that count when choosing the cycle-breaking dependencies: inheritance, 
+     * field, signature, body, annotation, constant. Default is all of them.
+     *
+     * @parameter property="breakKinds"
+     */
+    private String[] breakKinds;
+
     /**
      * Default is Integer.MAX_VALUE (== infinity for practical purposes).
      * 
@@ -74,17 +207,57 @@ public final class CyclesMojo extends AbstractMojo {
      */
     private int packageDepth;
 
+    /**
+     * Architecture layers, top to bottom; each entry is a comma-separated list of package prefixes.
+     * Dependencies from a lower to a higher layer are reported.
+     * 
+     * @parameter
+     */
+    private String[] layers;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        if (!Strings.isNullOrEmpty(graphExport) && !ComponentAnalyzer.EXPORT_PACKAGES.equals(graphExport) 
+                && !ComponentAnalyzer.EXPORT_CLASSES.equals(graphExport)) {
+            throw new MojoExecutionException(String.format("Unknown graphExport %s, expected %s or %s.", graphExport, 
+                    ComponentAnalyzer.EXPORT_PACKAGES, ComponentAnalyzer.EXPORT_CLASSES));
+        }
+        NameFilter nameFilter = NameFilter.nameFilter(namePrefix, includes, excludes);
         ComponentAnalyzer componentAnalyzer = null;
-        if (includeTestClasses) {
-            // FIXME: is there a reliable property for target/test-classes?
-            componentAnalyzer = new ComponentAnalyzer(Strings.nullToEmpty(namePrefix), shorten, writeDotFiles, 
-                    packageDepth, showClassDeps, classDir, new File(classDir.getParentFile(), "test-classes")); 
+        File testClasses = testClassDir != null ? testClassDir : new File(classDir.getParentFile(), "test-classes");
+        if (includeTestClasses && separateTestClasses) {
+            componentAnalyzer = new ComponentAnalyzer(nameFilter, shorten, writeDotFiles, 
+                    packageDepth, showClassDeps, classDir);
+            componentAnalyzer.setTestClassDirs(testClasses);
+        } else if (includeTestClasses) {
+            componentAnalyzer = new ComponentAnalyzer(nameFilter, shorten, writeDotFiles, 
+                    packageDepth, showClassDeps, classDir, testClasses); 
         } else {
-            componentAnalyzer = new ComponentAnalyzer(Strings.nullToEmpty(namePrefix), shorten, writeDotFiles, 
+            componentAnalyzer = new ComponentAnalyzer(nameFilter, shorten, writeDotFiles, 
                     packageDepth, showClassDeps, classDir);             
         }
+        componentAnalyzer.setCollapseInnerClasses(collapseInnerClasses);
+        componentAnalyzer.setMaxDotPackages(maxDotPackages);
+        componentAnalyzer.setWriteSvgFiles(writeSvgFiles);
+        componentAnalyzer.setCycleEnumeration(maxCycles, maxCycleLength, cycleTimeout);
+        componentAnalyzer.setShowMetrics(showMetrics);
+        componentAnalyzer.setOffHeap(offHeap);
+        componentAnalyzer.setReportLimit(reportLimit);
+        componentAnalyzer.setShowSourceLocations(showSourceLocations);
+        componentAnalyzer.setSkipIfUnchanged(skipIfUnchanged);
+        componentAnalyzer.setGraphExport(Strings.emptyToNull(graphExport));
+        try {
+            componentAnalyzer.setKindMask(DependencyKind.mask(breakKinds));
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        if (layers != null && layers.length > 0) {
+            try {
+                componentAnalyzer.setLayerRules(new LayerRules(Arrays.asList(layers)));
+            } catch (IllegalArgumentException e) {
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+        }
 
         try {
             getLog().info(componentAnalyzer.analyze());
@@ -113,8 +286,80 @@ public final class CyclesMojo extends AbstractMojo {
         this.writeDotFiles = writeDotFiles;
     }
 
+    @VisibleForTesting
+    void setWriteSvgFiles(boolean writeSvgFiles) {
+        this.writeSvgFiles = writeSvgFiles;
+    }
+
+    @VisibleForTesting
+    void setMaxDotPackages(int maxDotPackages) {
+        this.maxDotPackages = maxDotPackages;
+    }
+
+    @VisibleForTesting
+    void setCycleEnumeration(int maxCycles, int maxCycleLength, long cycleTimeout) {
+        this.maxCycles = maxCycles;
+        this.maxCycleLength = maxCycleLength;
+        this.cycleTimeout = cycleTimeout;
+    }
+
+    @VisibleForTesting
+    void setShowMetrics(boolean showMetrics) {
+        this.showMetrics = showMetrics;
+    }
+
+    @VisibleForTesting
+    void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    @VisibleForTesting
+    void setReportLimit(int reportLimit) {
+        this.reportLimit = reportLimit;
+    }
+
+    @VisibleForTesting
+    void setShowSourceLocations(boolean showSourceLocations) {
+        this.showSourceLocations = showSourceLocations;
+    }
+
+    @VisibleForTesting
+    void setGraphExport(String graphExport) {
+        this.graphExport = graphExport;
+    }
+
+    @VisibleForTesting
+    void setBreakKinds(String... breakKinds) {
+        this.breakKinds = breakKinds;
+    }
+
+    @VisibleForTesting
+    void setSkipIfUnchanged(boolean skipIfUnchanged) {
+        this.skipIfUnchanged = skipIfUnchanged;
+    }
+
     @VisibleForTesting
     void setPackageDepth(int packageDepth) {
         this.packageDepth = packageDepth;
     }
+
+    @VisibleForTesting
+    void setIncludes(String... includes) {
+        this.includes = includes;
+    }
+
+    @VisibleForTesting
+    void setExcludes(String... excludes) {
+        this.excludes = excludes;
+    }
+
+    @VisibleForTesting
+    void setCollapseInnerClasses(boolean collapseInnerClasses) {
+        this.collapseInnerClasses = collapseInnerClasses;
+    }
+
+    @VisibleForTesting
+    void setLayers(String... layers) {
+        this.layers = layers;
+    }
 }
@@ -0,0 +1,191 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import net.oneandone.maven.plugins.cycles.analyzer.ComponentAnalysis;
+import net.oneandone.maven.plugins.cycles.analyzer.CycleExplorer;
+import net.oneandone.maven.plugins.cycles.classes.ClassDependencies;
+import net.oneandone.maven.plugins.cycles.graph.NameFilter;
+import net.oneandone.maven.plugins.cycles.graph.NamePatterns;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.reporting.MavenReport;
+import org.apache.maven.reporting.MavenReportException;
+import org.codehaus.doxia.sink.Sink;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Adds a page with an interactive explorer of the package cycles to the project site. The page only lists the 
+ * cycles; the packages and class dependencies of a cycle are loaded when it is opened.
+ *
+ * @author chschmitz
+ *
+ * @goal report
+ * @phase site
+ * @requiresProject true
+ */
+public final class ReportMojo extends AbstractMojo implements MavenReport {
+    private static final String OUTPUT_NAME = "cycles";
+
+    /**
+     * @parameter property="project.build.outputDirectory"
+     */
+    private File classDir;
+
+    /**
+     * @parameter property="project.reporting.outputDirectory"
+     */
+    private File outputDirectory;
+
+    /**
+     * @parameter property="nameprefix"
+     */
+    private String namePrefix;
+
+    /**
+     * Include patterns on class names; see {@link NamePatterns} for the syntax.
+     * 
+     * @parameter property="includes"
+     */
+    private String[] includes;
+
+    /**
+     * Exclude patterns on class names; see {@link NamePatterns} for the syntax.
+     * 
+     * @parameter property="excludes"
+     */
+    private String[] excludes;
+
+    /**
+     * Fold nested, anonymous and synthetic classes into their top-level class.
+     *
+     * @parameter property="collapseInnerClasses" default-value="false"
+     */
+    private boolean collapseInnerClasses;
+
+    /**
+     * Default is Integer.MAX_VALUE (== infinity for practical purposes).
+     *
+     * @parameter property="packageDepth" default-value="2147483647"
+     */
+    private int packageDepth;
+
+    /**
+     * Writes the report as a standalone page when the goal is run outside the site lifecycle.
+     */
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        try {
+            String html = "<html>\n<head><title>" + getName(Locale.ROOT) + "</title></head>\n<body>\n"
+                    + explore() + "</body>\n</html>\n";
+            File page = new File(outputDirectory, getOutputName() + ".html");
+            Files.createParentDirs(page);
+            Files.write(html, page, Charsets.UTF_8);
+            getLog().info("Wrote " + page);
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void generate(Sink sink, Locale locale) throws MavenReportException {
+        String html;
+        try {
+            html = explore();
+        } catch (IOException e) {
+            throw new MavenReportException(e.getMessage(), e);
+        }
+        sink.head();
+        sink.title();
+        sink.text(getName(locale));
+        sink.title_();
+        sink.head_();
+        sink.body();
+        sink.rawText(html);
+        sink.body_();
+        sink.flush();
+        sink.close();
+    }
+
+    private String explore() throws IOException {
+        ClassDependencies classDependencies = new ClassDependencies(
+                NameFilter.nameFilter(namePrefix, includes, excludes), collapseInnerClasses, classDir);
+        try {
+            return new CycleExplorer(outputDirectory).write(new ComponentAnalysis(classDependencies, packageDepth));
+        } finally {
+            classDependencies.close();
+        }
+    }
+
+    @Override
+    public String getOutputName() {
+        return OUTPUT_NAME;
+    }
+
+    @Override
+    public String getName(Locale locale) {
+        return "Package Cycles";
+    }
+
+    @Override
+    public String getCategoryName() {
+        return CATEGORY_PROJECT_REPORTS;
+    }
+
+    @Override
+    public String getDescription(Locale locale) {
+        return "Package dependency cycles, with the class dependencies behind them.";
+    }
+
+    @Override
+    public void setReportOutputDirectory(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    @Override
+    public File getReportOutputDirectory() {
+        return outputDirectory;
+    }
+
+    @Override
+    public boolean isExternalReport() {
+        return false;
+    }
+
+    @Override
+    public boolean canGenerateReport() {
+        return classDir != null && classDir.isDirectory();
+    }
+
+    @VisibleForTesting
+    void setClassDir(File classDir) {
+        this.classDir = classDir;
+    }
+
+    @VisibleForTesting
+    void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.oneandone.maven.plugins.cycles.analyzer.CycleWatcher;
+import net.oneandone.maven.plugins.cycles.graph.NameFilter;
+import net.oneandone.maven.plugins.cycles.graph.NamePatterns;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Keep watching the class directory and talk about dependency cycles as they come and go.
+ * Runs until Maven is interrupted.
+ *
+ * @author chschmitz
+ *
+ * @goal watch
+ * @requiresProject true
+ */
+public final class WatchMojo extends AbstractMojo {
+    /**
+     * @parameter property="project.build.outputDirectory"
+     */
+    private File classDir;
+
+    /**
+     * Defaults to test-classes next to the class directory.
+     * 
+     * @parameter property="project.build.testOutputDirectory" 
+     */
+    private File testClassDir;
+
+    /**
+     * @parameter property="nameprefix"
+     */
+    private String namePrefix;
+
+    /**
+     * Include patterns on class names; see {@link NamePatterns} for the syntax.
+     * 
+     * @parameter property="includes"
+     */
+    private String[] includes;
+
+    /**
+     * Exclude patterns on class names; see {@link NamePatterns} for the syntax.
+     * 
+     * @parameter property="excludes"
+     */
+    private String[] excludes;
+
+    /**
+     * @parameter property="shorten" default-value="true"
+     */
+    private boolean shorten;
+
+    /**
+     * @parameter property="includeTestClasses" default-value="false"
+     */
+    private boolean includeTestClasses;
+
+    /**
+     * Fold nested, anonymous and synthetic classes into their top-level class.
+     *
+     * @parameter property="collapseInnerClasses" default-value="false"
+     */
+    private boolean collapseInnerClasses;
+
+    /**
+     * Default is Integer.MAX_VALUE (== infinity for practical purposes).
+     *
+     * @parameter property="packageDepth" default-value="2147483647"
+     */
+    private int packageDepth;
+
+    /**
+     * Milliseconds between two scans of the class directories.
+     *
+     * @parameter property="pollInterval" default-value="500"
+     */
+    private long pollInterval;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        File testClasses = testClassDir != null ? testClassDir : new File(classDir.getParentFile(), "test-classes");
+        // modules without tests have no test class directory
+        File[] classDirs = includeTestClasses && testClasses.isDirectory()
+                ? new File[] {classDir, testClasses}
+                : new File[] {classDir};
+        try {
+            CycleWatcher watcher = new CycleWatcher(NameFilter.nameFilter(namePrefix, includes, excludes), 
+                    collapseInnerClasses, packageDepth, shorten, classDirs);
+            getLog().info(watcher.currentCycles());
+            getLog().info("Watching " + classDir + " for changes, press Ctrl-C to stop.");
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(pollInterval);
+                String changes = watcher.poll();
+                if (!changes.isEmpty()) {
+                    getLog().info(changes);
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.SortedSet;
+
+import net.oneandone.maven.plugins.cycles.classes.ClassDependencies;
+import net.oneandone.maven.plugins.cycles.graph.MoveSimulator;
+import net.oneandone.maven.plugins.cycles.graph.NameFilter;
+import net.oneandone.maven.plugins.cycles.graph.NamePatterns;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+
+/**
+ * Tells which package cycles would disappear or appear if classes were moved to other packages, without
+ * touching the code. The classes are parsed once; each scenario is then evaluated on its own and undone.
+ *
+ * @author chschmitz
+ *
+ * @goal what-if
+ * @requiresProject true
+ */
+public final class WhatIfMojo extends AbstractMojo {
+    private static final String ARROW = "->";
+
+    /**
+     * @parameter property="project.build.outputDirectory"
+     */
+    private File classDir;
+
+    /**
+     * @parameter property="nameprefix"
+     */
+    private String namePrefix;
+
+    /**
+     * Include patterns on class names; see {@link NamePatterns} for the syntax.
+     * 
+     * @parameter property="includes"
+     */
+    private String[] includes;
+
+    /**
+     * Exclude patterns on class names; see {@link NamePatterns} for the syntax.
+     * 
+     * @parameter property="excludes"
+     */
+    private String[] excludes;
+
+    /**
+     * Fold nested, anonymous and synthetic classes into their top-level class.
+     *
+     * @parameter property="collapseInnerClasses" default-value="false"
+     */
+    private boolean collapseInnerClasses;
+
+    /**
+     * Default is Integer.MAX_VALUE (== infinity for practical purposes).
+     *
+     * @parameter property="packageDepth" default-value="2147483647"
+     */
+    private int packageDepth;
+
+    /**
+     * The scenarios, each of the form "a.b.X a.b.Y -&gt; a.c": the FQCNs of the classes to move, separated 
+     * by blanks, and the package to move them to.
+     *
+     * @parameter property="moves"
+     */
+    private String[] moves;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (moves == null || moves.length == 0) {
+            throw new MojoFailureException("No moves given, e.g. -Dmoves=\"a.b.X a.b.Y -> a.c\".");
+        }
+        try {
+            ClassDependencies classDependencies = new ClassDependencies(
+                    NameFilter.nameFilter(namePrefix, includes, excludes), collapseInnerClasses, classDir);
+            MoveSimulator simulator;
+            try {
+                // the simulator keeps its own copy of the dependencies
+                simulator = new MoveSimulator(classDependencies, packageDepth);
+            } finally {
+                classDependencies.close();
+            }
+            getLog().info(simulator.getCycles().size() + " package cycles before moving.");
+            long start = System.nanoTime();
+            for (String move : moves) {
+                getLog().info(evaluate(simulator, move));
+            }
+            getLog().info(String.format("Evaluated %d scenarios in %d ms.", moves.length, 
+                    (System.nanoTime() - start) / 1000000));
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            throw new MojoFailureException(e.getMessage());
+        }
+    }
+
+    @VisibleForTesting
+    static String evaluate(MoveSimulator simulator, String move) {
+        int arrow = move.indexOf(ARROW);
+        if (arrow < 0) {
+            throw new IllegalArgumentException("Move \"" + move + "\" has no target package.");
+        }
+        List<String> classNames = Lists.newArrayList(Splitter.on(CharMatcher.WHITESPACE).omitEmptyStrings()
+                .split(move.substring(0, arrow)));
+        String targetPackage = move.substring(arrow + ARROW.length()).trim();
+        MoveSimulator.Result result = simulator.move(classNames, targetPackage);
+        simulator.undo();
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("=== Moving ").append(Joiner.on(", ").join(classNames)).append(" to ");
+        builder.append(targetPackage).append("\n");
+        if (result.isUnchanged()) {
+            builder.append("No change in package cycles.\n");
+        }
+        for (SortedSet<String> packages : result.getResolvedCycles()) {
+            builder.append(String.format("Resolved cycle (%d packages): ", packages.size()));
+            builder.append(Joiner.on(", ").join(packages)).append("\n");
+        }
+        for (SortedSet<String> packages : result.getNewCycles()) {
+            builder.append(String.format("New cycle (%d packages): ", packages.size()));
+            builder.append(Joiner.on(", ").join(packages)).append("\n");
+        }
+        return builder.toString();
+    }
+
+    @VisibleForTesting
+    void setClassDir(File classDir) {
+        this.classDir = classDir;
+    }
+
+    @VisibleForTesting
+    void setPackageDepth(int packageDepth) {
+        this.packageDepth = packageDepth;
+    }
+
+    @VisibleForTesting
+    void setMoves(String... moves) {
+        this.moves = moves;
+    }
+}
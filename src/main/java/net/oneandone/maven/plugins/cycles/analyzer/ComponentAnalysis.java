@@ -17,15 +17,21 @@ package net.oneandone.maven.plugins.cycles.analyzer;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Set;
 
+import net.oneandone.maven.plugins.cycles.classes.ClassDependencies;
+import net.oneandone.maven.plugins.cycles.classes.Events;
+import net.oneandone.maven.plugins.cycles.classes.PackageDependencies;
+import net.oneandone.maven.plugins.cycles.classes.Phase;
+import net.oneandone.maven.plugins.cycles.graph.Condensation;
 import net.oneandone.maven.plugins.cycles.graph.GraphBuilder;
 import net.oneandone.maven.plugins.cycles.graph.NameFilter;
-import net.oneandone.maven.plugins.cycles.graph.StronglyConnectedComponents;
+import net.oneandone.maven.plugins.cycles.graph.ParallelStronglyConnectedComponents;
 import net.oneandone.maven.plugins.cycles.graph.SubgraphUtils;
 import net.oneandone.maven.plugins.cycles.graph.WeightedEdge;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 
 import edu.uci.ics.jung.graph.DirectedGraph;
@@ -37,10 +43,10 @@ import edu.uci.ics.jung.graph.DirectedGraph;
  * @author chschmitz
  */
 public final class ComponentAnalysis {
-    private Predicate<String> nameFilter;
+    private DirectedGraph<String, WeightedEdge> packageGraph;
     private Collection<DirectedGraph<String, WeightedEdge>> strongComponents;
-    private int packageDepth;
-    private File[] classDirs;
+    private Collection<Set<String>> componentSets;
+    private Condensation<String> condensation;
     
     /**
      * @param filterPrefix a filter prefix on full class names
@@ -59,20 +65,57 @@ public final class ComponentAnalysis {
      * @throws IOException if parsing the class files fails
      */
     public ComponentAnalysis(Predicate<String> nameFilter, int packageDepth, File... classDirs) throws IOException {
-        this.nameFilter = nameFilter;
-        this.classDirs = Arrays.copyOf(classDirs, classDirs.length);
-        this.packageDepth = packageDepth;
-        
-        analyze();
+        this(new ClassDependencies(nameFilter, classDirs), packageDepth);
     }
 
-    private void analyze() throws IOException {
-         DirectedGraph<String, WeightedEdge> packageGraph = 
-                 GraphBuilder.buildPackageGraph(nameFilter, packageDepth, classDirs);
-         strongComponents = SubgraphUtils.asSubgraphs(
-                 StronglyConnectedComponents.strongComponentsAsSets(packageGraph), packageGraph);
+    /**
+     * @param classDependencies class-level dependencies that have already been parsed
+     * @param packageDepth depth to which package prefixes are aggregated
+     */
+    public ComponentAnalysis(ClassDependencies classDependencies, int packageDepth) {
+        this(classDependencies, PackageDependencies.packageNames(packageDepth));
+    }
+
+    /**
+     * @param classDependencies class-level dependencies that have already been parsed
+     * @param packageNames maps class names to package vertices; classes mapped to null are left out
+     */
+    public ComponentAnalysis(ClassDependencies classDependencies, Function<String, String> packageNames) {
+        analyze(classDependencies, packageNames);
+    }
+
+    private void analyze(ClassDependencies classDependencies, Function<String, String> packageNames) {
+         Phase phase = Events.graph("package graph");
+         packageGraph = GraphBuilder.buildPackageGraph(classDependencies, packageNames);
+         phase.end(packageGraph.getVertexCount(), packageGraph.getEdgeCount());
+         phase = Events.graph("strong components");
+         componentSets = ParallelStronglyConnectedComponents.strongComponentsAsSets(
+                 packageGraph, Runtime.getRuntime().availableProcessors());
+         strongComponents = SubgraphUtils.asNonTrivialSubgraphs(componentSets, packageGraph);
+         phase.end(packageGraph.getVertexCount(), packageGraph.getEdgeCount());
     }
 
+    /**
+     * Built on first use, since its reachability matrix grows with the square of the number of components.
+     *
+     * @return the package graph with its cycles collapsed, for layering and reachability queries
+     */
+    public Condensation<String> getCondensation() {
+        if (condensation == null) {
+            Phase phase = Events.graph("condensation");
+            condensation = new Condensation<String>(packageGraph, componentSets);
+            phase.end(componentSets.size(), packageGraph.getEdgeCount());
+        }
+        return condensation;
+    }
+
+    public DirectedGraph<String, WeightedEdge> getPackageGraph() {
+        return packageGraph;
+    }
+
+    /**
+     * @return the strong components with more than one package, i.e. the package cycles
+     */
     public Collection<DirectedGraph<String, WeightedEdge>> getStrongComponents() {
         return strongComponents;
     }
@@ -17,20 +17,55 @@ package net.oneandone.maven.plugins.cycles.analyzer;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.net.URISyntaxException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 
+import net.oneandone.maven.plugins.cycles.classes.ClassDependencies;
 import net.oneandone.maven.plugins.cycles.classes.ClassDependency;
+import net.oneandone.maven.plugins.cycles.classes.DependencyKind;
+import net.oneandone.maven.plugins.cycles.classes.PackageDependencies;
+import net.oneandone.maven.plugins.cycles.classes.SourceLocator;
+import net.oneandone.maven.plugins.cycles.graph.Abbreviations;
+import net.oneandone.maven.plugins.cycles.graph.Condensation;
+import net.oneandone.maven.plugins.cycles.graph.CycleEnumeration;
+import net.oneandone.maven.plugins.cycles.graph.Cycles;
 import net.oneandone.maven.plugins.cycles.graph.FeedbackArcSet;
 import net.oneandone.maven.plugins.cycles.graph.GraphDotUtils;
+import net.oneandone.maven.plugins.cycles.graph.GraphMLWriter;
 import net.oneandone.maven.plugins.cycles.graph.GraphStringUtils;
+import net.oneandone.maven.plugins.cycles.graph.GraphSvgUtils;
+import net.oneandone.maven.plugins.cycles.graph.IndexedGraph;
 import net.oneandone.maven.plugins.cycles.graph.InstabilityVertexEvaluator;
+import net.oneandone.maven.plugins.cycles.graph.NameFilter;
+import net.oneandone.maven.plugins.cycles.graph.PackageMetrics;
+import net.oneandone.maven.plugins.cycles.graph.TopK;
 import net.oneandone.maven.plugins.cycles.graph.WeightedEdge;
 import net.oneandone.maven.plugins.cycles.graph.WeightedEdgeComparator;
+import net.oneandone.maven.plugins.cycles.layers.LayerRules;
+import net.oneandone.maven.plugins.cycles.layers.LayerViolation;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.ObjectArrays;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 import com.google.common.io.Files;
 
@@ -39,16 +74,71 @@ import edu.uci.ics.jung.graph.DirectedGraph;
 /**
  * Outputs the results of a {@link ComponentAnalysis} to a string.
  * 
+ * Instances share no mutable state except the thread-safe cache of parsed jars, so analyzers of
+ * different modules may run concurrently.
+ * 
  * @author chschmitz
  */
 public final class ComponentAnalyzer {
+    /**
+     * Name of the machine-readable metrics file, next to the class directory.
+     */
+    public static final String METRICS_FILE = "package-metrics.csv";
+    public static final String EDGE_FILE = "class-dependencies.bin";
+    /**
+     * Name of the GraphML file, next to the class directory.
+     */
+    public static final String GRAPHML_FILE = "dependencies.graphml";
+    public static final String EXPORT_PACKAGES = "packages";
+    public static final String EXPORT_CLASSES = "classes";
+    /**
+     * Appended to the names of packages of test classes when analyzing them apart from the main classes.
+     */
+    public static final String TEST_SUFFIX = " (test)";
+
+    static final Ordering<DirectedGraph<String, WeightedEdge>> COMPONENT_ORDER = 
+            new Ordering<DirectedGraph<String, WeightedEdge>>() {
+        @Override
+        public int compare(DirectedGraph<String, WeightedEdge> left, DirectedGraph<String, WeightedEdge> right) {
+            return ComparisonChain.start()
+                    .compare(right.getVertexCount(), left.getVertexCount())
+                    .compare(Ordering.natural().min(left.getVertices()), Ordering.natural().min(right.getVertices()))
+                    .result();
+        }
+    };
+
+    private static final Ordering<ClassDependency> CLASS_DEPENDENCY_ORDER = new Ordering<ClassDependency>() {
+        @Override
+        public int compare(ClassDependency left, ClassDependency right) {
+            return ComparisonChain.start()
+                    .compare(left.getFrom(), right.getFrom())
+                    .compare(left.getTo(), right.getTo())
+                    .result();
+        }
+    };
+
     private File[] classDirs;
-    private String filterPrefix;
+    private File[] testClassDirs = new File[0];
+    private Predicate<String> nameFilter;
     private boolean shorten;
     private boolean writeDotFiles;
-    private int cycleCount;
     private int packageDepth;
     private boolean showClassDeps;
+    private LayerRules layerRules;
+    private boolean collapseInnerClasses;
+    private int maxDotPackages = Integer.MAX_VALUE;
+    private boolean writeSvgFiles;
+    private int maxCycles;
+    private int maxCycleLength;
+    private long cycleTimeoutMillis;
+    private boolean showMetrics;
+    private boolean offHeap;
+    private int reportLimit;
+    private boolean showSourceLocations;
+    private boolean skipIfUnchanged;
+    private String graphExport;
+    private int kindMask = DependencyKind.ALL;
+    private SourceLocator sourceLocator;
 
     /**
      * @param filterPrefix class name filter prefix
@@ -60,101 +150,622 @@ public final class ComponentAnalyzer {
      */
     public ComponentAnalyzer(String filterPrefix, boolean shorten, boolean writeDotFiles, int packageDepth, 
             boolean showClassDeps, File... classDirs) {
+        this(NameFilter.nameFilter(filterPrefix), shorten, writeDotFiles, packageDepth, showClassDeps, classDirs);
+    }
+
+    /**
+     * @param nameFilter filter on class names
+     * @param shorten whether to shorten the class names
+     * @param writeDotFiles iff true, .dot files will be written
+     * @param packageDepth prefix depth to which packages are aggregated 
+     * @param showClassDeps iff true, class-level dependencies are shown
+     * @param classDirs source of our class files
+     */
+    public ComponentAnalyzer(Predicate<String> nameFilter, boolean shorten, boolean writeDotFiles, int packageDepth, 
+            boolean showClassDeps, File... classDirs) {
         this.classDirs = Arrays.copyOf(classDirs, classDirs.length);
-        this.filterPrefix = filterPrefix;
+        this.nameFilter = nameFilter;
         this.shorten = shorten;
         this.writeDotFiles = writeDotFiles;
         this.packageDepth = packageDepth;
         this.showClassDeps = showClassDeps;
     }
 
+    /**
+     * @param layerRules architecture layers whose dependency directions are checked in the same run; 
+     * may be null
+     * @throws IllegalArgumentException iff a pattern is deeper than the package depth, so that it could never
+     * match an aggregated package
+     */
+    public void setLayerRules(LayerRules layerRules) {
+        Preconditions.checkArgument(layerRules == null || layerRules.getDepth() <= packageDepth,
+                "Layer patterns have up to %s package segments, but packageDepth is %s, so they could never match.", 
+                layerRules == null ? 0 : layerRules.getDepth(), packageDepth);
+        this.layerRules = layerRules;
+    }
+
+    /**
+     * @param collapseInnerClasses iff true, nested classes are folded into their top-level classes while parsing
+     */
+    public void setCollapseInnerClasses(boolean collapseInnerClasses) {
+        this.collapseInnerClasses = collapseInnerClasses;
+    }
+
+    /**
+     * @param maxDotPackages components with more packages are written as an overview .dot file plus
+     * one .dot file per package cluster
+     */
+    public void setMaxDotPackages(int maxDotPackages) {
+        this.maxDotPackages = maxDotPackages;
+    }
+
+    /**
+     * @param writeSvgFiles iff true, an .svg file laid out without Graphviz is written for each component
+     */
+    public void setWriteSvgFiles(boolean writeSvgFiles) {
+        this.writeSvgFiles = writeSvgFiles;
+    }
+
+    /**
+     * Enables the enumeration of elementary cycles in each component.
+     * 
+     * @param maxCycles maximum number of cycles per component; 0 to disable 
+     * @param maxCycleLength maximum number of packages in a cycle 
+     * @param cycleTimeoutMillis maximum time per component
+     */
+    public void setCycleEnumeration(int maxCycles, int maxCycleLength, long cycleTimeoutMillis) {
+        this.maxCycles = maxCycles;
+        this.maxCycleLength = maxCycleLength;
+        this.cycleTimeoutMillis = cycleTimeoutMillis;
+    }
+
+    /**
+     * @param showMetrics iff true, package metrics are shown and written to {@value #METRICS_FILE}
+     */
+    public void setShowMetrics(boolean showMetrics) {
+        this.showMetrics = showMetrics;
+    }
+
+    /**
+     * @param offHeap iff true, class dependencies are kept in the memory-mapped file {@value #EDGE_FILE}
+     */
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * @param reportLimit iff greater than 0, only that many of the heaviest dependencies and of the most involved 
+     * packages are listed per component, plus totals for the rest
+     */
+    public void setReportLimit(int reportLimit) {
+        this.reportLimit = reportLimit;
+    }
+
+    /**
+     * @param kindMask a bitmask of the {@link DependencyKind}s of the class dependencies that count when 
+     * choosing the cycle-breaking dependencies; the weights shown always count all class dependencies
+     */
+    public void setKindMask(int kindMask) {
+        this.kindMask = kindMask;
+    }
+
+    /**
+     * @param showSourceLocations iff true, the source lines of the class dependencies behind cycle-breaking 
+     * dependencies are shown; their class files are read a second time for that
+     */
+    public void setShowSourceLocations(boolean showSourceLocations) {
+        this.showSourceLocations = showSourceLocations;
+    }
+
+    /**
+     * @param graphExport {@value #EXPORT_PACKAGES} or {@value #EXPORT_CLASSES} to write the whole package or class
+     * graph to {@value #GRAPHML_FILE}; null for no export
+     */
+    public void setGraphExport(String graphExport) {
+        Preconditions.checkArgument(graphExport == null || EXPORT_PACKAGES.equals(graphExport) 
+                || EXPORT_CLASSES.equals(graphExport), "Unknown graph export %s.", graphExport);
+        this.graphExport = graphExport;
+    }
+
+    /**
+     * Parses test classes together with the main classes, but reports them separately: the cycles of the main 
+     * classes alone first, then the cycles that only exist with the test classes. In the latter, packages of 
+     * test classes are told apart from main packages of the same name, so that dependencies from tests on main 
+     * classes are the normal direction rather than part of a cycle. Metrics and layer violations are for the
+     * main classes only.
+     * 
+     * @param testClassDirs test class directories or jar files
+     */
+    public void setTestClassDirs(File... testClassDirs) {
+        this.testClassDirs = Arrays.copyOf(testClassDirs, testClassDirs.length);
+    }
+
+    /**
+     * @param skipIfUnchanged iff true, the report of the previous run is returned without analyzing again 
+     * if neither the class files nor the configuration changed since; only works with a {@link NameFilter},
+     * since other filters cannot be told apart between runs
+     */
+    public void setSkipIfUnchanged(boolean skipIfUnchanged) {
+        this.skipIfUnchanged = skipIfUnchanged;
+    }
+
     /**
      * Perform the actual analysis.
      * 
      * @return human-readable output of the analysis results
-     * @throws IOException if parsing the classes fails
+     * @throws IOException if parsing the classes or writing the graph files fails
      */
     public String analyze() throws IOException {
-        ComponentAnalysis analysis = new ComponentAnalysis(filterPrefix, packageDepth, classDirs);
+        File targetDir = new File(classDirs[0].getParent());
+        int threads = Runtime.getRuntime().availableProcessors();
+        UpToDateCheck upToDateCheck = null;
+        File[] inputs = ObjectArrays.concat(classDirs, testClassDirs, File.class);
+        if (skipIfUnchanged && nameFilter instanceof NameFilter) {
+            upToDateCheck = new UpToDateCheck(targetDir, 
+                    UpToDateCheck.fingerprint(inputs, configuration(), threads));
+            String report = upToDateCheck.replay();
+            if (report != null) {
+                return report;
+            }
+        }
+        ClassDependencies classDependencies = new ClassDependencies(nameFilter, collapseInnerClasses, inputs,
+                offHeap ? new File(targetDir, EDGE_FILE) : null);
+        try {
+            GraphFileWriter writer = new GraphFileWriter(targetDir, threads);
+            try {
+                sourceLocator = showSourceLocations 
+                        ? new SourceLocator(nameFilter, collapseInnerClasses, inputs) : null;
+                String report = analyze(classDependencies, writer, targetDir);
+                if (upToDateCheck != null) {
+                    upToDateCheck.record(report, graphExport == null ? writer.getFileNames() 
+                            : Sets.union(writer.getFileNames(), Collections.singleton(GRAPHML_FILE)));
+                }
+                return report;
+            } finally {
+                writer.close();
+            }
+        } finally {
+            classDependencies.close();
+        }
+    }
 
-        if (!analysis.hasNonTrivialComponents()) {
-            return ("No package cycles.");
+    /**
+     * Everything but the class files that the report depends on, including the plugin itself.
+     */
+    private String configuration() throws IOException {
+        File plugin;
+        try {
+            plugin = new File(ComponentAnalyzer.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        NameFilter filter = (NameFilter) nameFilter;
+        return Joiner.on('\n').useForNull("").join(filter.getPrefix(), 
+                Ordering.natural().sortedCopy(filter.getIncludePatterns()), 
+                Ordering.natural().sortedCopy(filter.getExcludePatterns()), testClassDirs.length, shorten, 
+                writeDotFiles, packageDepth, showClassDeps, layerRules == null ? null : layerRules.getLayers(), 
+                collapseInnerClasses, maxDotPackages, writeSvgFiles, maxCycles, maxCycleLength, cycleTimeoutMillis, 
+                showMetrics, offHeap, reportLimit, showSourceLocations, graphExport, kindMask, 
+                plugin, plugin.length(), plugin.lastModified());
+    }
+
+    private String analyze(ClassDependencies classDependencies, GraphFileWriter writer, File targetDir) 
+            throws IOException {
+        Set<String> testClasses = Sets.newHashSet();
+        for (File testClassDir : testClassDirs) {
+            testClasses.addAll(classDependencies.getClassNames(testClassDir));
         }
+        Function<String, String> mainPackages = packageNames(testClasses, false);
+        ComponentAnalysis analysis = new ComponentAnalysis(classDependencies, mainPackages);
+        ComponentAnalysis testAnalysis = testClassDirs.length == 0 ? null 
+                : new ComponentAnalysis(classDependencies, packageNames(testClasses, true));
+        Abbreviations abbreviations = abbreviations(testAnalysis == null ? analysis.getPackageGraph().getVertices() 
+                : testAnalysis.getPackageGraph().getVertices(), classDependencies);
 
         StringBuilder builder = new StringBuilder();
-        printCycles(analysis.getStrongComponents(), builder);
+        Map<DirectedGraph<String, WeightedEdge>, List<String>> vertexOrders = vertexOrders(
+                analysis.getStrongComponents());
+        if (analysis.hasNonTrivialComponents()) {
+            printCycles(vertexOrders, abbreviations, writer, builder);
+        } else {
+            builder.append("No package cycles.");
+        }
+        if (testAnalysis != null) {
+            printTestCycles(testAnalysis, abbreviations, writer, builder);
+        }
+        if (showMetrics) {
+            PackageMetrics metrics = new PackageMetrics(analysis.getPackageGraph(), classDependencies, mainPackages);
+            printMetrics(metrics, analysis.getCondensation(), abbreviations, builder);
+            writeMetrics(metrics, analysis.getCondensation(), writer);
+        }
+        writer.finish(writeDotFiles || writeSvgFiles);
+        if (graphExport != null) {
+            exportGraph(analysis, vertexOrders, classDependencies, mainPackages, new File(targetDir, GRAPHML_FILE));
+        }
+        if (layerRules != null) {
+            printLayerViolations(layerRules.check(analysis.getPackageGraph()), analysis.getPackageGraph(), 
+                    abbreviations, builder);
+        }
         return builder.toString();
     }
 
-    private void printCycles(Collection<DirectedGraph<String, WeightedEdge>> components, StringBuilder builder)
-            throws IOException {
-        cycleCount = 0;
+    private void exportGraph(ComponentAnalysis analysis, 
+            Map<DirectedGraph<String, WeightedEdge>, List<String>> vertexOrders, ClassDependencies classDependencies, 
+            Function<String, String> packageNames, File file) throws IOException {
+        Set<WeightedEdge> feedbackArcs = Sets.newHashSet();
+        for (Map.Entry<DirectedGraph<String, WeightedEdge>, List<String>> vertexOrder : vertexOrders.entrySet()) {
+            feedbackArcs.addAll(FeedbackArcSet.feedbackArcs(vertexOrder.getKey(), vertexOrder.getValue()));
+        }
+        Writer out = Files.newWriter(file, Charsets.UTF_8);
+        try {
+            GraphMLWriter graphML = new GraphMLWriter(out, analysis.getPackageGraph(), analysis.getCondensation(), 
+                    feedbackArcs);
+            if (EXPORT_CLASSES.equals(graphExport)) {
+                graphML.writeClassGraph(classDependencies, packageNames);
+            } else {
+                graphML.writePackageGraph();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Computes the feedback arc set order of each cycle once, for the report, the graph files and the export 
+     * to share.
+     *
+     * @return the vertex orders of the components with more than one package
+     */
+    private Map<DirectedGraph<String, WeightedEdge>, List<String>> vertexOrders(
+            Collection<DirectedGraph<String, WeightedEdge>> components) {
+        Map<DirectedGraph<String, WeightedEdge>, List<String>> vertexOrders = Maps.newIdentityHashMap();
         for (DirectedGraph<String, WeightedEdge> component : components) {
-            if (component.getVertices().size() > 1) {
-                printCycle(component, builder);
-                writeCycleGraph(component);
-                cycleCount++;
+            if (component.getVertexCount() > 1) {
+                vertexOrders.put(component, vertexOrder(component));
             }
         }
+        return vertexOrders;
     }
 
-    private void printCycle(DirectedGraph<String, WeightedEdge> component, StringBuilder builder) {
-        builder.append(String.format("=== Cycle / strongly connected component (%d packages, %d dependencies)",
-                component.getVertexCount(), component.getEdgeCount()));
-        builder.append("\n");
-        printPackages(component, builder);
-        printDependencies(component, builder);
-        printFeedbackArcs(component, builder);
+    private List<String> vertexOrder(DirectedGraph<String, WeightedEdge> component) {
+        return FeedbackArcSet.vertexOrder(component, new InstabilityVertexEvaluator<String>(kindMask));
+    }
+
+    /**
+     * All renderers share one table, so that every name is abbreviated the same way everywhere. Class names
+     * are only needed when class dependencies are shown, which layer violations always do.
+     */
+    private Abbreviations abbreviations(Collection<String> packages, ClassDependencies classDependencies) {
+        if (!shorten) {
+            return Abbreviations.none();
+        }
+        if (showClassDeps || layerRules != null) {
+            return Abbreviations.of(Iterables.concat(packages, classDependencies.getAllClassNames()));
+        }
+        return Abbreviations.of(packages);
+    }
+
+    /**
+     * @param withTests iff false, test classes are left out; else their packages get the {@link #TEST_SUFFIX}
+     */
+    private Function<String, String> packageNames(final Set<String> testClasses, final boolean withTests) {
+        return new Function<String, String>() {
+            @Override
+            public String apply(String className) {
+                String pkg = PackageDependencies.getPackageNameOfClass(className, packageDepth);
+                if (!testClasses.contains(className)) {
+                    return pkg;
+                }
+                return withTests ? pkg + TEST_SUFFIX : null;
+            }
+        };
+    }
+
+    /**
+     * The cycles of the main classes were reported already, so only those involving test packages are left.
+     */
+    private void printTestCycles(ComponentAnalysis testAnalysis, Abbreviations abbreviations, GraphFileWriter writer,
+            StringBuilder builder) throws IOException {
+        List<DirectedGraph<String, WeightedEdge>> testCycles = Lists.newArrayList();
+        for (DirectedGraph<String, WeightedEdge> component : testAnalysis.getStrongComponents()) {
+            for (String pkg : component.getVertices()) {
+                if (pkg.endsWith(TEST_SUFFIX)) {
+                    testCycles.add(component);
+                    break;
+                }
+            }
+        }
+        builder.append("\n=== Cycles including test classes\n");
+        if (testCycles.isEmpty()) {
+            builder.append("No package cycles in test classes.");
+        } else {
+            printCycles(vertexOrders(testCycles), abbreviations, writer, builder);
+        }
+    }
+
+    private static void printMetrics(PackageMetrics metrics, Condensation<String> condensation, 
+            Abbreviations abbreviations, StringBuilder builder) {
+        builder.append("\n=== Package metrics\n");
+        builder.append("Ca\tCe\tI\tA\tD\tLevel\tPackage\n");
+        for (String pkg : metrics.getPackages()) {
+            builder.append(String.format(Locale.ROOT, "%d\t%d\t%.2f\t%.2f\t%.2f\t%d\t%s\n", 
+                    metrics.getAfferentCoupling(pkg), metrics.getEfferentCoupling(pkg), metrics.getInstability(pkg),
+                    metrics.getAbstractness(pkg), metrics.getDistance(pkg), condensation.getLevel(pkg),
+                    GraphStringUtils.vertexToString(pkg, abbreviations)));
+        }
+    }
+
+    private static void writeMetrics(final PackageMetrics metrics, final Condensation<String> condensation, 
+            GraphFileWriter writer) {
+        writer.write(new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call() {
+                StringBuilder csv = new StringBuilder("package,classes,abstractClasses,afferentCoupling,"
+                        + "efferentCoupling,inWeight,outWeight,instability,abstractness,distance,level,"
+                        + "transitiveDependencies,transitiveDependents\n");
+                for (String pkg : metrics.getPackages()) {
+                    csv.append(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%d,%.4f,%.4f,%.4f,%d,%d,%d\n", pkg, 
+                            metrics.getClassCount(pkg), metrics.getAbstractClassCount(pkg), 
+                            metrics.getAfferentCoupling(pkg), metrics.getEfferentCoupling(pkg), 
+                            metrics.getInWeight(pkg), metrics.getOutWeight(pkg), metrics.getInstability(pkg), 
+                            metrics.getAbstractness(pkg), metrics.getDistance(pkg), condensation.getLevel(pkg), 
+                            condensation.getDependencyCount(pkg), condensation.getDependentCount(pkg)));
+                }
+                return ImmutableMap.of(METRICS_FILE, csv.toString());
+            }
+        });
     }
 
-    private void writeCycleGraph(DirectedGraph<String, WeightedEdge> component) throws IOException {
-        if (!writeDotFiles) {
+    private void printLayerViolations(List<LayerViolation> violations, DirectedGraph<String, WeightedEdge> graph, 
+            Abbreviations abbreviations, StringBuilder builder) {
+        if (violations.isEmpty()) {
+            builder.append("\nNo layer violations.");
             return;
         }
-        File dotFile = new File(classDirs[0].getParent(), "graph-" + cycleCount + ".dot");
-        String dotString = GraphDotUtils.toDot(component, shorten);
-        Files.write(dotString, dotFile, Charsets.UTF_8);
+        builder.append("\n=== Layer violations\n");
+        for (LayerViolation violation : violations) {
+            builder.append(String.format("\n= %s -> %s (%d dependencies, %d class dependencies)\n", 
+                    violation.getFromLayer(), violation.getToLayer(), violation.getDependencies().size(), 
+                    violation.getClassDependencyCount()));
+            TreeSet<WeightedEdge> sortedEdges = Sets.newTreeSet(new WeightedEdgeComparator(graph));
+            sortedEdges.addAll(violation.getDependencies());
+            for (WeightedEdge dependency : sortedEdges) {
+                builder.append(GraphStringUtils.edgeToString(dependency, graph, abbreviations));
+                builder.append("\n");
+                printClassDependencies(builder, dependency, abbreviations);
+            }
+        }
+    }
+
+    private void printCycles(Map<DirectedGraph<String, WeightedEdge>, List<String>> vertexOrders, 
+            Abbreviations abbreviations, GraphFileWriter writer, StringBuilder builder) throws IOException {
+        for (DirectedGraph<String, WeightedEdge> component : COMPONENT_ORDER.sortedCopy(vertexOrders.keySet())) {
+            List<String> vertexOrder = vertexOrders.get(component);
+            Collection<WeightedEdge> feedbackArcs = FeedbackArcSet.feedbackArcs(component, vertexOrder);
+            String fileName = GraphFileWriter.fileName(Sets.newTreeSet(component.getVertices()));
+            printComponent("=== Cycle / strongly connected component", component, fileName, feedbackArcs, 
+                    abbreviations, builder);
+            writeCycleGraph(component, fileName, vertexOrder, feedbackArcs, abbreviations, writer);
+        }
+    }
+
+    /**
+     * Prints a cycle found by another analysis, e.g. of a {@link CycleWatcher}, the same way as 
+     * {@link #analyze()} does.
+     */
+    void printCycle(String title, DirectedGraph<String, WeightedEdge> component, Abbreviations abbreviations,
+            StringBuilder builder) throws IOException {
+        printComponent(title, component, null, FeedbackArcSet.feedbackArcs(component, vertexOrder(component)), 
+                abbreviations, builder);
+    }
+
+    private void printComponent(String title, DirectedGraph<String, WeightedEdge> component, String fileName, 
+            Collection<WeightedEdge> feedbackArcs, Abbreviations abbreviations, StringBuilder builder) 
+            throws IOException {
+        builder.append(String.format("%s (%d packages, %d dependencies)\n", title, 
+                component.getVertexCount(), component.getEdgeCount()));
+        if (fileName != null && (writeDotFiles || writeSvgFiles)) {
+            builder.append(String.format("Graph files: %s.*\n", fileName));
+        }
+        printPackages(component, abbreviations, builder);
+        printDependencies(component, abbreviations, builder);
+        printFeedbackArcs(component, feedbackArcs, abbreviations, builder);
+    }
+
+    private void writeCycleGraph(final DirectedGraph<String, WeightedEdge> component, final String fileName,
+            final List<String> vertexOrder, final Collection<WeightedEdge> feedbackArcs, 
+            final Abbreviations abbreviations, GraphFileWriter writer) {
+        if (writeSvgFiles) {
+            writer.write(new Callable<Map<String, String>>() {
+                @Override
+                public Map<String, String> call() {
+                    return ImmutableMap.of(fileName + ".svg", 
+                            GraphSvgUtils.toSvg(component, abbreviations, vertexOrder));
+                }
+            });
+        }
+        if (writeDotFiles) {
+            writer.write(new Callable<Map<String, String>>() {
+                @Override
+                public Map<String, String> call() {
+                    Map<String, String> files = Maps.newHashMap();
+                    Map<String, String> dotFiles = GraphDotUtils.toDotFiles(component, abbreviations, maxDotPackages, 
+                            feedbackArcs);
+                    for (Map.Entry<String, String> dotFile : dotFiles.entrySet()) {
+                        files.put(fileName + dotFile.getKey() + ".dot", dotFile.getValue());
+                    }
+                    return files;
+                }
+            });
+        }
     }
 
-    private  void printFeedbackArcs(DirectedGraph<String, WeightedEdge> component, StringBuilder builder) {
+    private void printFeedbackArcs(DirectedGraph<String, WeightedEdge> component, 
+            Collection<WeightedEdge> feedbackArcs, Abbreviations abbreviations, StringBuilder builder) 
+            throws IOException {
         builder.append("\n= Cycle-breaking dependencies\n");
-        for (WeightedEdge dependency : FeedbackArcSet.feedbackArcs(component, 
-                new InstabilityVertexEvaluator<String>())) {
-            builder.append(GraphStringUtils.edgeToString(dependency, component, shorten));
+        IndexedGraph<String, WeightedEdge> indexed = new IndexedGraph<String, WeightedEdge>(component);
+        for (WeightedEdge dependency : feedbackArcs) {
+            builder.append(GraphStringUtils.edgeToString(dependency, component, abbreviations));
             builder.append("\n");
+            int[] cycle = Cycles.shortestCycle(indexed, indexed.indexOf(component.getSource(dependency)), 
+                    indexed.indexOf(component.getDest(dependency)));
+            if (cycle != null) {
+                builder.append("\tcloses ");
+                printCycleVertices(indexed.getVertices(cycle), abbreviations, builder);
+            }
+            if (sourceLocator != null) {
+                printSourceLocations(dependency, abbreviations, builder);
+            }
+        }
+        if (maxCycles > 0) {
+            CycleEnumeration<String> enumeration = Cycles.elementaryCycles(indexed, maxCycleLength, maxCycles, 
+                    cycleTimeoutMillis);
+            builder.append(String.format("\n= Elementary cycles of up to %d packages (%d%s)\n", maxCycleLength,
+                    enumeration.getCycles().size(), enumeration.isComplete() ? "" : ", stopped early"));
+            for (List<String> cycle : enumeration.getCycles()) {
+                printCycleVertices(cycle, abbreviations, builder);
+            }
+        }
+    }
+
+    /**
+     * Locates the class dependencies in order, so that the class files of each depending class are read 
+     * once; no more than the report limit, if any.
+     */
+    private void printSourceLocations(WeightedEdge dependency, Abbreviations abbreviations, StringBuilder builder) 
+            throws IOException {
+        SortedSet<ClassDependency> classDependencies = Sets.newTreeSet(CLASS_DEPENDENCY_ORDER);
+        classDependencies.addAll(dependency.getDependencies());
+        int printed = 0;
+        for (ClassDependency classDependency : classDependencies) {
+            if (reportLimit > 0 && printed == reportLimit) {
+                builder.append("\t... ").append(count(classDependencies.size() - printed, 
+                        "more class dependency", "more class dependencies")).append("\n");
+                break;
+            }
+            builder.append("\t[");
+            builder.append(GraphStringUtils.dependencyToString(classDependency, abbreviations));
+            builder.append("]");
+            List<String> locations = sourceLocator.locate(classDependency);
+            if (!locations.isEmpty()) {
+                builder.append(" at ");
+                builder.append(Joiner.on(", ").join(locations));
+            }
+            builder.append("\n");
+            printed++;
+        }
+    }
+
+    private static void printCycleVertices(List<String> cycle, Abbreviations abbreviations, StringBuilder builder) {
+        for (String pkg : cycle) {
+            builder.append(GraphStringUtils.vertexToString(pkg, abbreviations));
+            builder.append(" -> ");
         }
+        builder.append(GraphStringUtils.vertexToString(cycle.get(0), abbreviations));
+        builder.append("\n");
     }
 
-    private void printDependencies(DirectedGraph<String, WeightedEdge> component, StringBuilder builder) {
-        builder.append("\n= Dependencies\n");
-        TreeSet<WeightedEdge> sortedEdges = Sets.newTreeSet(new WeightedEdgeComparator(component));
-        sortedEdges.addAll(component.getEdges());
-        for (WeightedEdge dependency : sortedEdges) {
-            builder.append(GraphStringUtils.edgeToString(dependency, component, shorten));
+    /**
+     * Lists the dependencies by descending weight, then by package names. The order is computed on 
+     * precomputed keys, so that large components need neither a comparator with graph lookups nor a
+     * full sort when the report is limited.
+     */
+    private void printDependencies(DirectedGraph<String, WeightedEdge> component, Abbreviations abbreviations, 
+            StringBuilder builder) {
+        Map<String, Integer> ranks = nameRanks(component);
+        WeightedEdge[] edges = component.getEdges().toArray(new WeightedEdge[component.getEdgeCount()]);
+        long[] weights = new long[edges.length];
+        long[] names = new long[edges.length];
+        long totalWeight = 0;
+        for (int e = 0; e < edges.length; e++) {
+            weights[e] = (long) edges[e].getWeight();
+            names[e] = (long) ranks.get(component.getSource(edges[e])) * ranks.size() 
+                    + ranks.get(component.getDest(edges[e]));
+            totalWeight += weights[e];
+        }
+        int[] selected = TopK.select(weights, names, reportLimit > 0 ? reportLimit : edges.length);
+
+        if (selected.length < edges.length) {
+            builder.append(String.format("\n= Dependencies (%d heaviest of %d)\n", selected.length, edges.length));
+        } else {
+            builder.append("\n= Dependencies\n");
+        }
+        for (int e : selected) {
+            builder.append(GraphStringUtils.edgeToString(edges[e], component, abbreviations));
             builder.append("\n");
             if (showClassDeps) {
-                printClassDependencies(builder, dependency);
+                printClassDependencies(builder, edges[e], abbreviations);
             }
+            totalWeight -= weights[e];
+        }
+        if (selected.length < edges.length) {
+            builder.append("... ").append(count(edges.length - selected.length, "more dependency", 
+                    "more dependencies")).append(" (").append(count(totalWeight, "class dependency", 
+                    "class dependencies")).append(")\n");
+        }
+    }
+
+    private static Map<String, Integer> nameRanks(DirectedGraph<String, WeightedEdge> component) {
+        Map<String, Integer> ranks = Maps.newHashMapWithExpectedSize(component.getVertexCount());
+        for (String pkg : Ordering.natural().sortedCopy(component.getVertices())) {
+            ranks.put(pkg, ranks.size());
         }
+        return ranks;
     }
 
-    private void printClassDependencies(StringBuilder builder, WeightedEdge dependency) {
+    private static void printClassDependencies(StringBuilder builder, WeightedEdge dependency, 
+            Abbreviations abbreviations) {
         SortedSet<String> depsStrs = Sets.newTreeSet();
         for (ClassDependency classDependency : dependency.getDependencies()) {
-            depsStrs.add(GraphStringUtils.dependencyToString(classDependency, shorten));
+            depsStrs.add(GraphStringUtils.dependencyToString(classDependency, abbreviations) + "] (" 
+                    + DependencyKind.toString(classDependency.getKinds()) + ")");
         }
         for (String depsStr : depsStrs) {
             builder.append("\t[");
             builder.append(depsStr);
-            builder.append("]\n");
+            builder.append("\n");
         }
     }
 
-    private void printPackages(DirectedGraph<String, WeightedEdge> component, StringBuilder builder) {
-        builder.append("\n= Packages\n");
-        for (String pkg : Sets.newTreeSet(component.getVertices())) {
-            builder.append(GraphStringUtils.vertexToString(pkg, shorten));
-            builder.append("\n");
+    private void printPackages(DirectedGraph<String, WeightedEdge> component, Abbreviations abbreviations, 
+            StringBuilder builder) {
+        if (reportLimit <= 0 || component.getVertexCount() <= reportLimit) {
+            builder.append("\n= Packages\n");
+            for (String pkg : Sets.newTreeSet(component.getVertices())) {
+                builder.append(GraphStringUtils.vertexToString(pkg, abbreviations));
+                builder.append("\n");
+            }
+            return;
+        }
+
+        // involvement = class dependencies into and out of the package within the component
+        Map<String, Integer> ranks = nameRanks(component);
+        String[] packages = new String[ranks.size()];
+        long[] involvement = new long[packages.length];
+        long[] names = new long[packages.length];
+        for (Map.Entry<String, Integer> rank : ranks.entrySet()) {
+            packages[rank.getValue()] = rank.getKey();
+            names[rank.getValue()] = rank.getValue();
+        }
+        for (WeightedEdge edge : component.getEdges()) {
+            involvement[ranks.get(component.getSource(edge))] += (long) edge.getWeight();
+            involvement[ranks.get(component.getDest(edge))] += (long) edge.getWeight();
         }
+        int[] selected = TopK.select(involvement, names, reportLimit);
+        builder.append(String.format("\n= Packages (%d most involved of %d)\n", selected.length, packages.length));
+        for (int p : selected) {
+            builder.append(GraphStringUtils.vertexToString(packages[p], abbreviations));
+            builder.append(String.format(" [%d]\n", involvement[p]));
+        }
+        builder.append("... ").append(count(packages.length - selected.length, "more package", "more packages"))
+                .append("\n");
+    }
+
+    /**
+     * @return the count followed by the singular or plural noun, as the count requires
+     */
+    private static String count(long count, String singular, String plural) {
+        return count + " " + (count == 1 ? singular : plural);
     }
 }
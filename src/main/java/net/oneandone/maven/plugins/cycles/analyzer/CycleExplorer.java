@@ -0,0 +1,228 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.analyzer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import net.oneandone.maven.plugins.cycles.classes.ClassDependency;
+import net.oneandone.maven.plugins.cycles.classes.DependencyKind;
+import net.oneandone.maven.plugins.cycles.graph.FeedbackArcSet;
+import net.oneandone.maven.plugins.cycles.graph.InstabilityVertexEvaluator;
+import net.oneandone.maven.plugins.cycles.graph.WeightedEdge;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+
+/**
+ * Writes the data of the interactive cycle explorer: an HTML overview of all components, plus two gzipped JSON
+ * chunks per component in a subdirectory, which the page only fetches when a component is opened. The graph 
+ * chunk has the packages and package dependencies, the classes chunk the class dependencies behind each 
+ * package dependency, so that even large tangles do not slow down loading the page.
+ *
+ * @author chschmitz
+ */
+public final class CycleExplorer {
+    /**
+     * The subdirectory of the chunks and the script.
+     */
+    public static final String DIR = "cycles";
+    private static final String SCRIPT = "cycles-explorer.js";
+    private static final Function<WeightedEdge, Integer> ID = new Function<WeightedEdge, Integer>() {
+        @Override
+        public Integer apply(WeightedEdge edge) {
+            return edge.getId();
+        }
+    };
+
+    private final File dir;
+
+    /**
+     * @param outputDir the directory of the report page
+     */
+    public CycleExplorer(File outputDir) {
+        this.dir = new File(outputDir, DIR);
+    }
+
+    /**
+     * Writes the chunks of all components and the script. The chunks of an earlier run are deleted first, so
+     * none are left over from components that no longer exist.
+     * 
+     * @param analysis the analysis to explore
+     * @return the HTML body of the report page
+     * @throws IOException if deleting old chunks or writing the chunks fails
+     */
+    public String write(ComponentAnalysis analysis) throws IOException {
+        Files.createParentDirs(new File(dir, SCRIPT));
+        clear();
+        copyScript();
+        List<DirectedGraph<String, WeightedEdge>> components = 
+                ComponentAnalyzer.COMPONENT_ORDER.sortedCopy(analysis.getStrongComponents());
+
+        StringBuilder html = new StringBuilder();
+        html.append("<h2>Package cycles</h2>\n");
+        if (components.isEmpty()) {
+            html.append("<p>No package cycles.</p>\n");
+            return html.toString();
+        }
+        html.append("<table class=\"bodyTable\" id=\"cycles-overview\">\n");
+        html.append("<tr><th>#</th><th>Packages</th><th>Dependencies</th><th>Class dependencies</th>"
+                + "<th>Cycle-breaking dependencies</th><th>Smallest package</th></tr>\n");
+        for (int c = 0; c < components.size(); c++) {
+            DirectedGraph<String, WeightedEdge> component = components.get(c);
+            List<WeightedEdge> edges = Ordering.natural().onResultOf(ID).sortedCopy(component.getEdges());
+            Collection<WeightedEdge> feedbackArcs = Sets.newHashSet(FeedbackArcSet.feedbackArcs(component, 
+                    new InstabilityVertexEvaluator<String>()));
+            writeGraphChunk(c, component, edges, feedbackArcs);
+            int classDependencies = writeClassesChunk(c, edges);
+            html.append(String.format("<tr><td><a href=\"#cycles-explorer\" data-component=\"%d\">%d</a></td>"
+                    + "<td>%d</td><td>%d</td><td>%d</td><td>%d</td><td>%s</td></tr>\n", c, c + 1, 
+                    component.getVertexCount(), component.getEdgeCount(), classDependencies, feedbackArcs.size(),
+                    escape(Ordering.natural().min(component.getVertices()))));
+        }
+        html.append("</table>\n");
+        html.append("<div id=\"cycles-explorer\"></div>\n");
+        html.append("<script src=\"" + DIR + "/" + SCRIPT + "\"></script>\n");
+        return html.toString();
+    }
+
+    /**
+     * @param component the number of a component in report order
+     * @return the name of its graph chunk, relative to the page
+     */
+    static String graphChunk(int component) {
+        return String.format("component-%d.json.gz", component);
+    }
+
+    /**
+     * @param component the number of a component in report order
+     * @return the name of its classes chunk, relative to the page
+     */
+    static String classesChunk(int component) {
+        return String.format("component-%d-classes.json.gz", component);
+    }
+
+    private void clear() throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isFile() && !file.delete()) {
+                throw new IOException("Could not delete " + file);
+            }
+        }
+    }
+
+    private void copyScript() throws IOException {
+        InputStream in = CycleExplorer.class.getResourceAsStream(SCRIPT);
+        try {
+            Files.write(ByteStreams.toByteArray(in), new File(dir, SCRIPT));
+        } finally {
+            Closeables.closeQuietly(in);
+        }
+    }
+
+    /**
+     * {"packages": [name, ...], "edges": [[from, to, weight, feedback], ...]}, with packages as indexes.
+     */
+    private void writeGraphChunk(int c, DirectedGraph<String, WeightedEdge> component, List<WeightedEdge> edges, 
+            Collection<WeightedEdge> feedbackArcs) throws IOException {
+        List<String> packages = ImmutableList.copyOf(Ordering.natural().sortedCopy(component.getVertices()));
+        Map<String, Integer> index = Maps.newHashMap();
+        Writer out = chunkWriter(graphChunk(c));
+        try {
+            out.write("{\"packages\":[");
+            for (int p = 0; p < packages.size(); p++) {
+                index.put(packages.get(p), p);
+                out.write(p > 0 ? "," : "");
+                out.write(quote(packages.get(p)));
+            }
+            out.write("],\"edges\":[");
+            for (int e = 0; e < edges.size(); e++) {
+                WeightedEdge edge = edges.get(e);
+                out.write(String.format("%s[%d,%d,%d,%b]", e > 0 ? "," : "", index.get(component.getSource(edge)), 
+                        index.get(component.getDest(edge)), (int) edge.getWeight(), feedbackArcs.contains(edge)));
+            }
+            out.write("]}");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * {"edges": [[[from, to, kinds], ...], ...]}, in the order of the edges of the graph chunk.
+     * 
+     * @return the number of class dependencies
+     */
+    private int writeClassesChunk(int c, List<WeightedEdge> edges) throws IOException {
+        int count = 0;
+        Writer out = chunkWriter(classesChunk(c));
+        try {
+            out.write("{\"edges\":[");
+            for (int e = 0; e < edges.size(); e++) {
+                out.write(e > 0 ? ",[" : "[");
+                boolean first = true;
+                for (ClassDependency dependency : edges.get(e).getDependencies()) {
+                    out.write(first ? "[" : ",[");
+                    out.write(quote(dependency.getFrom()));
+                    out.write(",");
+                    out.write(quote(dependency.getTo()));
+                    out.write(",");
+                    out.write(quote(DependencyKind.toString(dependency.getKinds())));
+                    out.write("]");
+                    first = false;
+                    count++;
+                }
+                out.write("]");
+            }
+            out.write("]}");
+        } finally {
+            out.close();
+        }
+        return count;
+    }
+
+    private Writer chunkWriter(String name) throws IOException {
+        return new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(new File(dir, name))), 
+                Charsets.UTF_8);
+    }
+
+    private static String quote(String text) {
+        return "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
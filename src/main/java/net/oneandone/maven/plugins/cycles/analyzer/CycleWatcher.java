@@ -0,0 +1,147 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+import net.oneandone.maven.plugins.cycles.classes.ClassDependencies;
+import net.oneandone.maven.plugins.cycles.classes.ClassFileSnapshot;
+import net.oneandone.maven.plugins.cycles.graph.Abbreviations;
+import net.oneandone.maven.plugins.cycles.graph.GraphStringUtils;
+import net.oneandone.maven.plugins.cycles.graph.WeightedEdge;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+
+/**
+ * Keeps the class-level dependencies of a set of class directories in memory and, when polled,
+ * re-parses only the class files that changed since the last poll. Reports package cycles that
+ * appeared or disappeared in the meantime.
+ *
+ * @author chschmitz
+ */
+public final class CycleWatcher {
+    private File[] classDirs;
+    private int packageDepth;
+    private boolean shorten;
+    private ClassDependencies classDependencies;
+    private ClassFileSnapshot snapshot;
+    private Map<SortedSet<String>, DirectedGraph<String, WeightedEdge>> cycles;
+    private ComponentAnalyzer printer;
+
+    /**
+     * @param nameFilter filter on class names
+     * @param collapseInnerClasses iff true, nested classes are folded into their top-level classes
+     * @param packageDepth prefix depth to which packages are aggregated
+     * @param shorten whether to shorten the package names
+     * @param classDirs class directories to watch
+     * @throws IOException if parsing the classes fails
+     */
+    public CycleWatcher(Predicate<String> nameFilter, boolean collapseInnerClasses, int packageDepth, boolean shorten, 
+            File... classDirs) throws IOException {
+        this.classDirs = Arrays.copyOf(classDirs, classDirs.length);
+        this.packageDepth = packageDepth;
+        this.shorten = shorten;
+        snapshot = new ClassFileSnapshot(classDirs);
+        classDependencies = new ClassDependencies(nameFilter, collapseInnerClasses, classDirs);
+        printer = new ComponentAnalyzer(nameFilter, shorten, false, packageDepth, false, classDirs);
+        cycles = findCycles();
+    }
+
+    /**
+     * @return human-readable description of the cycles currently present
+     * @throws IOException if printing the cycles fails
+     */
+    public String currentCycles() throws IOException {
+        if (cycles.isEmpty()) {
+            return "No package cycles.";
+        }
+        StringBuilder builder = new StringBuilder();
+        Abbreviations abbreviations = abbreviations(cycles.keySet());
+        for (DirectedGraph<String, WeightedEdge> component : cycles.values()) {
+            printer.printCycle("=== Cycle", component, abbreviations, builder);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Re-analyzes the class files that changed since the last call.
+     *
+     * @return human-readable description of new and resolved cycles; empty if nothing changed
+     * @throws IOException if parsing the classes fails
+     */
+    public String poll() throws IOException {
+        ClassFileSnapshot current = new ClassFileSnapshot(classDirs);
+        Collection<File> changed = current.changedSince(snapshot);
+        Collection<String> removed = current.removedSince(snapshot);
+        snapshot = current;
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return "";
+        }
+
+        classDependencies.update(changed, removed);
+        Map<SortedSet<String>, DirectedGraph<String, WeightedEdge>> previous = cycles;
+        cycles = findCycles();
+
+        StringBuilder builder = new StringBuilder();
+        Abbreviations abbreviations = abbreviations(Sets.union(previous.keySet(), cycles.keySet()));
+        for (SortedSet<String> packages : Sets.difference(previous.keySet(), cycles.keySet())) {
+            builder.append(String.format("=== Resolved cycle (%d packages)\n", packages.size()));
+            builder.append(Joiner.on(", ").join(shortened(packages, abbreviations)));
+            builder.append("\n");
+        }
+        for (SortedSet<String> packages : Sets.difference(cycles.keySet(), previous.keySet())) {
+            printer.printCycle("=== New cycle", cycles.get(packages), abbreviations, builder);
+        }
+        return builder.toString();
+    }
+
+    private Map<SortedSet<String>, DirectedGraph<String, WeightedEdge>> findCycles() {
+        Map<SortedSet<String>, DirectedGraph<String, WeightedEdge>> result = Maps.newHashMap();
+        for (DirectedGraph<String, WeightedEdge> component
+                : new ComponentAnalysis(classDependencies, packageDepth).getStrongComponents()) {
+            if (component.getVertexCount() > 1) {
+                result.put(Sets.newTreeSet(component.getVertices()), component);
+            }
+        }
+        return result;
+    }
+
+    private Abbreviations abbreviations(Set<SortedSet<String>> packageSets) {
+        return shorten ? Abbreviations.of(Iterables.concat(packageSets)) : Abbreviations.none();
+    }
+
+    private static Collection<String> shortened(Collection<String> packages, Abbreviations abbreviations) {
+        List<String> result = Lists.newArrayList();
+        for (String pkg : packages) {
+            result.add(GraphStringUtils.vertexToString(pkg, abbreviations));
+        }
+        return result;
+    }
+}
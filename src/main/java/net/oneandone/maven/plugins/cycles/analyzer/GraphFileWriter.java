@@ -0,0 +1,169 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.analyzer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Renders and writes the graph files of a run in parallel. A file whose content hash equals that of the
+ * file already on disk is not touched, so unchanged components keep their timestamps. Graph files of
+ * earlier runs that were not written again are deleted when the run is finished. The writer must be closed
+ * in any case, so that the rendering threads are stopped even if the run fails before it is finished.
+ *
+ * @author chschmitz
+ */
+final class GraphFileWriter implements Closeable {
+    static final String PREFIX = "graph-";
+
+    private static final HashFunction HASH = Hashing.md5();
+
+    private final File dir;
+    private final ExecutorService executor;
+    private final List<Future<Integer>> pending = Lists.newArrayList();
+    private final Set<String> fileNames = Collections.synchronizedSet(Sets.<String>newHashSet());
+
+    /**
+     * @param dir the target directory
+     * @param threads number of threads rendering and writing files
+     */
+    GraphFileWriter(File dir, int threads) {
+        this.dir = dir;
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * @param sortedPackages the packages of a component, in a stable order
+     * @return a file name prefix that depends on the packages only
+     */
+    static String fileName(Iterable<String> sortedPackages) {
+        StringBuilder builder = new StringBuilder();
+        for (String pkg : sortedPackages) {
+            builder.append(pkg).append('\n');
+        }
+        return PREFIX + HASH.hashString(builder, Charsets.UTF_8).toString().substring(0, 8);
+    }
+
+    /**
+     * Schedules files to be rendered and written.
+     * 
+     * @param files renders the contents by file name; called on a worker thread. Only files starting 
+     * with {@link #PREFIX} are deleted when they are not written again.
+     */
+    void write(final Callable<Map<String, String>> files) {
+        pending.add(executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                int written = 0;
+                for (Map.Entry<String, String> file : files.call().entrySet()) {
+                    fileNames.add(file.getKey());
+                    if (writeIfChanged(new File(dir, file.getKey()), file.getValue())) {
+                        written++;
+                    }
+                }
+                return written;
+            }
+        }));
+    }
+
+    /**
+     * Waits for all files to be written and optionally deletes stale graph files.
+     * 
+     * @param deleteStaleFiles iff true, graph files that were not written by this run are deleted; pass false
+     * if graph files are not being written at all, so the ones of earlier runs are left alone
+     * @return the number of files actually written
+     * @throws IOException if rendering or writing a file failed
+     */
+    int finish(boolean deleteStaleFiles) throws IOException {
+        int written = 0;
+        try {
+            for (Future<Integer> future : pending) {
+                written += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing graph files", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            close();
+        }
+        if (deleteStaleFiles) {
+            deleteStaleFiles();
+        }
+        return written;
+    }
+
+    /**
+     * Stops the rendering threads, cancelling files not written yet. Idempotent.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the names of the files written or left unchanged by this run
+     */
+    Set<String> getFileNames() {
+        return ImmutableSet.copyOf(fileNames);
+    }
+
+    private void deleteStaleFiles() throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(PREFIX) && (name.endsWith(".dot") || name.endsWith(".svg")) 
+                    && !fileNames.contains(name) && !file.delete()) {
+                throw new IOException("Could not delete stale graph file " + file);
+            }
+        }
+    }
+
+    private static boolean writeIfChanged(File file, String content) throws IOException {
+        byte[] bytes = content.getBytes(Charsets.UTF_8);
+        if (file.isFile() && file.length() == bytes.length 
+                && Files.hash(file, HASH).equals(HASH.hashBytes(bytes))) {
+            return false;
+        }
+        Files.write(bytes, file);
+        return true;
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Skips runs whose inputs did not change. The fingerprint of a run covers the paths, sizes and modification
+ * times of all input files plus the configuration; if it equals that of the previous run and all files written
+ * then are still there, the previous report is replayed instead of analyzing again.
+ *
+ * @author chschmitz
+ */
+final class UpToDateCheck {
+    static final String FINGERPRINT_FILE = "cycles-fingerprint.txt";
+    static final String REPORT_FILE = "cycles-report.txt";
+
+    private static final HashFunction HASH = Hashing.md5();
+    private static final Comparator<File> BY_NAME = new Comparator<File>() {
+        @Override
+        public int compare(File left, File right) {
+            return left.getName().compareTo(right.getName());
+        }
+    };
+
+    private final File targetDir;
+    private final String fingerprint;
+
+    /**
+     * @param targetDir the directory holding the report, the fingerprint and the graph files
+     * @param fingerprint the fingerprint of this run
+     */
+    UpToDateCheck(File targetDir, String fingerprint) {
+        this.targetDir = targetDir;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Walks the input directories in parallel, one task per subdirectory of each input.
+     * 
+     * @param inputs class directories or jars
+     * @param configuration everything else the report depends on
+     * @param threads number of threads walking the directories
+     * @return the fingerprint
+     * @throws IOException if a directory cannot be walked
+     */
+    static String fingerprint(File[] inputs, String configuration, int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Hasher hasher = HASH.newHasher().putString(configuration, Charsets.UTF_8);
+            for (File input : inputs) {
+                hasher.putString(input.getAbsolutePath(), Charsets.UTF_8);
+                if (!input.isDirectory()) {
+                    putFile(hasher, input);
+                    continue;
+                }
+                List<Future<HashCode>> subtrees = Lists.newArrayList();
+                for (final File file : sortedFiles(input)) {
+                    if (file.isDirectory()) {
+                        subtrees.add(executor.submit(new Callable<HashCode>() {
+                            @Override
+                            public HashCode call() {
+                                Hasher subtreeHasher = HASH.newHasher();
+                                putTree(subtreeHasher, file, file.getName() + "/");
+                                return subtreeHasher.hash();
+                            }
+                        }));
+                    } else {
+                        hasher.putString(file.getName(), Charsets.UTF_8);
+                        putFile(hasher, file);
+                    }
+                }
+                for (Future<HashCode> subtree : subtrees) {
+                    hasher.putBytes(subtree.get().asBytes());
+                }
+            }
+            return hasher.hash().toString();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while walking the class directories", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void putTree(Hasher hasher, File dir, String relativePath) {
+        for (File file : sortedFiles(dir)) {
+            String path = relativePath + file.getName();
+            if (file.isDirectory()) {
+                putTree(hasher, file, path + "/");
+            } else {
+                hasher.putString(path, Charsets.UTF_8);
+                putFile(hasher, file);
+            }
+        }
+    }
+
+    private static void putFile(Hasher hasher, File file) {
+        hasher.putLong(file.length()).putLong(file.lastModified());
+    }
+
+    private static File[] sortedFiles(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, BY_NAME);
+        return files;
+    }
+
+    /**
+     * @return the report of the previous run if it had the same fingerprint and its files are still there,
+     * else null
+     * @throws IOException if reading the previous report fails
+     */
+    String replay() throws IOException {
+        File fingerprintFile = new File(targetDir, FINGERPRINT_FILE);
+        File reportFile = new File(targetDir, REPORT_FILE);
+        if (!fingerprintFile.isFile() || !reportFile.isFile()) {
+            return null;
+        }
+        List<String> lines = Files.readLines(fingerprintFile, Charsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(fingerprint)) {
+            return null;
+        }
+        for (String fileName : lines.subList(1, lines.size())) {
+            if (!new File(targetDir, fileName).isFile()) {
+                return null;
+            }
+        }
+        return Files.toString(reportFile, Charsets.UTF_8);
+    }
+
+    /**
+     * Saves the report and the fingerprint; the fingerprint goes last, so that a partly recorded run 
+     * is not replayed.
+     * 
+     * @param report the report of this run
+     * @param fileNames the files written by this run
+     * @throws IOException if writing fails
+     */
+    void record(String report, Collection<String> fileNames) throws IOException {
+        File fingerprintFile = new File(targetDir, FINGERPRINT_FILE);
+        if (fingerprintFile.exists() && !fingerprintFile.delete()) {
+            throw new IOException("Could not delete " + fingerprintFile);
+        }
+        Files.write(report, new File(targetDir, REPORT_FILE), Charsets.UTF_8);
+        StringBuilder builder = new StringBuilder(fingerprint).append('\n');
+        Joiner.on('\n').appendTo(builder, fileNames);
+        Files.write(builder, fingerprintFile, Charsets.UTF_8);
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A JVM-wide cache of the parsed class files of archives, so that modules built in parallel 
+ * (<code>mvn -T</code>) that analyze the same jars parse each of them only once. Entries are keyed 
+ * by path, size and modification time of the archive plus the name filter used for parsing; 
+ * the least recently used ones are evicted once the cached classes hold {@value #MAX_REFERENCES} 
+ * references in total. Off-heap analyses stream their archives and bypass the cache.
+ *
+ * @author chschmitz
+ */
+final class ArchiveCache {
+    private static final int MAX_REFERENCES = 2000000;
+
+    private static final Cache<Key, List<ClassFile>> CACHE = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_REFERENCES)
+            .weigher(new Weigher<Key, List<ClassFile>>() {
+                @Override
+                public int weigh(Key key, List<ClassFile> classFiles) {
+                    int weight = 1;
+                    for (ClassFile classFile : classFiles) {
+                        weight += 1 + classFile.getReferences().size();
+                    }
+                    return weight;
+                }
+            })
+            .build();
+
+    /**
+     * Returns the cached class files of an archive, or parses them. Concurrent requests for the same
+     * archive wait for a single parse.
+     * 
+     * @param archive a jar file
+     * @param nameFilter the name filter the class files are parsed with
+     * @param parser parses the archive if it isn't cached; must return an immutable list
+     * @return the class files
+     * @throws IOException iff parsing fails
+     */
+    static List<ClassFile> get(File archive, Predicate<String> nameFilter, Callable<List<ClassFile>> parser) 
+            throws IOException {
+        try {
+            return CACHE.get(new Key(archive, nameFilter), parser);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    @VisibleForTesting
+    static long size() {
+        return CACHE.size();
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        CACHE.invalidateAll();
+    }
+
+    private static final class Key {
+        private final String path;
+        private final long length;
+        private final long lastModified;
+        private final Predicate<String> nameFilter;
+
+        Key(File archive, Predicate<String> nameFilter) throws IOException {
+            this.path = archive.getCanonicalPath();
+            this.length = archive.length();
+            this.lastModified = archive.lastModified();
+            this.nameFilter = nameFilter;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(path, length, lastModified, nameFilter);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return path.equals(other.path) && length == other.length && lastModified == other.lastModified
+                    && nameFilter.equals(other.nameFilter);
+        }
+    }
+
+    private ArchiveCache() {
+        // Don't instantiate
+    }
+}
@@ -15,76 +15,569 @@
  */
 package net.oneandone.maven.plugins.cycles.classes;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
-
-import classycle.Analyser;
-import classycle.ClassAttributes;
-import classycle.graph.AtomicVertex;
-import classycle.graph.Vertex;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
 
 /**
  * Represents dependencies on a per-class level.
- * 
+ *
+ * The name filter is applied as early as possible: class files whose names (as derived from their
+ * paths) are rejected are not read at all, and rejected references are dropped while parsing.
+ *
+ * Jar files may be Spring Boot fat jars or WARs: classes below <code>BOOT-INF/classes</code> and 
+ * <code>WEB-INF/classes</code> are found, and nested jars are streamed without extracting them.
+ * Parsed jars are shared through a JVM-wide cache, so parallel module builds don't parse the same jar
+ * twice.
+ *
+ * Optionally, nested, anonymous and synthetic classes (everything with a '$' in its simple name after
+ * the first character) are folded into their top-level class, since they cannot cause a package
+ * dependency the top-level class doesn't have.
+ *
+ * For very large inputs, the dependencies can be kept off the heap: only the class names are held in
+ * memory, while the dependencies go to a memory-mapped file as pairs of class numbers and are
+ * accessed through {@link #getClassGraph()}.
+ *
  * @author chschmitz
  */
-public final class ClassDependencies {
+public final class ClassDependencies implements Closeable {
+    static final String CLASS_SUFFIX = ".class";
+    private static final String JAR_SUFFIX = ".jar";
+    static final String[] ARCHIVE_CLASSES_DIRS = {"BOOT-INF/classes/", "WEB-INF/classes/"};
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    // off-heap dependencies are stored as source number, target number and kinds in one long
+    private static final int KIND_BITS = DependencyKind.values().length;
+    private static final int MAX_OFF_HEAP_CLASSES = 1 << (Integer.SIZE - KIND_BITS);
+
+    private Predicate<String> nameFilter;
+    private boolean collapseInnerClasses;
     private Map<String, Collection<ClassDependency>> classDependencies;
-    
+    private Set<String> abstractClasses;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private MappedEdgeStore edgeStore;
+    private Map<String, Integer> classIndex;
+    private List<String> classNames;
+    private BitSet parsedClasses;
+    private Map<File, Set<String>> classNamesByInput = Maps.newHashMap();
+    // where the class files of folded classes were found, so an update can read the remaining ones again
+    private Map<String, File> classDirs = Maps.newHashMap();
+    private Set<String> inputClassNames;
+    private long inputClasses;
+    private long inputBytes;
+
     /**
      * @param nameFilter the name filter (on FQCNs)
-     * @param classDirsOrJars the class directories or jar files
+     * @param classDirsOrJars the class directories or jar files (including fat jars and WARs)
      * @throws IOException iff parsing the class files fails
      */
     public ClassDependencies(Predicate<String> nameFilter, File... classDirsOrJars) throws IOException {
-        AtomicVertex[] classGraph = getClassGraph(classDirsOrJars);
-        classDependencies = Maps.newHashMap();
-        for (AtomicVertex clazz : classGraph) {
-            if (nameFilter.apply(getClassName(clazz))) {
-                classDependencies.put(getClassName(clazz), Sets.<ClassDependency>newHashSet());
-                collectDependencies(clazz, nameFilter);
+        this(nameFilter, false, classDirsOrJars);
+    }
+
+    /**
+     * @param nameFilter the name filter (on FQCNs)
+     * @param collapseInnerClasses iff true, nested classes are folded into their top-level classes
+     * @param classDirsOrJars the class directories or jar files (including fat jars and WARs)
+     * @throws IOException iff parsing the class files fails
+     */
+    public ClassDependencies(Predicate<String> nameFilter, boolean collapseInnerClasses, File... classDirsOrJars)
+            throws IOException {
+        this(nameFilter, collapseInnerClasses, classDirsOrJars, null);
+    }
+
+    /**
+     * @param nameFilter the name filter (on FQCNs)
+     * @param collapseInnerClasses iff true, nested classes are folded into their top-level classes
+     * @param classDirsOrJars the class directories or jar files (including fat jars and WARs)
+     * @param edgeFile iff not null, the dependencies are stored off the heap in this memory-mapped file, 
+     * and are only available through {@link #getClassGraph()}
+     * @throws IOException iff parsing the class files fails
+     */
+    public ClassDependencies(Predicate<String> nameFilter, boolean collapseInnerClasses, File[] classDirsOrJars,
+            File edgeFile) throws IOException {
+        this.nameFilter = nameFilter;
+        this.collapseInnerClasses = collapseInnerClasses;
+        abstractClasses = Sets.newHashSet();
+        if (edgeFile == null) {
+            classDependencies = Maps.newHashMap();
+        } else {
+            edgeStore = new MappedEdgeStore(edgeFile);
+            classIndex = Maps.newHashMap();
+            classNames = Lists.newArrayList();
+            parsedClasses = new BitSet();
+        }
+        for (File classDirOrJar : classDirsOrJars) {
+            Preconditions.checkArgument(classDirOrJar.exists(),
+                    "Class directory %s does not exist, please run 'mvn compile'.",
+                    classDirOrJar.getAbsolutePath());
+            inputClassNames = Sets.newHashSet();
+            classNamesByInput.put(classDirOrJar, inputClassNames);
+            Phase phase = Events.parse(classDirOrJar);
+            inputClasses = 0;
+            if (classDirOrJar.isDirectory()) {
+                inputBytes = 0;
+                addDirectory(classDirOrJar, packagePrefixOf(classDirOrJar));
+            } else {
+                inputBytes = classDirOrJar.length();
+                addJar(classDirOrJar);
+            }
+            phase.end(inputClasses, inputBytes);
+        }
+        inputClassNames = null;
+        if (edgeStore != null) {
+            edgeStore.sortAndMerge(KIND_BITS);
+        }
+    }
+
+    /**
+     * Re-parses only the given class files and replaces their dependencies; everything else
+     * is kept as is. When nested classes are folded, all remaining class files of the same top-level
+     * class are read again, whether one of them was changed or removed.
+     *
+     * @param changedClassFiles class files that were added or modified
+     * @param removedClassNames FQCNs of classes whose class files were deleted
+     * @throws IOException iff parsing the class files fails
+     * @throws IllegalStateException iff the dependencies are stored off the heap
+     */
+    public void update(Collection<File> changedClassFiles, Collection<String> removedClassNames) throws IOException {
+        Preconditions.checkState(edgeStore == null, "Off-heap dependencies cannot be updated.");
+        Set<String> reread = Sets.newHashSet();
+        for (String className : removedClassNames) {
+            if (!collapseInnerClasses) {
+                classDependencies.remove(className);
+                abstractClasses.remove(className);
+            } else if (reread.add(topLevelClassName(className))) {
+                String topLevel = topLevelClassName(className);
+                File classDir = classDirs.get(topLevel);
+                if (classDir == null) {
+                    classDependencies.remove(topLevel);
+                    abstractClasses.remove(topLevel);
+                } else {
+                    String fileName = topLevel.substring(topLevel.lastIndexOf('.') + 1) + CLASS_SUFFIX;
+                    rereadNestMembers(topLevel, new File(classDir, fileName));
+                }
+            }
+        }
+        for (File classFile : changedClassFiles) {
+            ClassFile parsed = ClassFileReader.read(Files.toByteArray(classFile), nameFilter);
+            if (!collapseInnerClasses) {
+                addClass(parsed);
+            } else if (reread.add(topLevelClassName(parsed.getName()))) {
+                rereadNestMembers(topLevelClassName(parsed.getName()), classFile);
+            }
+        }
+    }
+
+    /**
+     * @param member a class file of the nest, which need not exist any more
+     */
+    private void rereadNestMembers(String topLevel, File member) throws IOException {
+        classDependencies.remove(topLevel);
+        abstractClasses.remove(topLevel);
+        classDirs.remove(topLevel);
+        for (File file : nestMembers(member)) {
+            addClass(file);
+        }
+    }
+
+    static File[] nestMembers(File classFile) {
+        final String topLevel = topLevelClassName(stripSuffix(classFile.getName()));
+        File[] members = classFile.getParentFile().listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                String name = file.getName();
+                return name.equals(topLevel + CLASS_SUFFIX)
+                        || (name.startsWith(topLevel + "$") && name.endsWith(CLASS_SUFFIX));
+            }
+        });
+        return members == null ? new File[0] : members;
+    }
+
+    /**
+     * The class directory need not be the root of the package hierarchy. Reads the first class file
+     * found to find out which package the directory corresponds to.
+     */
+    static String packagePrefixOf(File dir) throws IOException {
+        String prefix = packagePrefixOf(dir, "");
+        return prefix == null ? "" : prefix;
+    }
+
+    private static String packagePrefixOf(File dir, String relativePrefix) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return null;
+        }
+        for (File file : files) {
+            if (file.isFile() && file.getName().endsWith(CLASS_SUFFIX)) {
+                String relativeName = relativePrefix + stripSuffix(file.getName());
+                String name = ClassFileReader.read(Files.toByteArray(file), Predicates.<String>alwaysFalse())
+                        .getName();
+                return name.endsWith(relativeName) ? name.substring(0, name.length() - relativeName.length()) : "";
+            }
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                String prefix = packagePrefixOf(file, relativePrefix + file.getName() + ".");
+                if (prefix != null) {
+                    return prefix;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void addDirectory(File dir, String packagePrefix) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                addDirectory(file, packagePrefix + name + ".");
+            } else if (name.endsWith(CLASS_SUFFIX) && accept(packagePrefix + stripSuffix(name))) {
+                addClass(file);
+            }
+        }
+    }
+
+    private void addJar(final File jar) throws IOException {
+        if (edgeStore != null) {
+            // Off the heap, a cached copy of the archive would defeat the purpose; stream it instead.
+            readJar(jar, null);
+            return;
+        }
+        List<ClassFile> classFiles = ArchiveCache.get(jar, nameFilter, new Callable<List<ClassFile>>() {
+            @Override
+            public List<ClassFile> call() throws IOException {
+                List<ClassFile> classFiles = Lists.newArrayList();
+                readJar(jar, classFiles);
+                return ImmutableList.copyOf(classFiles);
+            }
+        });
+        for (ClassFile classFile : classFiles) {
+            addClass(classFile);
+        }
+    }
+
+    /**
+     * Parses the classes of an archive into the given list, or straight into the dependencies if the list is 
+     * <code>null</code>.
+     */
+    private void readJar(File jar, List<ClassFile> classFiles) throws IOException {
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && isRelevant(entry.getName())) {
+                    InputStream in = zipFile.getInputStream(entry);
+                    try {
+                        readEntry(entry.getName(), in, classFiles);
+                    } finally {
+                        Closeables.closeQuietly(in);
+                    }
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    /**
+     * Streams the entries of an archive nested in another one. The stream must not be closed,
+     * since that would close the enclosing archive's stream.
+     */
+    private void readNestedJar(InputStream in, List<ClassFile> classFiles) throws IOException {
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (!entry.isDirectory() && isRelevant(entry.getName())) {
+                readEntry(entry.getName(), zip, classFiles);
+            }
+        }
+    }
+
+    private static boolean isRelevant(String entryName) {
+        return entryName.endsWith(JAR_SUFFIX) 
+                || (entryName.endsWith(CLASS_SUFFIX) && !entryName.startsWith("META-INF/"));
+    }
+
+    private void readEntry(String entryName, InputStream in, List<ClassFile> classFiles) throws IOException {
+        if (entryName.endsWith(JAR_SUFFIX)) {
+            readNestedJar(in, classFiles);
+            return;
+        }
+        String path = entryName;
+        for (String classesDir : ARCHIVE_CLASSES_DIRS) {
+            if (path.startsWith(classesDir)) {
+                path = path.substring(classesDir.length());
+            }
+        }
+        if (accept(stripSuffix(path).replace('/', '.'))) {
+            int length = readFully(in);
+            ClassFile classFile = ClassFileReader.read(buffer, length, nameFilter);
+            if (classFiles == null) {
+                addClass(classFile);
+            } else {
+                classFiles.add(classFile);
+            }
+        }
+    }
+
+    /**
+     * Reads into the buffer shared by all archive entries, growing it as needed.
+     *
+     * @return the number of bytes read
+     */
+    private int readFully(InputStream in) throws IOException {
+        int length = 0;
+        int read;
+        while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, 2 * buffer.length);
             }
         }
+        return length;
+    }
+
+    private boolean accept(String className) {
+        return !"module-info".equals(className) && nameFilter.apply(className);
+    }
+
+    private void addClass(File file) throws IOException {
+        byte[] bytes = Files.toByteArray(file);
+        inputBytes += bytes.length;
+        ClassFile classFile = ClassFileReader.read(bytes, nameFilter);
+        if (collapseInnerClasses && edgeStore == null) {
+            classDirs.put(topLevelClassName(classFile.getName()), file.getParentFile());
+        }
+        addClass(classFile);
     }
 
-    private void collectDependencies(AtomicVertex clazz, Predicate<String> nameFilter) {
-        String srcName = getClassName(clazz);
-        for (int i = 0; i < clazz.getNumberOfOutgoingArcs(); i++) {
-            Vertex target = clazz.getHeadVertex(i);
-            String destName = getClassName(target);
-            if (nameFilter.apply(destName) && !srcName.equals(destName)) {
-                    classDependencies.get(srcName).add(new ClassDependency(srcName, destName));
+    private void addClass(ClassFile classFile) throws IOException {
+        if (!nameFilter.apply(classFile.getName())) {
+            return;
+        }
+        inputClasses++;
+        String srcName = collapseInnerClasses ? topLevelClassName(classFile.getName()) : classFile.getName();
+        if (inputClassNames != null) {
+            inputClassNames.add(srcName);
+        }
+        if (srcName.equals(classFile.getName())) {
+            if (classFile.isAbstract()) {
+                abstractClasses.add(srcName);
+            } else {
+                abstractClasses.remove(srcName);
+            }
+        }
+        if (edgeStore != null) {
+            int src = classNumber(srcName);
+            parsedClasses.set(src);
+            for (String reference : classFile.getReferences()) {
+                String destName = collapseInnerClasses ? topLevelClassName(reference) : reference;
+                if (!destName.equals(srcName)) {
+                    edgeStore.add((long) src << Integer.SIZE | (long) classNumber(destName) << KIND_BITS 
+                            | classFile.getKinds(reference));
+                }
+            }
+            return;
+        }
+        if (!collapseInnerClasses) {
+            Set<ClassDependency> dependencies = Sets.newHashSet();
+            for (String destName : classFile.getReferences()) {
+                dependencies.add(new ClassDependency(classFile.getName(), destName, classFile.getKinds(destName)));
+            }
+            classDependencies.put(classFile.getName(), dependencies);
+            return;
+        }
+
+        // merge the kinds of references to the same top-level class
+        Map<String, Integer> kinds = Maps.newHashMap();
+        Collection<ClassDependency> dependencies = classDependencies.get(srcName);
+        if (dependencies != null) {
+            for (ClassDependency dependency : dependencies) {
+                kinds.put(dependency.getTo(), dependency.getKinds());
+            }
+        }
+        for (String reference : classFile.getReferences()) {
+            String destName = topLevelClassName(reference);
+            if (!destName.equals(srcName)) {
+                Integer known = kinds.get(destName);
+                kinds.put(destName, known == null ? classFile.getKinds(reference) 
+                        : known | classFile.getKinds(reference));
             }
         }
+        dependencies = Sets.newHashSet();
+        for (Map.Entry<String, Integer> dependency : kinds.entrySet()) {
+            dependencies.add(new ClassDependency(srcName, dependency.getKey(), dependency.getValue()));
+        }
+        classDependencies.put(srcName, dependencies);
     }
 
+    private int classNumber(String className) {
+        Integer number = classIndex.get(className);
+        if (number == null) {
+            Preconditions.checkState(classNames.size() < MAX_OFF_HEAP_CLASSES, "More than %s classes.", 
+                    MAX_OFF_HEAP_CLASSES);
+            number = classNames.size();
+            classIndex.put(className, number);
+            classNames.add(className);
+        }
+        return number;
+    }
+
+    /**
+     * @return the dependencies by depending class
+     * @throws IllegalStateException iff the dependencies are stored off the heap
+     */
     public Map<String, Collection<ClassDependency>> getClassDependencies() {
+        Preconditions.checkState(edgeStore == null, "Dependencies are stored off the heap, use getClassGraph().");
         return classDependencies;
     }
-    
-    private static AtomicVertex[] getClassGraph(File... classDirs) throws IOException {
-        String[] classDirNames = new String[classDirs.length];
-        int i = 0;
-        for (File classDir : classDirs) {
-            Preconditions.checkArgument(classDir.exists(),
-                    "Class directory %s does not exist, please run 'mvn compile'.",
-                    classDir.getAbsolutePath());
-            classDirNames[i++] = classDir.getAbsolutePath();
+
+    /**
+     * @return true iff the dependencies are stored off the heap
+     */
+    public boolean isOffHeap() {
+        return edgeStore != null;
+    }
+
+    /**
+     * @return the dependencies in primitive form
+     * @throws IllegalStateException iff the dependencies are stored on the heap
+     */
+    public ClassGraph getClassGraph() {
+        Preconditions.checkState(edgeStore != null, "Dependencies are stored on the heap, use getClassDependencies().");
+        return new ClassGraph() {
+            @Override
+            public int getClassCount() {
+                return classNames.size();
+            }
+
+            @Override
+            public String getClassName(int cls) {
+                return classNames.get(cls);
+            }
+
+            @Override
+            public int getDependencyCount() {
+                return edgeStore.size();
+            }
+
+            @Override
+            public int getSource(int dependency) {
+                return (int) (edgeStore.get(dependency) >>> Integer.SIZE);
+            }
+
+            @Override
+            public int getTarget(int dependency) {
+                return (int) edgeStore.get(dependency) >>> KIND_BITS;
+            }
+
+            @Override
+            public int getKinds(int dependency) {
+                return (int) edgeStore.get(dependency) & DependencyKind.ALL;
+            }
+        };
+    }
+
+    /**
+     * @return the FQCNs of all parsed classes (i.e. not just referenced ones)
+     */
+    public Collection<String> getClassNames() {
+        if (edgeStore == null) {
+            return classDependencies.keySet();
+        }
+        List<String> names = Lists.newArrayListWithCapacity(parsedClasses.cardinality());
+        for (int cls = parsedClasses.nextSetBit(0); cls >= 0; cls = parsedClasses.nextSetBit(cls + 1)) {
+            names.add(classNames.get(cls));
         }
-        Analyser analyser = new Analyser(classDirNames);
-        analyser.createClassGraph();
-        return analyser.getClassGraph();
+        return names;
+    }
+
+    /**
+     * @param classDirOrJar one of the class directories or jar files this instance was created with
+     * @return the FQCNs of the classes parsed from it, e.g. to tell test classes from main classes; classes 
+     * added by {@link #update(Collection, Collection)} are not included
+     */
+    public Set<String> getClassNames(File classDirOrJar) {
+        Set<String> names = classNamesByInput.get(classDirOrJar);
+        Preconditions.checkArgument(names != null, "%s was not parsed.", classDirOrJar);
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * @return the FQCNs of all classes, whether parsed or only referenced
+     */
+    public Collection<String> getAllClassNames() {
+        if (edgeStore != null) {
+            return classNames;
+        }
+        Set<String> names = Sets.newHashSet(classDependencies.keySet());
+        for (Collection<ClassDependency> dependencies : classDependencies.values()) {
+            for (ClassDependency dependency : dependencies) {
+                names.add(dependency.getTo());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Releases the file of off-heap dependencies and its mappings; they cannot be read afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        if (edgeStore != null) {
+            edgeStore.close();
+        }
+    }
+
+    /**
+     * @param className the FQCN of a parsed class
+     * @return true iff it is an interface or an abstract class
+     */
+    public boolean isAbstract(String className) {
+        return abstractClasses.contains(className);
+    }
+
+    /**
+     * @param className a FQCN
+     * @return the FQCN of the top-level class enclosing it, i.e. everything up to the first '$' of
+     * the simple name (unless it starts with a '$')
+     */
+    static String topLevelClassName(String className) {
+        int simpleNameStart = className.lastIndexOf('.') + 1;
+        int dollar = className.indexOf('$', simpleNameStart + 1);
+        return dollar < 0 ? className : className.substring(0, dollar);
     }
 
-    private static String getClassName(Vertex classVertex) {
-        ClassAttributes classAttributes = (ClassAttributes) classVertex.getAttributes();
-        return (classAttributes).getName();
+    private static String stripSuffix(String fileName) {
+        return fileName.substring(0, fileName.length() - CLASS_SUFFIX.length());
     }
 }
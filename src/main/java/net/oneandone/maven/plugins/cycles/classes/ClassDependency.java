@@ -25,14 +25,25 @@ import com.google.common.base.Objects;
 public final class ClassDependency {
     private String from;
     private String to;
+    private int kinds;
 
     /**
      * @param from the depending class
      * @param to the class that <code>from</code> depends on
      */
     public ClassDependency(String from, String to) {
+        this(from, to, DependencyKind.ALL);
+    }
+
+    /**
+     * @param from the depending class
+     * @param to the class that <code>from</code> depends on
+     * @param kinds the {@link DependencyKind}s of the references, as a bitmask
+     */
+    public ClassDependency(String from, String to, int kinds) {
         this.from = from;
         this.to = to;
+        this.kinds = kinds;
     }
 
     public String getFrom() {
@@ -43,6 +54,13 @@ public final class ClassDependency {
         return to;
     }
 
+    /**
+     * @return the {@link DependencyKind}s of the references, as a bitmask; not part of the identity
+     */
+    public int getKinds() {
+        return kinds;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hashCode(from, to);
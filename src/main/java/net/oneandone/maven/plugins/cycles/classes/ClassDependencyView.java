@@ -0,0 +1,86 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * The class dependencies between two packages, read from a {@link ClassGraph} on each iteration
+ * instead of being held in memory. Only the size is known up front.
+ *
+ * @author chschmitz
+ */
+final class ClassDependencyView extends AbstractSet<ClassDependency> {
+    private final ClassGraph classGraph;
+    private final PackageIndex index;
+    private final int fromPackage;
+    private final int toPackage;
+    private final int size;
+
+    /**
+     * @param classGraph the class dependencies
+     * @param index locates the dependencies of each package
+     * @param fromPackage the depending package
+     * @param toPackage the package depended on
+     * @param size the number of class dependencies between the two packages
+     */
+    ClassDependencyView(ClassGraph classGraph, PackageIndex index, int fromPackage, int toPackage, int size) {
+        this.classGraph = classGraph;
+        this.index = index;
+        this.fromPackage = fromPackage;
+        this.toPackage = toPackage;
+        this.size = size;
+    }
+
+    /**
+     * Visits only the dependencies of the classes in the depending package.
+     */
+    @Override
+    public Iterator<ClassDependency> iterator() {
+        return new AbstractIterator<ClassDependency>() {
+            private int cls = index.getClassStart(fromPackage);
+            private int dependency;
+            private int dependencyEnd;
+
+            @Override
+            protected ClassDependency computeNext() {
+                while (true) {
+                    for (; dependency < dependencyEnd; dependency++) {
+                        int target = classGraph.getTarget(dependency);
+                        if (index.getPackage(target) == toPackage) {
+                            return new ClassDependency(classGraph.getClassName(classGraph.getSource(dependency)), 
+                                    classGraph.getClassName(target), classGraph.getKinds(dependency++));
+                        }
+                    }
+                    if (cls == index.getClassEnd(fromPackage)) {
+                        return endOfData();
+                    }
+                    int source = index.getClass(cls++);
+                    dependency = index.getDependencyStart(source);
+                    dependencyEnd = index.getDependencyEnd(source);
+                }
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
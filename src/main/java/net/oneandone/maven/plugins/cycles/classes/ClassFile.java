@@ -0,0 +1,67 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What we need to know about a single parsed class file.
+ *
+ * @author chschmitz
+ */
+final class ClassFile {
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    private String name;
+    private int accessFlags;
+    private Map<String, Integer> references;
+
+    /**
+     * @param name the FQCN
+     * @param accessFlags the access flags of the class
+     * @param references the {@link DependencyKind}s by FQCN of the classes referenced by this class
+     */
+    ClassFile(String name, int accessFlags, Map<String, Integer> references) {
+        this.name = name;
+        this.accessFlags = accessFlags;
+        this.references = references;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return true iff this is an interface or an abstract class
+     */
+    boolean isAbstract() {
+        return (accessFlags & (ACC_INTERFACE | ACC_ABSTRACT)) != 0;
+    }
+
+    Set<String> getReferences() {
+        return references.keySet();
+    }
+
+    /**
+     * @param reference a referenced class
+     * @return the bitmask of {@link DependencyKind}s of the references to it
+     */
+    int getKinds(String reference) {
+        return references.get(reference);
+    }
+}
@@ -0,0 +1,510 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Reads a single class file (JVMS chapter 4) and extracts the classes it references from the
+ * constant pool, the field and method descriptors, generic signatures and annotations. Each reference 
+ * is classified by {@link DependencyKind} in the same pass, depending on where it was found.
+ *
+ * @author chschmitz
+ */
+final class ClassFileReader {
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int GETSTATIC = 0xb2;
+    private static final int INVOKEDYNAMIC = 0xba;
+    private static final int NEW = 0xbb;
+    private static final int ANEWARRAY = 0xbd;
+    private static final int CHECKCAST = 0xc0;
+    private static final int INSTANCEOF = 0xc1;
+    private static final int WIDE = 0xc4;
+    private static final int MULTIANEWARRAY = 0xc5;
+    private static final int IINC = 0x84;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int LOOKUPSWITCH = 0xab;
+    // operand bytes of the fixed-length instructions
+    private static final int[] OPERAND_BYTES = new int[256];
+
+    static {
+        setOperandBytes(1, 0x10, 0x12, 0x15, 0x16, 0x17, 0x18, 0x19, 0x36, 0x37, 0x38, 0x39, 0x3a, 0xa9, 0xbc);
+        setOperandBytes(2, 0x11, 0x13, 0x14, 0x84, 0xb2, 0xb3, 0xb4, 0xb5, 0xb6, 0xb7, 0xb8, 0xbb, 0xbd, 0xc0, 0xc1, 
+                0xc6, 0xc7);
+        for (int opcode = 0x99; opcode <= 0xa8; opcode++) {
+            OPERAND_BYTES[opcode] = 2; // conditional jumps, goto, jsr
+        }
+        setOperandBytes(3, 0xc5);
+        setOperandBytes(4, 0xb9, 0xba, 0xc8, 0xc9);
+    }
+
+    private DataInputStream in;
+    private Predicate<String> referenceFilter;
+    private Map<String, Integer> references = Maps.newHashMap();
+    private List<String> scratch = Lists.newArrayList();
+
+    private int[] tags;
+    private String[] utf8;
+    private int[] firstIndex;
+    private int[] secondIndex;
+    // class constants whose kind is known from where they are used
+    private boolean[] classified;
+
+    // only set when locating references in the source
+    private SourceLines sourceLines;
+    private List<Integer> referencePcs = Lists.newArrayList();
+    private List<String> referenceNames = Lists.newArrayList();
+    private List<Integer> lineStartPcs = Lists.newArrayList();
+    private List<Integer> lineNumbers = Lists.newArrayList();
+
+    private ClassFileReader(byte[] classFile, int length, Predicate<String> referenceFilter) {
+        this.in = new DataInputStream(new ByteArrayInputStream(classFile, 0, length));
+        this.referenceFilter = referenceFilter;
+    }
+
+    /**
+     * @param classFile the contents of a class file
+     * @param referenceFilter only referenced classes accepted by this filter are recorded
+     * @return the parsed class
+     * @throws IOException if the class file is malformed
+     */
+    static ClassFile read(byte[] classFile, Predicate<String> referenceFilter) throws IOException {
+        return read(classFile, classFile.length, referenceFilter);
+    }
+
+    /**
+     * @param buffer a buffer starting with the contents of a class file
+     * @param length the length of the class file
+     * @param referenceFilter only referenced classes accepted by this filter are recorded
+     * @return the parsed class
+     * @throws IOException if the class file is malformed
+     */
+    static ClassFile read(byte[] buffer, int length, Predicate<String> referenceFilter) throws IOException {
+        try {
+            return new ClassFileReader(buffer, length, referenceFilter).read();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Malformed class file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a class file again to find out where it references other classes: the source file, and for
+     * references from method bodies the source lines, if the class was compiled with line numbers.
+     * 
+     * @param classFile the contents of a class file
+     * @param referenceFilter only referenced classes accepted by this filter are located
+     * @return the source lines
+     * @throws IOException if the class file is malformed
+     */
+    static SourceLines readSourceLines(byte[] classFile, Predicate<String> referenceFilter) throws IOException {
+        ClassFileReader reader = new ClassFileReader(classFile, classFile.length, referenceFilter);
+        try {
+            reader.sourceLines = new SourceLines();
+            reader.read();
+            return reader.sourceLines;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Malformed class file: " + e.getMessage());
+        }
+    }
+
+    private static void setOperandBytes(int count, int... opcodes) {
+        for (int opcode : opcodes) {
+            OPERAND_BYTES[opcode] = count;
+        }
+    }
+
+    private ClassFile read() throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file.");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+        readConstantPool();
+
+        int accessFlags = in.readUnsignedShort();
+        int thisClass = in.readUnsignedShort();
+        String name = className(thisClass);
+        classified[thisClass] = true;
+        collectClass(in.readUnsignedShort(), DependencyKind.INHERITANCE);
+        int interfaces = in.readUnsignedShort();
+        for (int i = 0; i < interfaces; i++) {
+            collectClass(in.readUnsignedShort(), DependencyKind.INHERITANCE);
+        }
+        readMembers(DependencyKind.FIELD);
+        readMembers(DependencyKind.SIGNATURE);
+        readAttributes(DependencyKind.INHERITANCE);
+
+        collectConstantPoolReferences();
+        references.remove(name);
+        return new ClassFile(name, accessFlags, references);
+    }
+
+    private void readConstantPool() throws IOException {
+        int count = in.readUnsignedShort();
+        tags = new int[count];
+        utf8 = new String[count];
+        firstIndex = new int[count];
+        secondIndex = new int[count];
+        classified = new boolean[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            tags[i] = tag;
+            switch (tag) {
+            case CONSTANT_UTF8:
+                utf8[i] = in.readUTF();
+                break;
+            case CONSTANT_CLASS:
+            case CONSTANT_STRING:
+            case CONSTANT_METHOD_TYPE:
+            case CONSTANT_MODULE:
+            case CONSTANT_PACKAGE:
+                firstIndex[i] = in.readUnsignedShort();
+                break;
+            case CONSTANT_FIELDREF:
+            case CONSTANT_METHODREF:
+            case CONSTANT_INTERFACE_METHODREF:
+            case CONSTANT_NAME_AND_TYPE:
+            case CONSTANT_DYNAMIC:
+            case CONSTANT_INVOKE_DYNAMIC:
+                firstIndex[i] = in.readUnsignedShort();
+                secondIndex[i] = in.readUnsignedShort();
+                break;
+            case CONSTANT_INTEGER:
+            case CONSTANT_FLOAT:
+                in.skipBytes(4);
+                break;
+            case CONSTANT_LONG:
+            case CONSTANT_DOUBLE:
+                in.skipBytes(8);
+                i++;
+                break;
+            case CONSTANT_METHOD_HANDLE:
+                in.skipBytes(3);
+                break;
+            default:
+                throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+    }
+
+    /**
+     * Member references and method types can only come from method bodies. Class constants that were 
+     * not classified otherwise are class literals, casts and the like.
+     */
+    private void collectConstantPoolReferences() {
+        for (int i = 1; i < tags.length; i++) {
+            switch (tags[i]) {
+            case CONSTANT_FIELDREF:
+            case CONSTANT_METHODREF:
+            case CONSTANT_INTERFACE_METHODREF:
+                collectClass(firstIndex[i], DependencyKind.BODY);
+                break;
+            case CONSTANT_NAME_AND_TYPE:
+                collectSignature(utf8[secondIndex[i]], DependencyKind.BODY);
+                break;
+            case CONSTANT_METHOD_TYPE:
+                collectSignature(utf8[firstIndex[i]], DependencyKind.BODY);
+                break;
+            default:
+                break;
+            }
+        }
+        for (int i = 1; i < tags.length; i++) {
+            if (tags[i] == CONSTANT_CLASS && !classified[i]) {
+                collectInternalName(utf8[firstIndex[i]], DependencyKind.CONSTANT);
+            }
+        }
+    }
+
+    private void collectClass(int classIndex, DependencyKind kind) {
+        if (classIndex != 0) {
+            classified[classIndex] = true;
+            collectInternalName(utf8[firstIndex[classIndex]], kind);
+        }
+    }
+
+    private void collectSignature(String signature, DependencyKind kind) {
+        scratch.clear();
+        TypeSignatures.collectClassNames(signature, scratch);
+        addReferences(kind);
+    }
+
+    private void collectInternalName(String internalName, DependencyKind kind) {
+        scratch.clear();
+        TypeSignatures.collectInternalName(internalName, scratch);
+        addReferences(kind);
+    }
+
+    private void addReferences(DependencyKind kind) {
+        for (String className : scratch) {
+            if (referenceFilter.apply(className)) {
+                Integer kinds = references.get(className);
+                references.put(className, kinds == null ? kind.bit() : kinds | kind.bit());
+            }
+        }
+    }
+
+    private String className(int classIndex) {
+        return utf8[firstIndex[classIndex]].replace('/', '.');
+    }
+
+    private void readMembers(DependencyKind kind) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            in.readUnsignedShort(); // access flags
+            in.readUnsignedShort(); // name
+            collectSignature(utf8[in.readUnsignedShort()], kind);
+            readAttributes(kind);
+        }
+    }
+
+    /**
+     * @param kind the kind of the references in signatures of the enclosing class, field or method
+     */
+    private void readAttributes(DependencyKind kind) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            String name = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if ("Signature".equals(name)) {
+                collectSignature(utf8[in.readUnsignedShort()], kind);
+            } else if ("Exceptions".equals(name)) {
+                int exceptions = in.readUnsignedShort();
+                for (int j = 0; j < exceptions; j++) {
+                    collectClass(in.readUnsignedShort(), DependencyKind.SIGNATURE);
+                }
+            } else if ("RuntimeVisibleAnnotations".equals(name) || "RuntimeInvisibleAnnotations".equals(name)) {
+                readAnnotations();
+            } else if ("RuntimeVisibleParameterAnnotations".equals(name)
+                    || "RuntimeInvisibleParameterAnnotations".equals(name)) {
+                int parameters = in.readUnsignedByte();
+                for (int j = 0; j < parameters; j++) {
+                    readAnnotations();
+                }
+            } else if ("Code".equals(name)) {
+                in.skipBytes(4); // max stack, max locals
+                if (sourceLines == null) {
+                    in.skipBytes(in.readInt()); // byte code
+                    in.skipBytes(8 * in.readUnsignedShort()); // exception table
+                    readAttributes(DependencyKind.BODY);
+                } else {
+                    readCode();
+                }
+            } else if (sourceLines != null && "SourceFile".equals(name)) {
+                sourceLines.setSourceFile(utf8[in.readUnsignedShort()]);
+            } else if (sourceLines != null && "LineNumberTable".equals(name)) {
+                int lines = in.readUnsignedShort();
+                for (int j = 0; j < lines; j++) {
+                    lineStartPcs.add(in.readUnsignedShort());
+                    lineNumbers.add(in.readUnsignedShort());
+                }
+            } else if ("LocalVariableTable".equals(name) || "LocalVariableTypeTable".equals(name)) {
+                readLocalVariables();
+            } else if ("AnnotationDefault".equals(name)) {
+                readElementValue();
+            } else {
+                in.skipBytes(length);
+            }
+        }
+    }
+
+    /**
+     * Decodes the byte code of a method to find the instructions that reference classes, and maps them 
+     * to source lines with the line number table that follows.
+     */
+    private void readCode() throws IOException {
+        byte[] code = new byte[in.readInt()];
+        in.readFully(code);
+        for (int pc = 0; pc < code.length; pc += instructionLength(code, pc)) {
+            int opcode = code[pc] & 0xff;
+            if (opcode == LDC) {
+                locate(pc, code[pc + 1] & 0xff);
+            } else if (opcode == LDC_W || opcode == LDC2_W || (opcode >= GETSTATIC && opcode <= INVOKEDYNAMIC) 
+                    || opcode == NEW || opcode == ANEWARRAY || opcode == CHECKCAST || opcode == INSTANCEOF 
+                    || opcode == MULTIANEWARRAY) {
+                locate(pc, (code[pc + 1] & 0xff) << 8 | code[pc + 2] & 0xff);
+            }
+        }
+        int handlers = in.readUnsignedShort();
+        for (int i = 0; i < handlers; i++) {
+            in.skipBytes(4); // start, end
+            int handlerPc = in.readUnsignedShort();
+            locate(handlerPc, in.readUnsignedShort());
+        }
+
+        lineStartPcs.clear();
+        lineNumbers.clear();
+        readAttributes(DependencyKind.BODY);
+        for (int i = 0; i < referencePcs.size(); i++) {
+            sourceLines.add(referenceNames.get(i), lineOf(referencePcs.get(i)));
+        }
+        referencePcs.clear();
+        referenceNames.clear();
+    }
+
+    private static int instructionLength(byte[] code, int pc) {
+        int opcode = code[pc] & 0xff;
+        if (opcode == TABLESWITCH || opcode == LOOKUPSWITCH) {
+            // operands are aligned to multiples of four bytes from the start of the code
+            int operands = (pc + 4) & ~3;
+            if (opcode == TABLESWITCH) {
+                int low = readInt(code, operands + 4);
+                int high = readInt(code, operands + 8);
+                return operands - pc + 12 + 4 * (high - low + 1);
+            }
+            return operands - pc + 8 + 8 * readInt(code, operands + 4);
+        }
+        if (opcode == WIDE) {
+            return (code[pc + 1] & 0xff) == IINC ? 6 : 4;
+        }
+        return 1 + OPERAND_BYTES[opcode];
+    }
+
+    private static int readInt(byte[] code, int offset) {
+        return (code[offset] & 0xff) << 24 | (code[offset + 1] & 0xff) << 16 | (code[offset + 2] & 0xff) << 8 
+                | code[offset + 3] & 0xff;
+    }
+
+    /**
+     * Records the classes referenced by a constant pool entry at an instruction.
+     */
+    private void locate(int pc, int index) {
+        scratch.clear();
+        switch (tags[index]) {
+        case CONSTANT_CLASS:
+            TypeSignatures.collectInternalName(utf8[firstIndex[index]], scratch);
+            break;
+        case CONSTANT_FIELDREF:
+        case CONSTANT_METHODREF:
+        case CONSTANT_INTERFACE_METHODREF:
+            TypeSignatures.collectInternalName(utf8[firstIndex[firstIndex[index]]], scratch);
+            TypeSignatures.collectClassNames(utf8[secondIndex[secondIndex[index]]], scratch);
+            break;
+        case CONSTANT_DYNAMIC:
+        case CONSTANT_INVOKE_DYNAMIC:
+            TypeSignatures.collectClassNames(utf8[secondIndex[secondIndex[index]]], scratch);
+            break;
+        case CONSTANT_METHOD_TYPE:
+            TypeSignatures.collectClassNames(utf8[firstIndex[index]], scratch);
+            break;
+        default:
+            break;
+        }
+        for (String className : scratch) {
+            if (referenceFilter.apply(className)) {
+                referencePcs.add(pc);
+                referenceNames.add(className);
+            }
+        }
+    }
+
+    /**
+     * @return the line of the instruction, or 0 if unknown
+     */
+    private int lineOf(int pc) {
+        int line = 0;
+        int bestStart = -1;
+        for (int i = 0; i < lineStartPcs.size(); i++) {
+            int start = lineStartPcs.get(i);
+            if (start <= pc && start > bestStart) {
+                bestStart = start;
+                line = lineNumbers.get(i);
+            }
+        }
+        return line;
+    }
+
+    private void readLocalVariables() throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            in.skipBytes(6); // start, length, name
+            collectSignature(utf8[in.readUnsignedShort()], DependencyKind.BODY);
+            in.readUnsignedShort(); // slot
+        }
+    }
+
+    private void readAnnotations() throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            readAnnotation();
+        }
+    }
+
+    private void readAnnotation() throws IOException {
+        collectSignature(utf8[in.readUnsignedShort()], DependencyKind.ANNOTATION);
+        int pairs = in.readUnsignedShort();
+        for (int i = 0; i < pairs; i++) {
+            in.readUnsignedShort(); // element name
+            readElementValue();
+        }
+    }
+
+    private void readElementValue() throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+        case 'e':
+            collectSignature(utf8[in.readUnsignedShort()], DependencyKind.ANNOTATION);
+            in.readUnsignedShort(); // enum constant name
+            break;
+        case 'c':
+            collectSignature(utf8[in.readUnsignedShort()], DependencyKind.ANNOTATION);
+            break;
+        case '@':
+            readAnnotation();
+            break;
+        case '[':
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                readElementValue();
+            }
+            break;
+        default:
+            in.readUnsignedShort(); // constant
+            break;
+        }
+    }
+
+}
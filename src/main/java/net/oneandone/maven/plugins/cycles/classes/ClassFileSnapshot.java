@@ -0,0 +1,97 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The modification times and sizes of all class files below a set of class directories at one point in time.
+ * Two snapshots can be compared to find out which classes have to be re-parsed; the size catches most
+ * rewrites within the resolution of the modification time.
+ *
+ * @author chschmitz
+ */
+public final class ClassFileSnapshot {
+    private static final String CLASS_SUFFIX = ".class";
+
+    private Map<File, Long> lastModified = Maps.newHashMap();
+    private Map<File, Long> sizes = Maps.newHashMap();
+    private Map<File, String> classNames = Maps.newHashMap();
+
+    /**
+     * @param classDirs class directories (jar files are not supported)
+     */
+    public ClassFileSnapshot(File... classDirs) {
+        for (File classDir : classDirs) {
+            Preconditions.checkArgument(classDir.isDirectory(), "%s is not a class directory.",
+                    classDir.getAbsolutePath());
+            scan(classDir, "");
+        }
+    }
+
+    private void scan(File dir, String packagePrefix) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                scan(file, packagePrefix + name + ".");
+            } else if (name.endsWith(CLASS_SUFFIX)) {
+                lastModified.put(file, file.lastModified());
+                sizes.put(file, file.length());
+                classNames.put(file, packagePrefix + name.substring(0, name.length() - CLASS_SUFFIX.length()));
+            }
+        }
+    }
+
+    /**
+     * @param previous an older snapshot of the same class directories
+     * @return class files that are new or have been modified since <code>previous</code>
+     */
+    public Collection<File> changedSince(ClassFileSnapshot previous) {
+        List<File> changed = Lists.newArrayList();
+        for (Map.Entry<File, Long> entry : lastModified.entrySet()) {
+            if (!entry.getValue().equals(previous.lastModified.get(entry.getKey()))
+                    || !sizes.get(entry.getKey()).equals(previous.sizes.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @param previous an older snapshot of the same class directories
+     * @return FQCNs of classes whose class files have been deleted since <code>previous</code>
+     */
+    public Collection<String> removedSince(ClassFileSnapshot previous) {
+        List<String> removed = Lists.newArrayList();
+        for (Map.Entry<File, String> entry : previous.classNames.entrySet()) {
+            if (!classNames.containsKey(entry.getKey())) {
+                removed.add(entry.getValue());
+            }
+        }
+        return removed;
+    }
+}
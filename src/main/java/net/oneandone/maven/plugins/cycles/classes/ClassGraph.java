@@ -0,0 +1,59 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+/**
+ * A read-only view of class-level dependencies in primitive form: classes are numbered densely, and
+ * dependencies are numbered pairs of class numbers. Lets algorithms run over the class graph
+ * without materializing an object per dependency.
+ *
+ * @author chschmitz
+ */
+public interface ClassGraph {
+    /**
+     * @return the number of classes, including classes that are only referenced
+     */
+    int getClassCount();
+
+    /**
+     * @param cls a class number
+     * @return the FQCN of that class
+     */
+    String getClassName(int cls);
+
+    /**
+     * @return the number of distinct dependencies
+     */
+    int getDependencyCount();
+
+    /**
+     * @param dependency a dependency number; dependencies are ordered by source, then by target
+     * @return the number of the depending class
+     */
+    int getSource(int dependency);
+
+    /**
+     * @param dependency a dependency number
+     * @return the number of the class depended on
+     */
+    int getTarget(int dependency);
+
+    /**
+     * @param dependency a dependency number
+     * @return the {@link DependencyKind}s of the dependency, as a bitmask
+     */
+    int getKinds(int dependency);
+}
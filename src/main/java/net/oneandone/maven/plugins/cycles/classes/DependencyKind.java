@@ -0,0 +1,97 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import java.util.List;
+import java.util.Locale;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+
+/**
+ * The ways in which a class can refer to another one. The kinds of a class dependency are kept as a bitmask
+ * of {@link #bit()}s.
+ *
+ * @author chschmitz
+ */
+public enum DependencyKind {
+    /** Super class, implemented interfaces and the generic signature of the class. */
+    INHERITANCE,
+    /** Field types. */
+    FIELD,
+    /** Parameter, return and exception types of methods. */
+    SIGNATURE,
+    /** Method and field accesses, instantiations and local variables in method bodies. */
+    BODY,
+    /** Annotations and their values. */
+    ANNOTATION,
+    /** Referenced only as a class constant: class literals, casts, instanceof checks, array creation, 
+     * catch clauses and inner class attributes. */
+    CONSTANT;
+
+    /** The bitmask of all kinds. */
+    public static final int ALL = (1 << values().length) - 1;
+
+    /**
+     * @return the bit of this kind
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @param kinds a bitmask
+     * @return true iff it contains this kind
+     */
+    public boolean isIn(int kinds) {
+        return (kinds & bit()) != 0;
+    }
+
+    /**
+     * @param names kind names, in any case
+     * @return the bitmask of these kinds, or {@link #ALL} if there are none
+     * @throws IllegalArgumentException iff a name is not a kind
+     */
+    public static int mask(String... names) {
+        if (names == null || names.length == 0) {
+            return ALL;
+        }
+        int kinds = 0;
+        for (String name : names) {
+            try {
+                kinds |= valueOf(name.trim().toUpperCase(Locale.ROOT)).bit();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown dependency kind " + name + ", expected one of " 
+                        + toString(ALL), e);
+            }
+        }
+        return kinds;
+    }
+
+    /**
+     * @param kinds a bitmask
+     * @return the kinds in lower case, comma-separated
+     */
+    public static String toString(int kinds) {
+        List<String> names = Lists.newArrayList();
+        for (DependencyKind kind : values()) {
+            if (kind.isIn(kinds)) {
+                names.add(kind.name().toLowerCase(Locale.ROOT));
+            }
+        }
+        return Joiner.on(", ").join(names);
+    }
+}
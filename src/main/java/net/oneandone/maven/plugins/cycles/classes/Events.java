@@ -0,0 +1,104 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import java.io.File;
+
+/**
+ * Emits events for the phases of the analysis, so that a Java Flight Recorder recording of a slow build shows
+ * which jar or which component takes the time. On JVMs without JFR, and while no recording is running, the 
+ * phases do nothing.
+ *
+ * @author chschmitz
+ */
+public final class Events {
+    private static final String JFR_FACTORY = Events.class.getPackage().getName() + ".JfrEventFactory";
+    private static final EventFactory FACTORY = loadFactory();
+
+    /**
+     * The events of the different kinds of phases.
+     */
+    interface EventFactory {
+        Phase parse(String input);
+
+        Phase graph(String phase);
+
+        Phase component(String phase);
+    }
+
+    /**
+     * @param input a class directory or jar
+     * @return the phase of parsing it, to be ended with the number of classes and bytes read
+     */
+    public static Phase parse(File input) {
+        return FACTORY.parse(input.getPath());
+    }
+
+    /**
+     * @param phase what is done with the whole graph, e.g. "package graph"
+     * @return the phase, to be ended with the numbers of vertices and edges
+     */
+    public static Phase graph(String phase) {
+        return FACTORY.graph(phase);
+    }
+
+    /**
+     * @param phase what is done with a strong component, e.g. "feedback arc set"
+     * @return the phase, to be ended with the numbers of vertices and edges of the component
+     */
+    public static Phase component(String phase) {
+        return FACTORY.component(phase);
+    }
+
+    /**
+     * The JFR events are only loaded by name, since they cannot even be linked on JVMs without JFR.
+     */
+    private static EventFactory loadFactory() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (EventFactory) Class.forName(JFR_FACTORY).newInstance();
+        } catch (ClassNotFoundException e) {
+            return new NoEventFactory();
+        } catch (InstantiationException e) {
+            return new NoEventFactory();
+        } catch (IllegalAccessException e) {
+            return new NoEventFactory();
+        } catch (LinkageError e) {
+            return new NoEventFactory();
+        }
+    }
+
+    private static final class NoEventFactory implements EventFactory {
+        @Override
+        public Phase parse(String input) {
+            return Phase.NONE;
+        }
+
+        @Override
+        public Phase graph(String phase) {
+            return Phase.NONE;
+        }
+
+        @Override
+        public Phase component(String phase) {
+            return Phase.NONE;
+        }
+    }
+
+    private Events() {
+        // Don't instantiate
+    }
+}
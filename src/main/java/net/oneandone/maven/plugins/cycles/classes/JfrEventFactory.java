@@ -0,0 +1,143 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Creates Java Flight Recorder events; only loaded by {@link Events} if the JVM has JFR. While no recording 
+ * is running, the events are disabled and the phases are {@link Phase#NONE}.
+ *
+ * @author chschmitz
+ */
+final class JfrEventFactory implements Events.EventFactory {
+    private static final String PREFIX = "net.oneandone.cycles.";
+    private static final String CATEGORY = "Maven Cycles Plugin";
+
+    @Override
+    public Phase parse(String input) {
+        final ParseEvent event = new ParseEvent();
+        if (!event.isEnabled()) {
+            return Phase.NONE;
+        }
+        event.input = input;
+        event.begin();
+        return new Phase() {
+            @Override
+            public void end(long count, long size) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.classes = count;
+                    event.bytes = size;
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    @Override
+    public Phase graph(String phase) {
+        final GraphEvent event = new GraphEvent();
+        if (!event.isEnabled()) {
+            return Phase.NONE;
+        }
+        event.phase = phase;
+        event.begin();
+        return new Phase() {
+            @Override
+            public void end(long count, long size) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.vertices = count;
+                    event.edges = size;
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    @Override
+    public Phase component(String phase) {
+        final ComponentEvent event = new ComponentEvent();
+        if (!event.isEnabled()) {
+            return Phase.NONE;
+        }
+        event.phase = phase;
+        event.begin();
+        return new Phase() {
+            @Override
+            public void end(long count, long size) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.vertices = count;
+                    event.edges = size;
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    @Name(PREFIX + "Parse")
+    @Label("Parse")
+    @Category(CATEGORY)
+    @Description("Parsing the class files of a class directory or jar")
+    static final class ParseEvent extends Event {
+        @Label("Input")
+        String input;
+
+        @Label("Classes")
+        long classes;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name(PREFIX + "Graph")
+    @Label("Graph")
+    @Category(CATEGORY)
+    @Description("Aggregating class dependencies or analysing the whole package graph")
+    static final class GraphEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Vertices")
+        long vertices;
+
+        @Label("Edges")
+        long edges;
+    }
+
+    @Name(PREFIX + "Component")
+    @Label("Component")
+    @Category(CATEGORY)
+    @Description("Breaking or rendering one strong component")
+    static final class ComponentEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Vertices")
+        long vertices;
+
+        @Label("Edges")
+        long edges;
+    }
+}
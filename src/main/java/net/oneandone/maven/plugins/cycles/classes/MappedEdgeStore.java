@@ -0,0 +1,177 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * A growable array of longs in a memory-mapped file, so that its size is not bounded by the heap.
+ * The file is mapped in fixed-size chunks as the array grows; the OS pages them in and out as needed.
+ *
+ * @author chschmitz
+ */
+final class MappedEdgeStore implements Closeable {
+    private static final int DEFAULT_CHUNK_SHIFT = 24;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final RandomAccessFile file;
+    private final int chunkShift;
+    private final int chunkMask;
+    private final List<LongBuffer> chunks = Lists.newArrayList();
+    private int size;
+
+    /**
+     * @param file the backing file; it is truncated
+     * @throws IOException iff the file cannot be opened
+     */
+    MappedEdgeStore(File file) throws IOException {
+        this(file, DEFAULT_CHUNK_SHIFT);
+    }
+
+    /**
+     * @param file the backing file; it is truncated
+     * @param chunkShift log2 of the number of longs per mapped chunk
+     * @throws IOException iff the file cannot be opened
+     */
+    MappedEdgeStore(File file, int chunkShift) throws IOException {
+        this.file = new RandomAccessFile(file, "rw");
+        this.file.setLength(0);
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1 << chunkShift) - 1;
+    }
+
+    void add(long value) throws IOException {
+        if ((size >>> chunkShift) == chunks.size()) {
+            long chunkBytes = (long) Long.SIZE / Byte.SIZE << chunkShift;
+            chunks.add(file.getChannel().map(FileChannel.MapMode.READ_WRITE, chunks.size() * chunkBytes, chunkBytes)
+                    .asLongBuffer());
+        }
+        set(size++, value);
+    }
+
+    long get(int index) {
+        return chunks.get(index >>> chunkShift).get(index & chunkMask);
+    }
+
+    private void set(int index, long value) {
+        chunks.get(index >>> chunkShift).put(index & chunkMask, value);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Sorts the values in place and drops duplicates.
+     */
+    void sortAndDeduplicate() {
+        sortAndMerge(0);
+    }
+
+    /**
+     * Sorts the values in place and merges values that differ only in their lowest bits, by or-ing 
+     * these bits.
+     * 
+     * @param flagBits the number of low bits that hold flags rather than a key
+     */
+    void sortAndMerge(int flagBits) {
+        sort(0, size - 1);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            long value = get(i);
+            if (distinct > 0 && get(distinct - 1) >>> flagBits == value >>> flagBits) {
+                set(distinct - 1, get(distinct - 1) | value);
+            } else {
+                set(distinct++, value);
+            }
+        }
+        size = distinct;
+    }
+
+    /**
+     * Quicksort with median-of-three pivots. Recurses into the smaller part only, so the stack depth
+     * stays logarithmic; partitioning scans sequentially, which suits the mapped pages.
+     */
+    private void sort(int low, int high) {
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            int middle = (low + high) >>> 1;
+            if (get(middle) < get(low)) {
+                swap(middle, low);
+            }
+            if (get(high) < get(low)) {
+                swap(high, low);
+            }
+            if (get(high) < get(middle)) {
+                swap(high, middle);
+            }
+            long pivot = get(middle);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (get(i) < pivot) {
+                    i++;
+                }
+                while (get(j) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            long value = get(i);
+            int j = i - 1;
+            while (j >= low && get(j) > value) {
+                set(j + 1, get(j));
+                j--;
+            }
+            set(j + 1, value);
+        }
+    }
+
+    private void swap(int i, int j) {
+        long value = get(i);
+        set(i, get(j));
+        set(j, value);
+    }
+
+    /**
+     * Closes the file and drops the mapped chunks, so that they are unmapped as soon as they are garbage
+     * collected (the JDK offers no supported way to unmap them right away). The store is empty afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        chunks.clear();
+        size = 0;
+        file.close();
+    }
+}
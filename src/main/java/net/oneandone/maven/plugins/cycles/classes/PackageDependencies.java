@@ -15,9 +15,11 @@
  */
 package net.oneandone.maven.plugins.cycles.classes;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
@@ -31,6 +33,8 @@ import com.google.common.collect.Sets;
  * @author chschmitz
  */
 public final class PackageDependencies {
+    private static final int NO_PACKAGE = -1;
+
     private Map<String, Set<PackageDependency>> packageDependencies;
 
     /**
@@ -40,13 +44,29 @@ public final class PackageDependencies {
      * <code>net.oneandone.maven</code> etc.)
      */
     public PackageDependencies(ClassDependencies classDependencies, int depth) {
+        this(classDependencies, packageNames(depth));
+    }
+
+    /**
+     * @param classDependencies the class-level dependencies
+     * @param packageNames maps class names to the packages they are aggregated to; classes mapped to null are
+     * left out, together with their dependencies
+     */
+    public PackageDependencies(ClassDependencies classDependencies, Function<String, String> packageNames) {
+        if (classDependencies.isOffHeap()) {
+            packageDependencies = aggregate(classDependencies.getClassGraph(), packageNames);
+            return;
+        }
         Map<String, Map<String, Set<ClassDependency>>> packageDependenciesRaw = Maps.newHashMap();
         
         for (String source : classDependencies.getClassDependencies().keySet()) {
-            String sourcePkg = packagePrefix(getPackageNameOfClass(source), depth);
+            String sourcePkg = packageNames.apply(source);
+            if (sourcePkg == null) {
+                continue;
+            }
             for (ClassDependency classDep : classDependencies.getClassDependencies().get(source)) {
-                String destPkg = packagePrefix(getPackageNameOfClass(classDep.getTo()), depth);
-                if (!sourcePkg.equals(destPkg)) {
+                String destPkg = packageNames.apply(classDep.getTo());
+                if (destPkg != null && !sourcePkg.equals(destPkg)) {
                     addDependency(packageDependenciesRaw, sourcePkg, destPkg, classDep);
                 }
             }
@@ -55,10 +75,74 @@ public final class PackageDependencies {
         packageDependencies = convertToPackageDependencies(packageDependenciesRaw);
     }
     
+    /**
+     * Aggregates off-heap class dependencies by counting them per package pair; the class dependencies
+     * behind a package dependency are only looked up when they are iterated.
+     */
+    private static Map<String, Set<PackageDependency>> aggregate(ClassGraph classGraph, 
+            Function<String, String> packageNames) {
+        List<String> packages = Lists.newArrayList();
+        Map<String, Integer> packageIndex = Maps.newHashMap();
+        int[] packageOf = new int[classGraph.getClassCount()];
+        for (int cls = 0; cls < packageOf.length; cls++) {
+            String pkg = packageNames.apply(classGraph.getClassName(cls));
+            if (pkg == null) {
+                packageOf[cls] = NO_PACKAGE;
+                continue;
+            }
+            Integer index = packageIndex.get(pkg);
+            if (index == null) {
+                index = packages.size();
+                packageIndex.put(pkg, index);
+                packages.add(pkg);
+            }
+            packageOf[cls] = index;
+        }
+
+        Map<Long, Integer> counts = Maps.newHashMap();
+        for (int dependency = 0; dependency < classGraph.getDependencyCount(); dependency++) {
+            int sourcePkg = packageOf[classGraph.getSource(dependency)];
+            int destPkg = packageOf[classGraph.getTarget(dependency)];
+            if (sourcePkg != destPkg && sourcePkg != NO_PACKAGE && destPkg != NO_PACKAGE) {
+                Long key = (long) sourcePkg << Integer.SIZE | destPkg;
+                Integer count = counts.get(key);
+                counts.put(key, count == null ? 1 : count + 1);
+            }
+        }
+
+        PackageIndex index = new PackageIndex(classGraph, packageOf, packages.size());
+        Map<String, Set<PackageDependency>> packageDependencies = Maps.newHashMap();
+        for (Map.Entry<Long, Integer> count : counts.entrySet()) {
+            int sourcePkg = (int) (count.getKey() >>> Integer.SIZE);
+            int destPkg = (int) count.getKey().longValue();
+            Set<PackageDependency> pkgDeps = packageDependencies.get(packages.get(sourcePkg));
+            if (pkgDeps == null) {
+                pkgDeps = Sets.newHashSet();
+                packageDependencies.put(packages.get(sourcePkg), pkgDeps);
+            }
+            pkgDeps.add(new PackageDependency(packages.get(sourcePkg), packages.get(destPkg), 
+                    new ClassDependencyView(classGraph, index, sourcePkg, destPkg, count.getValue())));
+        }
+        return packageDependencies;
+    }
+
     public Map<String, Set<PackageDependency>> getPackageDependencies() {
         return packageDependencies;
     }
 
+    /**
+     * @param depth the aggregation depth
+     * @return a function mapping class names to their packages at that depth
+     */
+    public static Function<String, String> packageNames(final int depth) {
+        return new Function<String, String>() {
+            @Override
+            public String apply(String className) {
+                return getPackageNameOfClass(className, depth);
+            }
+        };
+    }
+
     /**
      * @param className a class name
      * @return the package name of that class
@@ -68,6 +152,15 @@ public final class PackageDependencies {
         return index < 0 ? "(default package)" : className.substring(0, index);
     }
 
+    /**
+     * @param className a class name
+     * @param depth the aggregation depth
+     * @return the package the class is counted in at that depth
+     */
+    public static String getPackageNameOfClass(String className, int depth) {
+        return packagePrefix(getPackageNameOfClass(className), depth);
+    }
+
     private Map<String, Set<PackageDependency>> convertToPackageDependencies(
             Map<String, Map<String, Set<ClassDependency>>> packageDependenciesRaw) {
         Map<String, Set<PackageDependency>> packageDependencies = Maps.newHashMap();
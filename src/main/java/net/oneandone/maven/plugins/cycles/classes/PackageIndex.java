@@ -0,0 +1,111 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+/**
+ * Locates the dependencies of the classes of a package in a {@link ClassGraph} without scanning all of
+ * them: the classes are grouped by package, and since the dependencies are ordered by source, those of
+ * each class form a contiguous range. Everything is held in int arrays.
+ *
+ * @author chschmitz
+ */
+final class PackageIndex {
+    private final int[] packageOf;
+    private final int[] classStart;
+    private final int[] classes;
+    private final int[] dependencyStart;
+
+    /**
+     * @param classGraph the class dependencies
+     * @param packageOf the package number of each class, negative for classes in no package
+     * @param packageCount the number of packages
+     */
+    PackageIndex(ClassGraph classGraph, int[] packageOf, int packageCount) {
+        this.packageOf = packageOf;
+        classStart = new int[packageCount + 1];
+        for (int pkg : packageOf) {
+            if (pkg >= 0) {
+                classStart[pkg + 1]++;
+            }
+        }
+        for (int pkg = 0; pkg < packageCount; pkg++) {
+            classStart[pkg + 1] += classStart[pkg];
+        }
+        classes = new int[classStart[packageCount]];
+        int[] next = classStart.clone();
+        for (int cls = 0; cls < packageOf.length; cls++) {
+            if (packageOf[cls] >= 0) {
+                classes[next[packageOf[cls]]++] = cls;
+            }
+        }
+
+        dependencyStart = new int[packageOf.length + 1];
+        for (int dependency = 0; dependency < classGraph.getDependencyCount(); dependency++) {
+            dependencyStart[classGraph.getSource(dependency) + 1]++;
+        }
+        for (int cls = 0; cls < packageOf.length; cls++) {
+            dependencyStart[cls + 1] += dependencyStart[cls];
+        }
+    }
+
+    /**
+     * @param cls a class number
+     * @return its package number, negative if it is in no package
+     */
+    int getPackage(int cls) {
+        return packageOf[cls];
+    }
+
+    /**
+     * @param pkg a package number
+     * @return the index of its first class for {@link #getClass(int)}
+     */
+    int getClassStart(int pkg) {
+        return classStart[pkg];
+    }
+
+    /**
+     * @param pkg a package number
+     * @return the index after its last class for {@link #getClass(int)}
+     */
+    int getClassEnd(int pkg) {
+        return classStart[pkg + 1];
+    }
+
+    /**
+     * @param index an index between the start and end of a package
+     * @return the class number
+     */
+    int getClass(int index) {
+        return classes[index];
+    }
+
+    /**
+     * @param cls a class number
+     * @return the number of its first dependency
+     */
+    int getDependencyStart(int cls) {
+        return dependencyStart[cls];
+    }
+
+    /**
+     * @param cls a class number
+     * @return the number after its last dependency
+     */
+    int getDependencyEnd(int cls) {
+        return dependencyStart[cls + 1];
+    }
+}
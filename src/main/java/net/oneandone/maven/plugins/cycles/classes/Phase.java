@@ -0,0 +1,42 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+/**
+ * A running phase of the analysis, begun by one of the methods of {@link Events}. What the two counts
+ * of {@link #end(long, long)} mean depends on the kind of phase.
+ *
+ * @author chschmitz
+ */
+public abstract class Phase {
+    /**
+     * The phase of a run without recording, which costs nothing to end.
+     */
+    static final Phase NONE = new Phase() {
+        @Override
+        public void end(long count, long size) {
+            // nothing recorded
+        }
+    };
+
+    /**
+     * Ends the phase and records it if a recording is running. Must be called at most once.
+     *
+     * @param count the number of classes or vertices
+     * @param size the number of bytes or edges
+     */
+    public abstract void end(long count, long size);
+}
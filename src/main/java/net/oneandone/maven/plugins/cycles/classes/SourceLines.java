@@ -0,0 +1,62 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import java.util.Set;
+import java.util.SortedSet;
+
+import com.google.common.collect.SortedSetMultimap;
+import com.google.common.collect.TreeMultimap;
+
+/**
+ * Where a class file references other classes in its source.
+ *
+ * @author chschmitz
+ */
+final class SourceLines {
+    private String sourceFile;
+    private final SortedSetMultimap<String, Integer> lines = TreeMultimap.create();
+
+    /**
+     * @return the name of the source file without directories, or null if the class file does not tell
+     */
+    String getSourceFile() {
+        return sourceFile;
+    }
+
+    void setSourceFile(String sourceFile) {
+        this.sourceFile = sourceFile;
+    }
+
+    /**
+     * @return the classes referenced from method bodies
+     */
+    Set<String> getReferences() {
+        return lines.keySet();
+    }
+
+    /**
+     * @param className a referenced class
+     * @return the lines referencing that class, in ascending order; 0 stands for references without line numbers
+     */
+    SortedSet<Integer> getLines(String className) {
+        return lines.get(className);
+    }
+
+    void add(String className, int line) {
+        lines.put(className, line);
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+/**
+ * Finds the source locations of class dependencies. This is a second stage after {@link ClassDependencies},
+ * meant for a few dependencies only: it reads the class files of the depending classes again, decoding their
+ * byte code this time, and keeps the results for the classes it has seen. Classes in archives nested in 
+ * other archives are not located.
+ *
+ * @author chschmitz
+ */
+public final class SourceLocator {
+    private final Predicate<String> nameFilter;
+    private final boolean collapseInnerClasses;
+    private final File[] classDirsOrJars;
+    private final Map<File, String> packagePrefixes = Maps.newHashMap();
+    private final Map<String, List<SourceLines>> sourceLines = Maps.newHashMap();
+
+    /**
+     * @param nameFilter the name filter (on FQCNs)
+     * @param collapseInnerClasses iff true, nested classes are folded into their top-level classes
+     * @param classDirsOrJars the class directories or jar files
+     */
+    public SourceLocator(Predicate<String> nameFilter, boolean collapseInnerClasses, File... classDirsOrJars) {
+        this.nameFilter = nameFilter;
+        this.collapseInnerClasses = collapseInnerClasses;
+        this.classDirsOrJars = Arrays.copyOf(classDirsOrJars, classDirsOrJars.length);
+    }
+
+    /**
+     * @param dependency a class dependency
+     * @return the locations of the references as "File.java:123", ordered by file and line; just the 
+     * source file if the lines are unknown, e.g. for references from signatures or without debug 
+     * information; empty if the class file was not found
+     * @throws IOException iff reading the class files fails
+     */
+    public List<String> locate(ClassDependency dependency) throws IOException {
+        Map<String, SortedSet<Integer>> linesByFile = Maps.newTreeMap();
+        for (SourceLines classLines : sourceLinesOf(dependency.getFrom())) {
+            String sourceFile = classLines.getSourceFile() != null ? classLines.getSourceFile() 
+                    : simpleName(ClassDependencies.topLevelClassName(dependency.getFrom())) + ".java";
+            SortedSet<Integer> lines = linesByFile.get(sourceFile);
+            if (lines == null) {
+                lines = Sets.newTreeSet();
+                linesByFile.put(sourceFile, lines);
+            }
+            for (String reference : classLines.getReferences()) {
+                String target = collapseInnerClasses ? ClassDependencies.topLevelClassName(reference) : reference;
+                if (target.equals(dependency.getTo())) {
+                    lines.addAll(classLines.getLines(reference));
+                }
+            }
+        }
+        List<String> locations = Lists.newArrayList();
+        for (Map.Entry<String, SortedSet<Integer>> file : linesByFile.entrySet()) {
+            // 0 stands for unknown lines
+            for (int line : file.getValue().tailSet(1)) {
+                locations.add(file.getKey() + ":" + line);
+            }
+        }
+        if (locations.isEmpty()) {
+            locations.addAll(linesByFile.keySet());
+        }
+        return locations;
+    }
+
+    private List<SourceLines> sourceLinesOf(String className) throws IOException {
+        List<SourceLines> classLines = sourceLines.get(className);
+        if (classLines == null) {
+            classLines = Lists.newArrayList();
+            for (byte[] classFile : readClassFiles(className)) {
+                classLines.add(ClassFileReader.readSourceLines(classFile, nameFilter));
+            }
+            sourceLines.put(className, classLines);
+        }
+        return classLines;
+    }
+
+    /**
+     * @return the class file of the class, and those of its nested classes if they are folded into it; 
+     * from the first directory or jar that has the class
+     */
+    private List<byte[]> readClassFiles(String className) throws IOException {
+        List<byte[]> classFiles = Lists.newArrayList();
+        for (File classDirOrJar : classDirsOrJars) {
+            if (classDirOrJar.isDirectory()) {
+                readFromDirectory(classDirOrJar, className, classFiles);
+            } else if (classDirOrJar.isFile()) {
+                readFromJar(classDirOrJar, className, classFiles);
+            }
+            if (!classFiles.isEmpty()) {
+                break;
+            }
+        }
+        return classFiles;
+    }
+
+    private void readFromDirectory(File dir, String className, List<byte[]> classFiles) throws IOException {
+        String prefix = packagePrefixes.get(dir);
+        if (prefix == null) {
+            prefix = ClassDependencies.packagePrefixOf(dir);
+            packagePrefixes.put(dir, prefix);
+        }
+        if (!className.startsWith(prefix)) {
+            return;
+        }
+        File classFile = new File(dir, className.substring(prefix.length()).replace('.', '/') 
+                + ClassDependencies.CLASS_SUFFIX);
+        if (!classFile.isFile()) {
+            return;
+        }
+        for (File member : collapseInnerClasses ? ClassDependencies.nestMembers(classFile) : new File[] {classFile}) {
+            classFiles.add(Files.toByteArray(member));
+        }
+    }
+
+    private void readFromJar(File jar, String className, List<byte[]> classFiles) throws IOException {
+        String internalName = className.replace('.', '/');
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (isClassFileOf(entry.getName(), internalName)) {
+                    InputStream in = zipFile.getInputStream(entry);
+                    try {
+                        classFiles.add(ByteStreams.toByteArray(in));
+                    } finally {
+                        Closeables.closeQuietly(in);
+                    }
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private boolean isClassFileOf(String entryName, String internalName) {
+        String path = entryName;
+        for (String classesDir : ClassDependencies.ARCHIVE_CLASSES_DIRS) {
+            if (path.startsWith(classesDir)) {
+                path = path.substring(classesDir.length());
+            }
+        }
+        if (!path.startsWith(internalName) || !path.endsWith(ClassDependencies.CLASS_SUFFIX)) {
+            return false;
+        }
+        String rest = path.substring(internalName.length(), path.length() - ClassDependencies.CLASS_SUFFIX.length());
+        return rest.isEmpty() || (collapseInnerClasses && rest.startsWith("$"));
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+}
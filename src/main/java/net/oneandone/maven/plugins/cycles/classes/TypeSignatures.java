@@ -0,0 +1,126 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import java.util.Collection;
+
+/**
+ * Extracts class names from JVM type descriptors and generic signatures
+ * (JVMS 4.3 and 4.7.9.1), e.g. <code>(Ljava/util/List&lt;Lcom/acme/Foo;&gt;;I)V</code>.
+ *
+ * @author chschmitz
+ */
+final class TypeSignatures {
+
+    /**
+     * @param signature a field, method or class descriptor or signature
+     * @param classNames collects the FQCNs (with '.' as separator) of all classes mentioned
+     */
+    static void collectClassNames(String signature, Collection<String> classNames) {
+        int i = 0;
+        if (signature.startsWith("<")) {
+            i = parseFormalTypeParameters(signature, 1, classNames);
+        }
+        while (i < signature.length()) {
+            char c = signature.charAt(i);
+            if (c == '(' || c == ')' || c == '^') {
+                i++;
+            } else {
+                i = parseType(signature, i, classNames);
+            }
+        }
+    }
+
+    /**
+     * @param internalName a class name from the constant pool, either <code>com/acme/Foo</code> or an
+     * array descriptor such as <code>[Lcom/acme/Foo;</code>
+     * @param classNames collects the FQCN, if any
+     */
+    static void collectInternalName(String internalName, Collection<String> classNames) {
+        if (internalName.startsWith("[")) {
+            collectClassNames(internalName, classNames);
+        } else {
+            classNames.add(internalName.replace('/', '.'));
+        }
+    }
+
+    private static int parseFormalTypeParameters(String s, int start, Collection<String> classNames) {
+        int i = start;
+        while (s.charAt(i) != '>') {
+            i = s.indexOf(':', i);
+            while (s.charAt(i) == ':') {
+                i++;
+                if (s.charAt(i) != ':') {
+                    i = parseType(s, i, classNames);
+                }
+            }
+        }
+        return i + 1;
+    }
+
+    private static int parseType(String s, int start, Collection<String> classNames) {
+        switch (s.charAt(start)) {
+        case 'L':
+            return parseClassType(s, start + 1, classNames);
+        case 'T':
+            return s.indexOf(';', start) + 1;
+        case '[':
+            return parseType(s, start + 1, classNames);
+        default:
+            return start + 1;
+        }
+    }
+
+    private static int parseClassType(String s, int start, Collection<String> classNames) {
+        boolean outerClassSeen = false;
+        int i = start;
+        while (true) {
+            char c = s.charAt(i);
+            if (c == ';' || c == '<') {
+                if (!outerClassSeen) {
+                    classNames.add(s.substring(start, i).replace('/', '.'));
+                    outerClassSeen = true;
+                }
+                if (c == ';') {
+                    return i + 1;
+                }
+                i = parseTypeArguments(s, i + 1, classNames);
+            } else {
+                // a '.' after type arguments starts the simple name of an inner class, which we skip
+                i++;
+            }
+        }
+    }
+
+    private static int parseTypeArguments(String s, int start, Collection<String> classNames) {
+        int i = start;
+        while (s.charAt(i) != '>') {
+            char c = s.charAt(i);
+            if (c == '*') {
+                i++;
+            } else if (c == '+' || c == '-') {
+                i = parseType(s, i + 1, classNames);
+            } else {
+                i = parseType(s, i, classNames);
+            }
+        }
+        return i + 1;
+    }
+
+    private TypeSignatures() {
+        // Don't instantiate
+    }
+}
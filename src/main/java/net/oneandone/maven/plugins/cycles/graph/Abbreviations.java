@@ -0,0 +1,160 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * An immutable table of abbreviated package and class names, computed once for all names of a run.
+ * All segments but the last one are abbreviated to their shortest prefix that is unique among the 
+ * segments following the same parent, so <code>com.acme.parser</code> and <code>com.acme.printer</code> 
+ * become <code>c.a.parser</code> and <code>c.a.printer</code>, while <code>com.acme.parser.Foo</code> and
+ * <code>com.acme.printer.Foo</code> become <code>c.a.pa.Foo</code> and <code>c.a.pr.Foo</code>. Distinct names
+ * thus always have distinct abbreviations.
+ *
+ * @author chschmitz
+ */
+public final class Abbreviations {
+    private static final Abbreviations NONE = new Abbreviations();
+
+    private final Node root;
+    private final Map<String, String> table;
+
+    /**
+     * @param names all names that are going to be abbreviated
+     * @return the abbreviations of the names
+     */
+    public static Abbreviations of(Iterable<String> names) {
+        return new Abbreviations(names);
+    }
+
+    /**
+     * @return abbreviations that leave every name as it is
+     */
+    public static Abbreviations none() {
+        return NONE;
+    }
+
+    private Abbreviations() {
+        root = null;
+        table = ImmutableMap.of();
+    }
+
+    private Abbreviations(Iterable<String> names) {
+        root = new Node();
+        for (String name : names) {
+            Node node = root;
+            int start = 0;
+            int dot;
+            while ((dot = name.indexOf('.', start)) >= 0) {
+                node = node.child(name.substring(start, dot));
+                start = dot + 1;
+            }
+        }
+        root.abbreviateChildren();
+        Map<String, String> abbreviations = Maps.newHashMap();
+        for (String name : names) {
+            abbreviations.put(name, lookUp(name));
+        }
+        table = ImmutableMap.copyOf(abbreviations);
+    }
+
+    /**
+     * @param name a name; names that were not known when the table was built are abbreviated as far as 
+     * their segments are known, and to their first letters otherwise
+     * @return the abbreviated name
+     */
+    public String abbreviate(String name) {
+        if (root == null) {
+            return name;
+        }
+        String abbreviation = table.get(name);
+        return abbreviation != null ? abbreviation : lookUp(name);
+    }
+
+    private String lookUp(String name) {
+        StringBuilder result = new StringBuilder(name.length());
+        Node node = root;
+        int start = 0;
+        int dot;
+        while ((dot = name.indexOf('.', start)) >= 0) {
+            Node child = node == null || node.children == null ? null : node.children.get(name.substring(start, dot));
+            result.append(child != null ? child.abbreviation : name.substring(start, Math.min(start + 1, dot)));
+            result.append('.');
+            node = child;
+            start = dot + 1;
+        }
+        return result.append(name, start, name.length()).toString();
+    }
+
+    /**
+     * A node of the trie of name segments. Only segments that are followed by further segments are stored,
+     * since the last segment is never abbreviated.
+     */
+    private static final class Node {
+        private Map<String, Node> children;
+        private String abbreviation;
+
+        Node child(String segment) {
+            if (children == null) {
+                children = Maps.newHashMap();
+            }
+            Node child = children.get(segment);
+            if (child == null) {
+                child = new Node();
+                children.put(segment, child);
+            }
+            return child;
+        }
+
+        /**
+         * In sorted order, the shortest unique prefix of a segment is one character longer than its longest 
+         * common prefix with either neighbour.
+         */
+        void abbreviateChildren() {
+            if (children == null) {
+                return;
+            }
+            String[] segments = children.keySet().toArray(new String[children.size()]);
+            Arrays.sort(segments);
+            for (int i = 0; i < segments.length; i++) {
+                int common = 0;
+                if (i > 0) {
+                    common = commonPrefixLength(segments[i - 1], segments[i]);
+                }
+                if (i + 1 < segments.length) {
+                    common = Math.max(common, commonPrefixLength(segments[i], segments[i + 1]));
+                }
+                Node child = children.get(segments[i]);
+                child.abbreviation = segments[i].substring(0, Math.min(common + 1, segments[i].length()));
+                child.abbreviateChildren();
+            }
+        }
+
+        private static int commonPrefixLength(String a, String b) {
+            int length = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < length && a.charAt(i) == b.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
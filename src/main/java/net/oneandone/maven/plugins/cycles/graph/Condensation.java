@@ -0,0 +1,230 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+
+/**
+ * The condensation of a graph: the DAG with one node per strongly connected component. Comes with
+ * topological levels and a transitive closure stored as one bit set per component, so that
+ * "does A transitively depend on B?" is a single bit lookup.
+ *
+ * Building the DAG and the levels takes linear time; the closure needs O(C * E / 64) word operations 
+ * and C * C bits for C components.
+ *
+ * @author chschmitz
+ * @param <V> vertex type
+ */
+public final class Condensation<V> {
+    private final List<Set<V>> components;
+    private final Map<V, Integer> componentOf;
+    private final int[][] successors;
+    private final int[] topologicalOrder;
+    private final int[] level;
+    private final BitSet[] reachable;
+    private final int[] dependencyCount;
+    private final int[] dependentCount;
+
+    /**
+     * @param graph a graph
+     */
+    public Condensation(DirectedGraph<V, ?> graph) {
+        this(graph, StronglyConnectedComponents.strongComponentsAsSets(graph));
+    }
+
+    /**
+     * @param graph a graph
+     * @param strongComponents its strongly connected components
+     */
+    public Condensation(DirectedGraph<V, ?> graph, Collection<? extends Set<V>> strongComponents) {
+        components = Lists.newArrayListWithCapacity(strongComponents.size());
+        componentOf = Maps.newHashMapWithExpectedSize(graph.getVertexCount());
+        for (Set<V> component : strongComponents) {
+            for (V vertex : component) {
+                componentOf.put(vertex, components.size());
+            }
+            components.add(ImmutableSet.copyOf(component));
+        }
+        successors = buildDag(graph);
+        topologicalOrder = topologicalOrder();
+        level = new int[components.size()];
+        reachable = new BitSet[components.size()];
+        dependencyCount = new int[components.size()];
+        dependentCount = new int[components.size()];
+        buildClosure();
+    }
+
+    /**
+     * Successors of each component, each one only once; a stamp per component avoids a set per component.
+     */
+    private int[][] buildDag(DirectedGraph<V, ?> graph) {
+        int[][] dag = new int[components.size()][];
+        int[] seen = new int[components.size()];
+        Arrays.fill(seen, -1);
+        int[] buffer = new int[components.size()];
+        for (int c = 0; c < components.size(); c++) {
+            int count = 0;
+            for (V vertex : components.get(c)) {
+                for (V successor : graph.getSuccessors(vertex)) {
+                    int d = componentOf.get(successor);
+                    if (d != c && seen[d] != c) {
+                        seen[d] = c;
+                        buffer[count++] = d;
+                    }
+                }
+            }
+            dag[c] = Arrays.copyOf(buffer, count);
+        }
+        return dag;
+    }
+
+    /**
+     * Kahn's algorithm.
+     * 
+     * @return the components such that each one comes before the ones it depends on
+     */
+    private int[] topologicalOrder() {
+        int[] inDegree = new int[components.size()];
+        for (int[] dependencies : successors) {
+            for (int d : dependencies) {
+                inDegree[d]++;
+            }
+        }
+        int[] order = new int[components.size()];
+        int tail = 0;
+        for (int c = 0; c < components.size(); c++) {
+            if (inDegree[c] == 0) {
+                order[tail++] = c;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            for (int d : successors[order[head]]) {
+                if (--inDegree[d] == 0) {
+                    order[tail++] = d;
+                }
+            }
+        }
+        return order;
+    }
+
+    private void buildClosure() {
+        for (int i = topologicalOrder.length - 1; i >= 0; i--) {
+            int c = topologicalOrder[i];
+            BitSet reach = new BitSet(components.size());
+            for (int d : successors[c]) {
+                reach.set(d);
+                reach.or(reachable[d]);
+                level[c] = Math.max(level[c], level[d] + 1);
+            }
+            reachable[c] = reach;
+        }
+        for (int c = 0; c < components.size(); c++) {
+            // the other members of a cycle count as dependencies, too
+            int count = components.get(c).size() - 1;
+            for (int d = reachable[c].nextSetBit(0); d >= 0; d = reachable[c].nextSetBit(d + 1)) {
+                count += components.get(d).size();
+                dependentCount[d] += components.get(c).size();
+            }
+            dependencyCount[c] = count;
+            dependentCount[c] += components.get(c).size() - 1;
+        }
+    }
+
+    public int getComponentCount() {
+        return components.size();
+    }
+
+    /**
+     * @param c a component number
+     * @return the vertices of the component
+     */
+    public Set<V> getComponent(int c) {
+        return components.get(c);
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return the number of its component
+     */
+    public int getComponentOf(V vertex) {
+        return componentOf.get(vertex);
+    }
+
+    /**
+     * @param c a component number
+     * @return the numbers of the components c depends on directly
+     */
+    public int[] getSuccessors(int c) {
+        return successors[c].clone();
+    }
+
+    /**
+     * @return the component numbers such that each one comes before the ones it depends on
+     */
+    public int[] getTopologicalOrder() {
+        return topologicalOrder.clone();
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return the length of the longest dependency chain in the condensation starting at the vertex's 
+     * component; 0 iff the component depends on no other component
+     */
+    public int getLevel(V vertex) {
+        return level[getComponentOf(vertex)];
+    }
+
+    /**
+     * @param from a vertex
+     * @param to another vertex
+     * @return true iff there is a non-empty path from <code>from</code> to <code>to</code>
+     */
+    public boolean dependsOn(V from, V to) {
+        int c = getComponentOf(from);
+        int d = getComponentOf(to);
+        if (c == d) {
+            return components.get(c).size() > 1;
+        }
+        return reachable[c].get(d);
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return the number of other vertices it transitively depends on
+     */
+    public int getDependencyCount(V vertex) {
+        return dependencyCount[getComponentOf(vertex)];
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return the number of other vertices transitively depending on it
+     */
+    public int getDependentCount(V vertex) {
+        return dependentCount[getComponentOf(vertex)];
+    }
+}
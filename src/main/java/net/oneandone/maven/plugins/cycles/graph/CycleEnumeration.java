@@ -0,0 +1,49 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import java.util.List;
+
+/**
+ * Result of a bounded enumeration of elementary cycles.
+ *
+ * @author chschmitz
+ * @param <V> vertex type
+ */
+public final class CycleEnumeration<V> {
+    private final List<List<V>> cycles;
+    private final boolean complete;
+
+    CycleEnumeration(List<List<V>> cycles, boolean complete) {
+        this.cycles = cycles;
+        this.complete = complete;
+    }
+
+    /**
+     * @return the cycles found, each as the list of its vertices
+     */
+    public List<List<V>> getCycles() {
+        return cycles;
+    }
+
+    /**
+     * @return false iff the enumeration was stopped by the count or time bound; cycles longer than
+     * the length bound are never reported
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
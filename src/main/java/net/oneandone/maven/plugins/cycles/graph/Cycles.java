@@ -0,0 +1,192 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Finds concrete cycles in a strong component, to explain what a dependency takes part in.
+ *
+ * Enumeration follows: Donald B. Johnson. "Finding all the elementary circuits of a directed graph".
+ * SIAM Journal on Computing 4 (1) (1975), p. 77-84; bounded by cycle length, count and time.
+ *
+ * @author chschmitz
+ */
+public final class Cycles {
+
+    /**
+     * Breadth-first search from the destination back to the source of an edge.
+     *
+     * @param graph a graph
+     * @param from source vertex number of an edge
+     * @param to destination vertex number of that edge
+     * @return a shortest cycle through the edge as vertex numbers, starting with <code>from</code>;
+     * null if the edge is not part of a cycle
+     */
+    public static int[] shortestCycle(IndexedGraph<?, ?> graph, int from, int to) {
+        int[] parent = new int[graph.getVertexCount()];
+        Arrays.fill(parent, -1);
+        int[] queue = new int[graph.getVertexCount()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = to;
+        parent[to] = to;
+        while (head < tail && parent[from] < 0) {
+            int v = queue[head++];
+            for (int i = graph.outStart(v); i < graph.outEnd(v); i++) {
+                int w = graph.getTarget(i);
+                if (parent[w] < 0) {
+                    parent[w] = v;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        if (parent[from] < 0) {
+            return null;
+        }
+        int length = 1;
+        for (int v = from; v != to; v = parent[v]) {
+            length++;
+        }
+        // the path found is to, ..., from, and from -> to closes the cycle
+        int[] cycle = new int[length];
+        int position = length - 1;
+        for (int v = parent[from]; position > 0; v = parent[v]) {
+            cycle[position--] = v;
+        }
+        cycle[0] = from;
+        return cycle;
+    }
+
+    /**
+     * Enumerates elementary cycles until one of the bounds is hit.
+     *
+     * @param graph a graph
+     * @param maxLength maximum number of vertices of a cycle
+     * @param maxCount maximum number of cycles
+     * @param timeoutMillis maximum running time
+     * @param <V> vertex type
+     * @return the cycles found
+     */
+    public static <V> CycleEnumeration<V> elementaryCycles(IndexedGraph<V, ?> graph, int maxLength, int maxCount,
+            long timeoutMillis) {
+        Johnson johnson = new Johnson(graph, maxLength, maxCount, System.nanoTime() + timeoutMillis * 1000000L);
+        johnson.run();
+        List<List<V>> cycles = Lists.newArrayListWithCapacity(johnson.cycles.size());
+        for (int[] cycle : johnson.cycles) {
+            cycles.add(graph.getVertices(cycle));
+        }
+        return new CycleEnumeration<V>(cycles, johnson.complete);
+    }
+
+    /**
+     * Johnson's algorithm; cycles longer than the bound are treated as if they had been found, so
+     * that no vertex stays blocked because of the bound.
+     */
+    private static final class Johnson {
+        private final IndexedGraph<?, ?> graph;
+        private final int maxLength;
+        private final int maxCount;
+        private final long deadline;
+        private final boolean[] blocked;
+        private final List<Set<Integer>> blockedBy;
+        private final int[] stack;
+        private final List<int[]> cycles = Lists.newArrayList();
+        private int depth;
+        private int start;
+        private boolean complete = true;
+
+        Johnson(IndexedGraph<?, ?> graph, int maxLength, int maxCount, long deadline) {
+            this.graph = graph;
+            this.maxLength = maxLength;
+            this.maxCount = maxCount;
+            this.deadline = deadline;
+            blocked = new boolean[graph.getVertexCount()];
+            blockedBy = Lists.newArrayListWithCapacity(graph.getVertexCount());
+            for (int v = 0; v < graph.getVertexCount(); v++) {
+                blockedBy.add(Sets.<Integer>newHashSet());
+            }
+            stack = new int[graph.getVertexCount()];
+        }
+
+        void run() {
+            for (start = 0; start < graph.getVertexCount() && complete; start++) {
+                for (int v = start; v < graph.getVertexCount(); v++) {
+                    blocked[v] = false;
+                    blockedBy.get(v).clear();
+                }
+                circuit(start);
+            }
+        }
+
+        private boolean circuit(int v) {
+            if (System.nanoTime() > deadline) {
+                complete = false;
+            }
+            boolean found = false;
+            stack[depth++] = v;
+            blocked[v] = true;
+            for (int i = graph.outStart(v); i < graph.outEnd(v) && complete; i++) {
+                int w = graph.getTarget(i);
+                if (w < start) {
+                    continue;
+                }
+                if (w == start) {
+                    cycles.add(Arrays.copyOf(stack, depth));
+                    found = true;
+                    if (cycles.size() >= maxCount) {
+                        complete = false;
+                    }
+                } else if (depth >= maxLength) {
+                    found = true;
+                } else if (!blocked[w] && circuit(w)) {
+                    found = true;
+                }
+            }
+            if (found) {
+                unblock(v);
+            } else {
+                for (int i = graph.outStart(v); i < graph.outEnd(v); i++) {
+                    int w = graph.getTarget(i);
+                    if (w >= start) {
+                        blockedBy.get(w).add(v);
+                    }
+                }
+            }
+            depth--;
+            return found;
+        }
+
+        private void unblock(int v) {
+            blocked[v] = false;
+            for (Integer w : blockedBy.get(v)) {
+                if (blocked[w]) {
+                    unblock(w);
+                }
+            }
+            blockedBy.get(v).clear();
+        }
+    }
+
+    private Cycles() {
+        // Don't instantiate
+    }
+}
@@ -18,6 +18,9 @@ package net.oneandone.maven.plugins.cycles.graph;
 import java.util.Collection;
 import java.util.List;
 
+import net.oneandone.maven.plugins.cycles.classes.Events;
+import net.oneandone.maven.plugins.cycles.classes.Phase;
+
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
@@ -61,23 +64,31 @@ public final class FeedbackArcSet {
      */
     public static <V, E> Collection<E> feedbackArcs(DirectedGraph<V, E> graph, 
             VertexEvaluator<V, DirectedGraph<V, E>> evaluator) {
-        return ImmutableList.copyOf(Collections2.filter(graph.getEdges(), 
-                isBackwardEdge(vertexOrdering(graph, evaluator), graph)));
+        return feedbackArcs(graph, vertexOrder(graph, evaluator));
     }
 
-    private static <V, E> Predicate<E> isBackwardEdge(final Ordering<V> ordering, 
-            final DirectedGraph<V, E> graph) {
-        return new Predicate<E>() {
-            public boolean apply(E edge) {
-                V from = graph.getSource(edge);
-                V to = graph.getDest(edge);
-                return ordering.compare(from, to) > 0;
-            }
-        };
+    /**
+     * @param graph a directed graph
+     * @param vertexOrder all vertices of the graph, as computed by {@link #vertexOrder(DirectedGraph, VertexEvaluator)}
+     * @param <V> vertex type
+     * @param <E> edge type
+     * @return the edges pointing backwards in the order, i.e., the feedback arcs it stands for
+     */
+    public static <V, E> Collection<E> feedbackArcs(DirectedGraph<V, E> graph, List<V> vertexOrder) {
+        return ImmutableList.copyOf(Collections2.filter(graph.getEdges(), 
+                isBackwardEdge(Ordering.explicit(vertexOrder), graph)));
     }
 
-    private static <V, E> Ordering<V> vertexOrdering(DirectedGraph<V, E> graph,
+    /**
+     * @param graph a directed graph
+     * @param evaluator a vertex evaluator
+     * @param <V> vertex type
+     * @param <E> edge type
+     * @return the vertices in an order such that the edges pointing backwards are the feedback arcs
+     */
+    public static <V, E> List<V> vertexOrder(DirectedGraph<V, E> graph, 
             VertexEvaluator<V, DirectedGraph<V, E>> evaluator) {
+        Phase phase = Events.component("feedback arc set");
         List<V> front = Lists.newLinkedList();
         List<V> back = Lists.newLinkedList();
 
@@ -90,7 +101,19 @@ public final class FeedbackArcSet {
             collectMaxDelta(g, front, evaluator);
         }
 
-        return Ordering.explicit(Lists.newArrayList(Iterables.concat(front, back)));
+        phase.end(graph.getVertexCount(), graph.getEdgeCount());
+        return Lists.newArrayList(Iterables.concat(front, back));
+    }
+
+    private static <V, E> Predicate<E> isBackwardEdge(final Ordering<V> ordering, 
+            final DirectedGraph<V, E> graph) {
+        return new Predicate<E>() {
+            public boolean apply(E edge) {
+                V from = graph.getSource(edge);
+                V to = graph.getDest(edge);
+                return ordering.compare(from, to) > 0;
+            }
+        };
     }
 
     private static <V, E> void collectMaxDelta(DirectedGraph<V, E> g, List<V> front,
@@ -25,6 +25,7 @@ import net.oneandone.maven.plugins.cycles.classes.ClassDependency;
 import net.oneandone.maven.plugins.cycles.classes.PackageDependencies;
 import net.oneandone.maven.plugins.cycles.classes.PackageDependency;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 
 import edu.uci.ics.jung.graph.DirectedGraph;
@@ -57,9 +58,27 @@ public final class GraphBuilder {
     public static DirectedGraph<String, WeightedEdge> buildPackageGraph(Predicate<String> nameFilter, int packageDepth, 
             File... classDirs) throws IOException {
         
-        ClassDependencies classDependencies = new ClassDependencies(nameFilter, classDirs);
-        PackageDependencies packageDependencies = new PackageDependencies(classDependencies, packageDepth);
-        return buildGraph(packageDependencies);
+        return buildPackageGraph(new ClassDependencies(nameFilter, classDirs), packageDepth);
+    }
+
+    /**
+     * @param classDependencies class-level dependencies that have already been parsed
+     * @param packageDepth depth to which package names are aggregated (1 = "com", 2 = "com.unitedinternet", etc.)
+     * @return a directed graph of package dependencies
+     */
+    public static DirectedGraph<String, WeightedEdge> buildPackageGraph(ClassDependencies classDependencies, 
+            int packageDepth) {
+        return buildGraph(new PackageDependencies(classDependencies, packageDepth));
+    }
+
+    /**
+     * @param classDependencies class-level dependencies that have already been parsed
+     * @param packageNames maps class names to package vertices; classes mapped to null are left out
+     * @return a directed graph of package dependencies
+     */
+    public static DirectedGraph<String, WeightedEdge> buildPackageGraph(ClassDependencies classDependencies, 
+            Function<String, String> packageNames) {
+        return buildGraph(new PackageDependencies(classDependencies, packageNames));
     }
 
     private static DirectedGraph<String, WeightedEdge> buildGraph(PackageDependencies packageDependencies) {
@@ -16,21 +16,44 @@
 package net.oneandone.maven.plugins.cycles.graph;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeSet;
 
+import net.oneandone.maven.plugins.cycles.classes.DependencyKind;
+import net.oneandone.maven.plugins.cycles.classes.Events;
+import net.oneandone.maven.plugins.cycles.classes.Phase;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
+import com.google.common.collect.TreeMultimap;
 
 import edu.uci.ics.jung.graph.DirectedGraph;
 
 /**
  * Bits and pieces for Graphviz output.
  *
+ * Packages are grouped into <code>subgraph cluster_*</code> blocks by the first package segment
+ * below the common prefix of the component. Components too large for Graphviz to lay out in
+ * reasonable time are split into an overview graph with one node per cluster and a detail graph
+ * per cluster; clusters that are still too large are split the same way by their next package segment.
+ *
  * @author jgrote
  */
 public final class GraphDotUtils {
     private static final double FONT_SIZE = 20.0;
     private static final double STANDARD_FONTSIZE = 14.0;
+    private static final String FEEDBACK_STYLE = ",color=red,fontcolor=red,penwidth=3";
+    private static final String NEIGHBOUR_STYLE = ",style=dashed";
+    private static final Splitter SEGMENTS = Splitter.on('.');
 
     /**
      * @param component a graph
@@ -38,30 +61,286 @@ public final class GraphDotUtils {
      * @return a dot string
      */
     public static String toDot(DirectedGraph<String, WeightedEdge> component, boolean shorten) {
-        StringBuilder builder = new StringBuilder();
-        Collection<WeightedEdge> feedbackArcs = FeedbackArcSet.feedbackArcs(component,
-                new InstabilityVertexEvaluator<String>());
+        return toDot(component, abbreviations(component, shorten));
+    }
+
+    /**
+     * @param component a graph
+     * @param abbreviations the abbreviations of the run
+     * @return a dot string
+     */
+    public static String toDot(DirectedGraph<String, WeightedEdge> component, Abbreviations abbreviations) {
+        return toDot(component, abbreviations, feedbackArcs(component, DependencyKind.ALL), 
+                clusters(component.getVertices()));
+    }
+
+    /**
+     * @param component a graph
+     * @param shorten whether to shorten the package names
+     * @param maxVertices the maximum number of packages in a single graph
+     * @return the dot strings by file name suffix, see {@link #toDotFiles(DirectedGraph, Abbreviations, int)}
+     */
+    public static Map<String, String> toDotFiles(DirectedGraph<String, WeightedEdge> component, boolean shorten,
+            int maxVertices) {
+        return toDotFiles(component, abbreviations(component, shorten), maxVertices);
+    }
+
+    static Abbreviations abbreviations(DirectedGraph<String, WeightedEdge> component, boolean shorten) {
+        return shorten ? Abbreviations.of(component.getVertices()) : Abbreviations.none();
+    }
+
+    /**
+     * @param component a graph
+     * @param abbreviations the abbreviations of the run
+     * @param maxVertices the maximum number of packages in a single graph
+     * @return the dot strings by file name suffix: the complete graph under "" if it has at most
+     * <code>maxVertices</code> packages; an overview under "" and one detail graph per cluster under 
+     * "-&lt;cluster number&gt;" otherwise, numbered in alphabetical order of the clusters. A cluster with more 
+     * than <code>maxVertices</code> packages gets an overview of its own sub-clusters instead, whose detail 
+     * graphs are numbered "-&lt;cluster number&gt;-&lt;sub-cluster number&gt;", and so on.
+     */
+    public static Map<String, String> toDotFiles(DirectedGraph<String, WeightedEdge> component, 
+            Abbreviations abbreviations, int maxVertices) {
+        return toDotFiles(component, abbreviations, maxVertices, DependencyKind.ALL);
+    }
+
+    /**
+     * @param component a graph
+     * @param abbreviations the abbreviations of the run
+     * @param maxVertices the maximum number of packages in a single graph
+     * @param kindMask the {@link DependencyKind}s of the class dependencies that count when breaking cycles
+     * @return the dot strings by file name suffix, see {@link #toDotFiles(DirectedGraph, Abbreviations, int)}
+     */
+    public static Map<String, String> toDotFiles(DirectedGraph<String, WeightedEdge> component, 
+            Abbreviations abbreviations, int maxVertices, int kindMask) {
+        return toDotFiles(component, abbreviations, maxVertices, feedbackArcs(component, kindMask));
+    }
+
+    /**
+     * @param component a graph
+     * @param abbreviations the abbreviations of the run
+     * @param maxVertices the maximum number of packages in a single graph
+     * @param feedbackArcs the feedback arcs of the component, highlighted in the graphs
+     * @return the dot strings by file name suffix, see {@link #toDotFiles(DirectedGraph, Abbreviations, int)}
+     */
+    public static Map<String, String> toDotFiles(DirectedGraph<String, WeightedEdge> component, 
+            Abbreviations abbreviations, int maxVertices, Collection<WeightedEdge> feedbackArcs) {
+        Phase phase = Events.component("dot");
+        Map<String, String> files = dotFiles(component, abbreviations, maxVertices, feedbackArcs);
+        phase.end(component.getVertexCount(), component.getEdgeCount());
+        return files;
+    }
+
+    private static Map<String, String> dotFiles(DirectedGraph<String, WeightedEdge> component, 
+            Abbreviations abbreviations, int maxVertices, Collection<WeightedEdge> feedbackArcs) {
+        Map<String, String> files = Maps.newLinkedHashMap();
+        if (component.getVertexCount() <= maxVertices) {
+            files.put("", toDot(component, abbreviations, feedbackArcs, clusters(component.getVertices())));
+        } else {
+            splitDotFiles(component, abbreviations, maxVertices, feedbackArcs, component.getVertices(), 
+                    Collections.<String, String>emptyMap(), "", files);
+        }
+        return files;
+    }
+
+    /**
+     * Writes an overview of the clusters of some packages and a detail graph per cluster, splitting the
+     * clusters with more than <code>maxVertices</code> packages recursively.
+     *
+     * @param packages the packages to split, more than <code>maxVertices</code>
+     * @param outerClusterOf the clusters the packages outside of <code>packages</code> are shown as
+     * @param suffix the file name suffix of the overview
+     * @param files receives the dot strings by file name suffix
+     */
+    private static void splitDotFiles(DirectedGraph<String, WeightedEdge> component, Abbreviations abbreviations, 
+            int maxVertices, Collection<WeightedEdge> feedbackArcs, Collection<String> packages, 
+            Map<String, String> outerClusterOf, String suffix, Map<String, String> files) {
+        TreeMultimap<String, String> clusters = clusters(packages);
+        Map<String, String> clusterOf = Maps.newHashMap(outerClusterOf);
+        for (Map.Entry<String, String> entry : clusters.entries()) {
+            clusterOf.put(entry.getValue(), entry.getKey());
+        }
+        files.put(suffix, overviewToDot(component, abbreviations, feedbackArcs, clusters, clusterOf));
+        int clusterNumber = 0;
+        for (Map.Entry<String, Collection<String>> cluster : clusters.asMap().entrySet()) {
+            String clusterSuffix = suffix + "-" + clusterNumber;
+            if (cluster.getValue().size() > Math.max(maxVertices, 1)) {
+                splitDotFiles(component, abbreviations, maxVertices, feedbackArcs, cluster.getValue(), clusterOf, 
+                        clusterSuffix, files);
+            } else if (cluster.getValue().size() > 1) {
+                files.put(clusterSuffix, clusterToDot(component, abbreviations, feedbackArcs, cluster.getKey(), 
+                        clusterOf));
+            }
+            clusterNumber++;
+        }
+    }
 
+    private static Collection<WeightedEdge> feedbackArcs(DirectedGraph<String, WeightedEdge> component, 
+            int kindMask) {
+        return FeedbackArcSet.feedbackArcs(component, new InstabilityVertexEvaluator<String>(kindMask));
+    }
+
+    private static String toDot(DirectedGraph<String, WeightedEdge> component, Abbreviations abbreviations,
+            Collection<WeightedEdge> feedbackArcs, TreeMultimap<String, String> clusters) {
+        StringBuilder builder = new StringBuilder();
         TreeSet<WeightedEdge> sortedEdges = Sets.newTreeSet(new WeightedEdgeComparator(component));
         sortedEdges.addAll(component.getEdges());
 
         builder.append("digraph mygraph {\n");
+        int clusterNumber = 0;
+        for (Map.Entry<String, Collection<String>> cluster : clusters.asMap().entrySet()) {
+            if (cluster.getValue().size() > 1) {
+                builder.append(String.format("    subgraph cluster_%d {\n        label=\"%s\";\n", 
+                        clusterNumber, abbreviations.abbreviate(cluster.getKey())));
+                for (String vertex : cluster.getValue()) {
+                    builder.append(String.format("        \"%s\";\n", abbreviations.abbreviate(vertex)));
+                }
+                builder.append("    }\n");
+            }
+            clusterNumber++;
+        }
         double maxEdgeWeight = getMaxEdgeWeight(component);
         for (WeightedEdge edge : sortedEdges) {
-            builder.append(formatEdge(component, shorten, feedbackArcs, edge, maxEdgeWeight));
+            builder.append(formatEdge(GraphDotUtils.edgeToDot(edge, component, abbreviations), 
+                    (int) edge.getWeight(), maxEdgeWeight, feedbackArcs.contains(edge) ? FEEDBACK_STYLE : ""));
+        }
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    private static String overviewToDot(DirectedGraph<String, WeightedEdge> component, Abbreviations abbreviations,
+            Collection<WeightedEdge> feedbackArcs, TreeMultimap<String, String> clusters, 
+            Map<String, String> clusterOf) {
+        Set<String> packages = Sets.newHashSet(clusters.values());
+        SortedMap<String, Integer> weights = Maps.newTreeMap();
+        Collection<String> feedbackPairs = Sets.newHashSet();
+        Collection<String> neighbourPairs = Sets.newHashSet();
+        Collection<String> neighbourClusters = Sets.newTreeSet();
+        for (WeightedEdge edge : component.getEdges()) {
+            boolean fromInside = packages.contains(component.getSource(edge));
+            boolean toInside = packages.contains(component.getDest(edge));
+            String from = clusterOf.get(component.getSource(edge));
+            String to = clusterOf.get(component.getDest(edge));
+            if ((fromInside || toInside) && !from.equals(to)) {
+                String pair = clusterEdgeToDot(from, to, abbreviations);
+                Integer weight = weights.get(pair);
+                weights.put(pair, (weight == null ? 0 : weight) + (int) edge.getWeight());
+                if (feedbackArcs.contains(edge)) {
+                    feedbackPairs.add(pair);
+                }
+                if (!fromInside || !toInside) {
+                    neighbourPairs.add(pair);
+                    neighbourClusters.add(fromInside ? to : from);
+                }
+            }
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("digraph mygraph {\n");
+        for (String neighbour : neighbourClusters) {
+            builder.append(String.format("    \"%s\" [shape=box,style=dashed];\n", 
+                    abbreviations.abbreviate(neighbour)));
+        }
+        for (Map.Entry<String, Collection<String>> cluster : clusters.asMap().entrySet()) {
+            if (cluster.getValue().size() > 1) {
+                String name = abbreviations.abbreviate(cluster.getKey());
+                builder.append(String.format("    \"%s\" [shape=box,label=\"%s.*\\n(%d packages)\"];\n",
+                        name, name, cluster.getValue().size()));
+            }
+        }
+        double maxEdgeWeight = weights.isEmpty() ? 1 : Collections.max(weights.values());
+        for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+            String style = feedbackPairs.contains(weight.getKey()) ? FEEDBACK_STYLE : "";
+            if (neighbourPairs.contains(weight.getKey())) {
+                style += NEIGHBOUR_STYLE;
+            }
+            builder.append(formatEdge(weight.getKey(), weight.getValue(), maxEdgeWeight, style));
+        }
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    private static String clusterToDot(DirectedGraph<String, WeightedEdge> component, Abbreviations abbreviations,
+            Collection<WeightedEdge> feedbackArcs, String cluster, Map<String, String> clusterOf) {
+        TreeSet<WeightedEdge> sortedEdges = Sets.newTreeSet(new WeightedEdgeComparator(component));
+        Collection<String> neighbourClusters = Sets.newTreeSet();
+        for (WeightedEdge edge : component.getEdges()) {
+            String from = clusterOf.get(component.getSource(edge));
+            String to = clusterOf.get(component.getDest(edge));
+            if (from.equals(cluster) || to.equals(cluster)) {
+                sortedEdges.add(edge);
+                if (!from.equals(to)) {
+                    neighbourClusters.add(from.equals(cluster) ? to : from);
+                }
+            }
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("digraph mygraph {\n");
+        for (String neighbour : neighbourClusters) {
+            builder.append(String.format("    \"%s\" [shape=box,style=dashed];\n", 
+                    abbreviations.abbreviate(neighbour)));
+        }
+        double maxEdgeWeight = sortedEdges.isEmpty() ? 1 : sortedEdges.first().getWeight();
+        for (WeightedEdge edge : sortedEdges) {
+            String from = component.getSource(edge);
+            String to = component.getDest(edge);
+            String style = feedbackArcs.contains(edge) ? FEEDBACK_STYLE : "";
+            if (!clusterOf.get(from).equals(cluster)) {
+                from = clusterOf.get(from);
+                style += NEIGHBOUR_STYLE;
+            } else if (!clusterOf.get(to).equals(cluster)) {
+                to = clusterOf.get(to);
+                style += NEIGHBOUR_STYLE;
+            }
+            builder.append(formatEdge(clusterEdgeToDot(from, to, abbreviations), (int) edge.getWeight(), 
+                    maxEdgeWeight, style));
         }
         builder.append("}\n");
         return builder.toString();
     }
 
-    private static String formatEdge(DirectedGraph<String, WeightedEdge> component, boolean shorten,
-            Collection<WeightedEdge> feedbackArcs, WeightedEdge edge, double maxEdgeWeight) {
-        double relativeImportance = edge.getWeight() / maxEdgeWeight;
+    /**
+     * Groups packages by their prefix one segment below the common prefix of all of them.
+     * 
+     * @param packages package names
+     * @return the packages by cluster prefix
+     */
+    static TreeMultimap<String, String> clusters(Collection<String> packages) {
+        int depth = commonPrefixLength(packages) + 1;
+        TreeMultimap<String, String> clusters = TreeMultimap.create();
+        for (String pkg : packages) {
+            clusters.put(Joiner.on('.').join(Iterables.limit(SEGMENTS.split(pkg), depth)), pkg);
+        }
+        return clusters;
+    }
+
+    private static int commonPrefixLength(Collection<String> packages) {
+        if (packages.isEmpty()) {
+            return 0;
+        }
+        List<String> prefix = Lists.newArrayList(SEGMENTS.split(Iterables.get(packages, 0)));
+        int length = prefix.size();
+        for (String pkg : packages) {
+            int i = 0;
+            for (String segment : Iterables.limit(SEGMENTS.split(pkg), length)) {
+                if (!segment.equals(prefix.get(i))) {
+                    break;
+                }
+                i++;
+            }
+            length = i;
+        }
+        return length;
+    }
+
+    private static String formatEdge(String edgeDot, int weight, double maxEdgeWeight, String style) {
+        double relativeImportance = weight / maxEdgeWeight;
         return String.format("    %s [label=\"%d\", fontsize=%f%s];\n",
-            GraphDotUtils.edgeToDot(edge, component, shorten),
-            (int) edge.getWeight(),
+            edgeDot,
+            weight,
             (STANDARD_FONTSIZE + (FONT_SIZE * relativeImportance)),
-            feedbackArcs.contains(edge) ? ",color=red,fontcolor=red,penwidth=3" : ""
+            style
         );
     }
 
@@ -72,12 +351,16 @@ public final class GraphDotUtils {
     /**
      * @param edge an edge
      * @param g a graph
-     * @param shorten whether to shorten the class names
+     * @param abbreviations the abbreviations of the run
      * @return the dot representation (shortened)
      */
-    public static String edgeToDot(WeightedEdge edge, DirectedGraph<String, WeightedEdge> g, boolean shorten) {
-        return "\"" + GraphStringUtils.shorten(g.getSource(edge), shorten) + "\" -> \"" 
-                + GraphStringUtils.shorten(g.getDest(edge), shorten) + "\"";
+    public static String edgeToDot(WeightedEdge edge, DirectedGraph<String, WeightedEdge> g, 
+            Abbreviations abbreviations) {
+        return clusterEdgeToDot(g.getSource(edge), g.getDest(edge), abbreviations);
+    }
+
+    private static String clusterEdgeToDot(String from, String to, Abbreviations abbreviations) {
+        return "\"" + abbreviations.abbreviate(from) + "\" -> \"" + abbreviations.abbreviate(to) + "\"";
     }
     
     private GraphDotUtils() {
@@ -0,0 +1,192 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import net.oneandone.maven.plugins.cycles.classes.ClassDependencies;
+import net.oneandone.maven.plugins.cycles.classes.ClassDependency;
+import net.oneandone.maven.plugins.cycles.classes.ClassGraph;
+import net.oneandone.maven.plugins.cycles.classes.DependencyKind;
+
+import com.google.common.base.Function;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+
+/**
+ * Streams the whole package graph, or the class graph, as GraphML for tools like Gephi or graph databases.
+ * Nodes carry the number and size of their strong component, edges their weight, their {@link DependencyKind}s
+ * and whether they are cycle-breaking dependencies. Elements are written one by one as they are visited, so
+ * the document is never held in memory; the class graph is read straight from the edge store if the class
+ * dependencies are off the heap.
+ *
+ * @author chschmitz
+ */
+public final class GraphMLWriter {
+    private final Writer out;
+    private final DirectedGraph<String, WeightedEdge> packageGraph;
+    private final Condensation<String> condensation;
+    private final Set<WeightedEdge> feedbackArcs;
+
+    /**
+     * @param out where to write to; should be buffered
+     * @param packageGraph the whole package graph
+     * @param condensation the strong components of the package graph
+     * @param feedbackArcs the cycle-breaking dependencies of all components
+     */
+    public GraphMLWriter(Writer out, DirectedGraph<String, WeightedEdge> packageGraph, 
+            Condensation<String> condensation, Set<WeightedEdge> feedbackArcs) {
+        this.out = out;
+        this.packageGraph = packageGraph;
+        this.condensation = condensation;
+        this.feedbackArcs = feedbackArcs;
+    }
+
+    /**
+     * Writes one node per package and one edge per package dependency.
+     * 
+     * @throws IOException if writing fails
+     */
+    public void writePackageGraph() throws IOException {
+        writeHeader("packages", false);
+        for (String pkg : packageGraph.getVertices()) {
+            startNode(pkg);
+            writeComponent(pkg);
+            out.write("</node>\n");
+        }
+        for (WeightedEdge edge : packageGraph.getEdges()) {
+            writeEdge(packageGraph.getSource(edge), packageGraph.getDest(edge), (int) edge.getWeight(), 
+                    edge.getKinds(), feedbackArcs.contains(edge));
+        }
+        writeFooter();
+    }
+
+    /**
+     * Writes one node per class and one edge per class dependency between classes of different packages. 
+     * Classes get the component of their package.
+     * 
+     * @param classDependencies the class dependencies the package graph was built from
+     * @param packageNames the mapping from classes to packages the package graph was built with
+     * @throws IOException if writing fails
+     */
+    public void writeClassGraph(ClassDependencies classDependencies, Function<String, String> packageNames) 
+            throws IOException {
+        writeHeader("classes", true);
+        for (String className : classDependencies.getAllClassNames()) {
+            String pkg = packageNames.apply(className);
+            if (pkg != null) {
+                startNode(className);
+                writeData("package", pkg);
+                writeComponent(pkg);
+                out.write("</node>\n");
+            }
+        }
+        if (classDependencies.isOffHeap()) {
+            ClassGraph classGraph = classDependencies.getClassGraph();
+            for (int dependency = 0; dependency < classGraph.getDependencyCount(); dependency++) {
+                writeClassEdge(classGraph.getClassName(classGraph.getSource(dependency)), 
+                        classGraph.getClassName(classGraph.getTarget(dependency)), classGraph.getKinds(dependency), 
+                        packageNames);
+            }
+        } else {
+            for (Map.Entry<String, Collection<ClassDependency>> dependencies 
+                    : classDependencies.getClassDependencies().entrySet()) {
+                for (ClassDependency dependency : dependencies.getValue()) {
+                    writeClassEdge(dependency.getFrom(), dependency.getTo(), dependency.getKinds(), packageNames);
+                }
+            }
+        }
+        writeFooter();
+    }
+
+    private void writeClassEdge(String from, String to, int kinds, Function<String, String> packageNames) 
+            throws IOException {
+        String fromPkg = packageNames.apply(from);
+        String toPkg = packageNames.apply(to);
+        if (fromPkg != null && toPkg != null && !fromPkg.equals(toPkg)) {
+            writeEdge(from, to, 1, kinds, feedbackArcs.contains(packageGraph.findEdge(fromPkg, toPkg)));
+        }
+    }
+
+    private void writeHeader(String graphId, boolean classes) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+        if (classes) {
+            writeKey("package", "node", "string");
+        }
+        writeKey("component", "node", "int");
+        writeKey("componentSize", "node", "int");
+        writeKey("weight", "edge", "int");
+        writeKey("kinds", "edge", "string");
+        writeKey("feedback", "edge", "boolean");
+        out.write("<graph id=\"" + graphId + "\" edgedefault=\"directed\">\n");
+    }
+
+    private void writeKey(String name, String domain, String type) throws IOException {
+        out.write("<key id=\"" + name + "\" for=\"" + domain + "\" attr.name=\"" + name + "\" attr.type=\"" 
+                + type + "\"/>\n");
+    }
+
+    private void writeFooter() throws IOException {
+        out.write("</graph>\n</graphml>\n");
+        out.flush();
+    }
+
+    private void startNode(String id) throws IOException {
+        out.write("<node id=\"");
+        out.write(escape(id));
+        out.write("\">");
+    }
+
+    /**
+     * Packages without dependencies to other packages are not in the graph, and get no component.
+     */
+    private void writeComponent(String pkg) throws IOException {
+        if (packageGraph.containsVertex(pkg)) {
+            int component = condensation.getComponentOf(pkg);
+            writeData("component", Integer.toString(component));
+            writeData("componentSize", Integer.toString(condensation.getComponent(component).size()));
+        }
+    }
+
+    private void writeEdge(String from, String to, int weight, int kinds, boolean feedback) throws IOException {
+        out.write("<edge source=\"");
+        out.write(escape(from));
+        out.write("\" target=\"");
+        out.write(escape(to));
+        out.write("\">");
+        writeData("weight", Integer.toString(weight));
+        writeData("kinds", DependencyKind.toString(kinds));
+        writeData("feedback", Boolean.toString(feedback));
+        out.write("</edge>\n");
+    }
+
+    private void writeData(String key, String value) throws IOException {
+        out.write("<data key=\"");
+        out.write(key);
+        out.write("\">");
+        out.write(escape(value));
+        out.write("</data>");
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -15,6 +15,8 @@
  */
 package net.oneandone.maven.plugins.cycles.graph;
 
+import java.util.Collections;
+
 import net.oneandone.maven.plugins.cycles.classes.ClassDependency;
 import edu.uci.ics.jung.graph.DirectedGraph;
 
@@ -26,6 +28,9 @@ import edu.uci.ics.jung.graph.DirectedGraph;
  */
 public final class GraphStringUtils {
     /**
+     * Shortens a single name without regard to other names; see {@link Abbreviations} for unambiguous 
+     * abbreviations.
+     * 
      * @param pkg a package name
      * @param shorten whether to shorten it or not
      * @return the shortened name, in the form a.b.c.d.package
@@ -34,44 +39,38 @@ public final class GraphStringUtils {
         if (!shorten) {
             return pkg;
         }
-        
-        String[] parts = pkg.split("\\.");
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < parts.length - 1; i++) {
-            result.append(parts[i].charAt(0));
-            result.append(".");
-        }
-        result.append(parts[parts.length - 1]);
-        return result.toString();
+        return Abbreviations.of(Collections.<String>emptySet()).abbreviate(pkg);
     }
 
     /**
      * @param vertex a vertex
-     * @param shorten 
+     * @param abbreviations the abbreviations of the run
      * @return the string representation (shortened)
      */
-    public static String vertexToString(String vertex, boolean shorten) {
-        return shorten(vertex, shorten);
+    public static String vertexToString(String vertex, Abbreviations abbreviations) {
+        return abbreviations.abbreviate(vertex);
     }
 
     /**
      * @param edge an edge
      * @param g a graph
-     * @param shorten whether to shorten the class names
+     * @param abbreviations the abbreviations of the run
      * @return the string representation (shortened)
      */
-    public static String edgeToString(WeightedEdge edge, DirectedGraph<String, WeightedEdge> g, boolean shorten) {
-        return shorten(g.getSource(edge), shorten) + " -> " + shorten(g.getDest(edge), shorten) 
+    public static String edgeToString(WeightedEdge edge, DirectedGraph<String, WeightedEdge> g, 
+            Abbreviations abbreviations) {
+        return abbreviations.abbreviate(g.getSource(edge)) + " -> " + abbreviations.abbreviate(g.getDest(edge)) 
                 + " [" + (int) edge.getWeight() + "]";
     }
 
     /**
      * @param classDependency a class dependency
-     * @param shorten whether to shorten the FQCN
+     * @param abbreviations the abbreviations of the run
      * @return a string representation of the dependency
      */
-    public static String dependencyToString(ClassDependency classDependency, boolean shorten) {
-        return shorten(classDependency.getFrom(), shorten) + " -> " + shorten(classDependency.getTo(), shorten);
+    public static String dependencyToString(ClassDependency classDependency, Abbreviations abbreviations) {
+        return abbreviations.abbreviate(classDependency.getFrom()) + " -> " 
+                + abbreviations.abbreviate(classDependency.getTo());
     }
 
     private GraphStringUtils() {
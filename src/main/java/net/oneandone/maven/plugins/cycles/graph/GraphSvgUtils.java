@@ -0,0 +1,207 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import net.oneandone.maven.plugins.cycles.classes.DependencyKind;
+import net.oneandone.maven.plugins.cycles.classes.Events;
+import net.oneandone.maven.plugins.cycles.classes.Phase;
+
+import com.google.common.collect.Maps;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+
+/**
+ * Renders components to standalone SVG, using a {@link LayeredLayout} instead of Graphviz.
+ *
+ * @author chschmitz
+ */
+public final class GraphSvgUtils {
+    private static final double CHAR_WIDTH = 7;
+    private static final double NODE_PADDING = 16;
+    private static final double MAX_STROKE_WIDTH = 4;
+    private static final double OPPOSITE_EDGE_OFFSET = 5;
+
+    /**
+     * @param component a graph
+     * @param shorten whether to shorten the package names
+     * @return an SVG document
+     */
+    public static String toSvg(DirectedGraph<String, WeightedEdge> component, boolean shorten) {
+        return toSvg(component, GraphDotUtils.abbreviations(component, shorten));
+    }
+
+    /**
+     * @param component a graph
+     * @param abbreviations the abbreviations of the run
+     * @return an SVG document
+     */
+    public static String toSvg(DirectedGraph<String, WeightedEdge> component, Abbreviations abbreviations) {
+        return toSvg(component, abbreviations, DependencyKind.ALL);
+    }
+
+    /**
+     * @param component a graph
+     * @param abbreviations the abbreviations of the run
+     * @param kindMask the {@link DependencyKind}s of the class dependencies that count when breaking cycles
+     * @return an SVG document
+     */
+    public static String toSvg(DirectedGraph<String, WeightedEdge> component, Abbreviations abbreviations, 
+            int kindMask) {
+        return toSvg(component, abbreviations, 
+                FeedbackArcSet.vertexOrder(component, new InstabilityVertexEvaluator<String>(kindMask)));
+    }
+
+    /**
+     * @param component a graph
+     * @param abbreviations the abbreviations of the run
+     * @param vertices the component's vertices in {@link FeedbackArcSet#vertexOrder(DirectedGraph, VertexEvaluator) 
+     * feedback arc set order}, whose backward edges are drawn as feedback arcs
+     * @return an SVG document
+     */
+    public static String toSvg(DirectedGraph<String, WeightedEdge> component, Abbreviations abbreviations, 
+            List<String> vertices) {
+        Phase phase = Events.component("svg");
+        Map<String, Integer> index = Maps.newHashMap();
+        String[] labels = new String[vertices.size()];
+        double[] widths = new double[vertices.size()];
+        for (int v = 0; v < labels.length; v++) {
+            index.put(vertices.get(v), v);
+            labels[v] = abbreviations.abbreviate(vertices.get(v));
+            widths[v] = labels[v].length() * CHAR_WIDTH + NODE_PADDING;
+        }
+
+        Collection<WeightedEdge> edges = component.getEdges();
+        WeightedEdge[] edgeArray = edges.toArray(new WeightedEdge[edges.size()]);
+        int[] from = new int[edgeArray.length];
+        int[] to = new int[edgeArray.length];
+        double maxWeight = 1;
+        for (int e = 0; e < edgeArray.length; e++) {
+            from[e] = index.get(component.getSource(edgeArray[e]));
+            to[e] = index.get(component.getDest(edgeArray[e]));
+            maxWeight = Math.max(maxWeight, edgeArray[e].getWeight());
+        }
+        LayeredLayout layout = new LayeredLayout(widths, from, to);
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        builder.append(format(
+                "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%.0f\" height=\"%.0f\" "
+                + "font-family=\"sans-serif\" font-size=\"12\">\n", layout.getWidth(), layout.getHeight()));
+        builder.append("<defs>\n");
+        appendMarker(builder, "arrow", "black");
+        appendMarker(builder, "feedback", "red");
+        builder.append("</defs>\n");
+        for (int e = 0; e < edgeArray.length; e++) {
+            // backward edges are exactly the feedback arcs
+            boolean feedback = from[e] > to[e];
+            double offset = component.findEdge(vertices.get(to[e]), vertices.get(from[e])) == null ? 0 
+                    : feedback ? OPPOSITE_EDGE_OFFSET : -OPPOSITE_EDGE_OFFSET;
+            appendEdge(builder, layout, widths, layout.getPath(e), feedback, offset, edgeArray[e].getWeight(), 
+                    maxWeight, labels[from[e]] + " -> " + labels[to[e]]);
+        }
+        for (int v = 0; v < labels.length; v++) {
+            builder.append(format("<rect x=\"%.1f\" y=\"%.1f\" width=\"%.1f\" height=\"%.1f\" rx=\"4\" "
+                    + "fill=\"#f0f0f0\" stroke=\"black\"/>\n", 
+                    layout.getX(v) - widths[v] / 2, layout.getY(v) - LayeredLayout.NODE_HEIGHT / 2, widths[v], 
+                    LayeredLayout.NODE_HEIGHT));
+            builder.append(format("<text x=\"%.1f\" y=\"%.1f\" text-anchor=\"middle\">%s</text>\n",
+                    layout.getX(v), layout.getY(v) + 4, escape(labels[v])));
+        }
+        builder.append("</svg>\n");
+        phase.end(component.getVertexCount(), component.getEdgeCount());
+        return builder.toString();
+    }
+
+    private static void appendMarker(StringBuilder builder, String id, String color) {
+        builder.append(format("<marker id=\"%s\" viewBox=\"0 0 10 10\" refX=\"10\" refY=\"5\" "
+                + "markerWidth=\"6\" markerHeight=\"6\" orient=\"auto\"><path d=\"M0,0 L10,5 L0,10 z\" "
+                + "fill=\"%s\"/></marker>\n", id, color));
+    }
+
+    private static void appendEdge(StringBuilder builder, LayeredLayout layout, double[] widths, int[] path, 
+            boolean feedback, double offset, double weight, double maxWeight, String title) {
+        if (path.length < 2) {
+            return;
+        }
+        double[] xs = new double[path.length];
+        double[] ys = new double[path.length];
+        for (int i = 0; i < path.length; i++) {
+            xs[i] = layout.getX(path[i]) + offset;
+            ys[i] = layout.getY(path[i]);
+        }
+        clip(xs, ys, 0, 1, widths[path[0]]);
+        clip(xs, ys, path.length - 1, path.length - 2, widths[path[path.length - 1]]);
+
+        builder.append("<polyline points=\"");
+        for (int i = 0; i < path.length; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            appendNumber(builder, xs[i]).append(',');
+            appendNumber(builder, ys[i]);
+        }
+        builder.append("\" fill=\"none\" stroke=\"").append(feedback ? "red" : "black");
+        builder.append("\" stroke-width=\"");
+        appendNumber(builder, 1 + (MAX_STROKE_WIDTH - 1) * weight / maxWeight);
+        builder.append("\" marker-end=\"url(#").append(feedback ? "feedback" : "arrow").append(")\"><title>");
+        builder.append(escape(title)).append(" [").append((int) weight).append("]</title></polyline>\n");
+        builder.append("<text x=\"");
+        appendNumber(builder, (xs[0] + xs[1]) / 2 + 3).append("\" y=\"");
+        appendNumber(builder, (ys[0] + ys[1]) / 2).append("\" font-size=\"10\"");
+        builder.append(feedback ? " fill=\"red\">" : ">").append((int) weight).append("</text>\n");
+    }
+
+    /**
+     * Appends a non-negative number with one decimal; much faster than String.format, which
+     * matters for the points of long edges.
+     */
+    private static StringBuilder appendNumber(StringBuilder builder, double number) {
+        long tenths = Math.round(number * 10);
+        return builder.append(tenths / 10).append('.').append(tenths % 10);
+    }
+
+    /**
+     * Moves an end point of an edge from the center of its node to the border.
+     */
+    private static void clip(double[] xs, double[] ys, int end, int next, double width) {
+        double dx = xs[next] - xs[end];
+        double dy = ys[next] - ys[end];
+        double t = Math.min(dx == 0 ? Double.MAX_VALUE : width / 2 / Math.abs(dx), 
+                dy == 0 ? Double.MAX_VALUE : LayeredLayout.NODE_HEIGHT / 2 / Math.abs(dy));
+        if (t < 1) {
+            xs[end] += t * dx;
+            ys[end] += t * dy;
+        }
+    }
+
+    private static String format(String format, Object... args) {
+        // the decimal separator must not depend on the default locale
+        return String.format(Locale.ROOT, format, args);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private GraphSvgUtils() {
+        // Don't instantiate
+    }
+}
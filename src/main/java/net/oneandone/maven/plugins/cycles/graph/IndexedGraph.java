@@ -0,0 +1,133 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+
+/**
+ * Immutable int-indexed snapshot of a directed graph: vertices are numbered 0..n-1, and the
+ * out-edges of vertex v are stored at positions {@link #outStart}(v) to {@link #outEnd}(v) - 1
+ * of flat arrays (compressed sparse rows). Traversals then need no hashing and no boxing.
+ *
+ * @author chschmitz
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public final class IndexedGraph<V, E> {
+    private final List<V> vertices;
+    private final Map<V, Integer> index;
+    private final int[] offsets;
+    private final int[] targets;
+    private final List<E> edges;
+
+    /**
+     * @param graph a graph
+     */
+    public IndexedGraph(DirectedGraph<V, E> graph) {
+        vertices = Lists.newArrayList(graph.getVertices());
+        index = Maps.newHashMap();
+        for (int v = 0; v < vertices.size(); v++) {
+            index.put(vertices.get(v), v);
+        }
+        offsets = new int[vertices.size() + 1];
+        targets = new int[graph.getEdgeCount()];
+        edges = Lists.newArrayListWithCapacity(graph.getEdgeCount());
+        int position = 0;
+        for (int v = 0; v < vertices.size(); v++) {
+            offsets[v] = position;
+            for (E edge : graph.getOutEdges(vertices.get(v))) {
+                targets[position++] = index.get(graph.getDest(edge));
+                edges.add(edge);
+            }
+        }
+        offsets[vertices.size()] = position;
+    }
+
+    public int getVertexCount() {
+        return vertices.size();
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @param v a vertex number
+     * @return the vertex
+     */
+    public V getVertex(int v) {
+        return vertices.get(v);
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return its number, or -1 if it is not part of the graph
+     */
+    public int indexOf(V vertex) {
+        Integer v = index.get(vertex);
+        return v == null ? -1 : v;
+    }
+
+    /**
+     * @param v a vertex number
+     * @return position of the first out-edge of v
+     */
+    public int outStart(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * @param v a vertex number
+     * @return position after the last out-edge of v
+     */
+    public int outEnd(int v) {
+        return offsets[v + 1];
+    }
+
+    /**
+     * @param position an edge position
+     * @return the number of the edge's destination
+     */
+    public int getTarget(int position) {
+        return targets[position];
+    }
+
+    /**
+     * @param position an edge position
+     * @return the edge
+     */
+    public E getEdge(int position) {
+        return edges.get(position);
+    }
+
+    /**
+     * @param vertexNumbers vertex numbers
+     * @return the vertices
+     */
+    public List<V> getVertices(int[] vertexNumbers) {
+        List<V> result = Lists.newArrayListWithCapacity(vertexNumbers.length);
+        for (int v : vertexNumbers) {
+            result.add(vertices.get(v));
+        }
+        return result;
+    }
+}
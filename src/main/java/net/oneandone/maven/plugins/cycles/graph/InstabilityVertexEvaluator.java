@@ -15,11 +15,18 @@
  */
 package net.oneandone.maven.plugins.cycles.graph;
 
+import java.util.Map;
+
+import net.oneandone.maven.plugins.cycles.classes.DependencyKind;
+
+import com.google.common.collect.Maps;
+
 import edu.uci.ics.jung.graph.DirectedGraph;
 
 /**
  * Favours breaking edges from stable to unstable packages, i.e., from those
- * with a high indegree to those with a high outdegree. 
+ * with a high indegree to those with a high outdegree. Optionally, only class
+ * dependencies of some {@link DependencyKind}s count towards the degrees.
  * 
  * @author chschmitz
  *
@@ -27,6 +34,22 @@ import edu.uci.ics.jung.graph.DirectedGraph;
  */
 public final class InstabilityVertexEvaluator<V> implements 
     VertexEvaluator<V, DirectedGraph<V, WeightedEdge>> {
+    private final int kindMask;
+    private final Map<WeightedEdge, Integer> weights = Maps.newHashMap();
+
+    /**
+     * Counts all class dependencies.
+     */
+    public InstabilityVertexEvaluator() {
+        this(DependencyKind.ALL);
+    }
+
+    /**
+     * @param kindMask a bitmask of the {@link DependencyKind}s of the class dependencies that count
+     */
+    public InstabilityVertexEvaluator(int kindMask) {
+        this.kindMask = kindMask;
+    }
 
     @Override
     public double weight(V vertex, DirectedGraph<V, WeightedEdge> graph) {
@@ -36,7 +59,7 @@ public final class InstabilityVertexEvaluator<V> implements
     private double inWeight(V vertex, DirectedGraph<V, WeightedEdge> graph) {
         int degree = 0;
         for (WeightedEdge e : graph.getInEdges(vertex)) {
-            degree += e.getWeight();
+            degree += weight(e);
         }
         return (int) degree;
     }
@@ -44,8 +67,23 @@ public final class InstabilityVertexEvaluator<V> implements
     private double outWeight(V vertex, DirectedGraph<V, WeightedEdge> graph) {
         int degree = 0;
         for (WeightedEdge e : graph.getOutEdges(vertex)) {
-            degree += e.getWeight();
+            degree += weight(e);
         }
         return degree;
     }
+
+    /**
+     * Counting by kind visits the class dependencies, so the result is kept for the repeated evaluations.
+     */
+    private int weight(WeightedEdge edge) {
+        if (kindMask == DependencyKind.ALL) {
+            return (int) edge.getWeight();
+        }
+        Integer weight = weights.get(edge);
+        if (weight == null) {
+            weight = edge.getWeight(kindMask);
+            weights.put(edge, weight);
+        }
+        return weight;
+    }
 }
@@ -0,0 +1,312 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import java.util.Arrays;
+
+/**
+ * Sugiyama-style layered layout on int-indexed vertices.
+ *
+ * The vertices are expected to be numbered in an order in which most edges point forward, e.g.
+ * the one {@link FeedbackArcSet#vertexOrder} computes; backward edges are reversed for the layout. 
+ * Then the vertices are assigned to layers by longest path, long edges are split by dummy nodes, 
+ * crossings are reduced by barycenter sweeps, and the x coordinates are pulled towards the neighbours
+ * while keeping the nodes apart.
+ *
+ * @author chschmitz
+ */
+final class LayeredLayout {
+    static final double NODE_HEIGHT = 24;
+
+    private static final int SWEEPS = 8;
+    private static final int COORDINATE_ROUNDS = 8;
+    private static final double NODE_GAP = 20;
+    private static final double DUMMY_GAP = 6;
+    private static final double LAYER_DISTANCE = 80;
+    private static final double MARGIN = 20;
+    private static final double BARYCENTER_SCALE = 1024;
+    private static final int POSITION_BITS = 24;
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+
+    private final int vertexCount;
+    private int[] layer;
+    private double[] widths;
+    private int[][] paths;
+    private int[][] upper;
+    private int[][] lower;
+    private int[][] layers;
+    private int[] position;
+    private double[] x;
+    private double width;
+
+    /**
+     * @param vertexWidths widths of the vertices, in forward order
+     * @param from source vertex of each edge
+     * @param to destination vertex of each edge
+     */
+    LayeredLayout(double[] vertexWidths, int[] from, int[] to) {
+        vertexCount = vertexWidths.length;
+        assignLayers(from, to);
+        insertDummies(vertexWidths, from, to);
+        buildLayers();
+        for (int sweep = 0; sweep < SWEEPS; sweep++) {
+            for (int l = 1; l < layers.length; l++) {
+                sortByBarycenter(layers[l], upper);
+            }
+            for (int l = layers.length - 2; l >= 0; l--) {
+                sortByBarycenter(layers[l], lower);
+            }
+        }
+        assignCoordinates();
+    }
+
+    /**
+     * Longest path layering. Processing the edges by their upper end makes sure the layer of the
+     * lower end is final when it is used.
+     */
+    private void assignLayers(int[] from, int[] to) {
+        int[] start = new int[vertexCount + 1];
+        for (int e = 0; e < from.length; e++) {
+            start[Math.max(from[e], to[e]) + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            start[v + 1] += start[v];
+        }
+        int[] lowerEnds = new int[from.length];
+        int[] fill = Arrays.copyOf(start, vertexCount);
+        for (int e = 0; e < from.length; e++) {
+            lowerEnds[fill[Math.max(from[e], to[e])]++] = Math.min(from[e], to[e]);
+        }
+        layer = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            for (int i = start[v]; i < start[v + 1]; i++) {
+                if (lowerEnds[i] != v) {
+                    layer[v] = Math.max(layer[v], layer[lowerEnds[i]] + 1);
+                }
+            }
+        }
+    }
+
+    private void insertDummies(double[] vertexWidths, int[] from, int[] to) {
+        int nodeCount = vertexCount;
+        for (int e = 0; e < from.length; e++) {
+            nodeCount += Math.max(0, Math.abs(layer[from[e]] - layer[to[e]]) - 1);
+        }
+        widths = Arrays.copyOf(vertexWidths, nodeCount);
+        layer = Arrays.copyOf(layer, nodeCount);
+
+        int nextDummy = vertexCount;
+        int[] upperDegree = new int[nodeCount];
+        int[] lowerDegree = new int[nodeCount];
+        paths = new int[from.length][];
+        for (int e = 0; e < from.length; e++) {
+            int lo = Math.min(from[e], to[e]);
+            int hi = Math.max(from[e], to[e]);
+            int[] chain = new int[Math.max(1, layer[hi] - layer[lo] + 1)];
+            chain[0] = lo;
+            for (int i = 1; i < chain.length - 1; i++) {
+                chain[i] = nextDummy;
+                layer[nextDummy] = layer[lo] + i;
+                nextDummy++;
+            }
+            chain[chain.length - 1] = hi;
+            for (int i = 1; i < chain.length; i++) {
+                lowerDegree[chain[i - 1]]++;
+                upperDegree[chain[i]]++;
+            }
+            paths[e] = chain;
+        }
+
+        upper = new int[nodeCount][];
+        lower = new int[nodeCount][];
+        for (int n = 0; n < nodeCount; n++) {
+            upper[n] = new int[upperDegree[n]];
+            lower[n] = new int[lowerDegree[n]];
+            upperDegree[n] = 0;
+            lowerDegree[n] = 0;
+        }
+        for (int e = 0; e < paths.length; e++) {
+            int[] chain = paths[e];
+            for (int i = 1; i < chain.length; i++) {
+                lower[chain[i - 1]][lowerDegree[chain[i - 1]]++] = chain[i];
+                upper[chain[i]][upperDegree[chain[i]]++] = chain[i - 1];
+            }
+            if (from[e] > to[e]) {
+                paths[e] = reversed(chain);
+            }
+        }
+    }
+
+    private static int[] reversed(int[] chain) {
+        int[] result = new int[chain.length];
+        for (int i = 0; i < chain.length; i++) {
+            result[i] = chain[chain.length - 1 - i];
+        }
+        return result;
+    }
+
+    private void buildLayers() {
+        int layerCount = 0;
+        for (int l : layer) {
+            layerCount = Math.max(layerCount, l + 1);
+        }
+        int[] layerSize = new int[layerCount];
+        for (int l : layer) {
+            layerSize[l]++;
+        }
+        layers = new int[layerCount][];
+        for (int l = 0; l < layerCount; l++) {
+            layers[l] = new int[layerSize[l]];
+            layerSize[l] = 0;
+        }
+        position = new int[layer.length];
+        for (int n = 0; n < layer.length; n++) {
+            position[n] = layerSize[layer[n]];
+            layers[layer[n]][layerSize[layer[n]]++] = n;
+        }
+    }
+
+    /**
+     * Sorts on primitive keys: the barycenter in fixed point, with the current position as a tie breaker 
+     * in the lower bits.
+     */
+    private void sortByBarycenter(int[] nodes, int[][] neighbours) {
+        long[] keys = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            int n = nodes[i];
+            double barycenter = position[n];
+            if (neighbours[n].length > 0) {
+                double sum = 0;
+                for (int m : neighbours[n]) {
+                    sum += position[m];
+                }
+                barycenter = sum / neighbours[n].length;
+            }
+            keys[i] = ((long) (barycenter * BARYCENTER_SCALE) << POSITION_BITS) | i;
+        }
+        Arrays.sort(keys);
+        int[] sorted = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            sorted[i] = nodes[(int) (keys[i] & POSITION_MASK)];
+            position[sorted[i]] = i;
+        }
+        System.arraycopy(sorted, 0, nodes, 0, nodes.length);
+    }
+
+    private void assignCoordinates() {
+        x = new double[layer.length];
+        for (int[] nodes : layers) {
+            double right = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                x[nodes[i]] = i == 0 ? widths[nodes[i]] / 2 : x[nodes[i - 1]] + separation(nodes[i - 1], nodes[i]);
+                right = x[nodes[i]];
+            }
+            for (int n : nodes) {
+                x[n] -= right / 2;
+            }
+        }
+        for (int round = 0; round < COORDINATE_ROUNDS; round++) {
+            for (int l = 1; l < layers.length; l++) {
+                pullTowardsNeighbours(layers[l], upper);
+            }
+            for (int l = layers.length - 2; l >= 0; l--) {
+                pullTowardsNeighbours(layers[l], lower);
+            }
+        }
+
+        double left = Double.MAX_VALUE;
+        double right = -Double.MAX_VALUE;
+        for (int n = 0; n < x.length; n++) {
+            left = Math.min(left, x[n] - widths[n] / 2);
+            right = Math.max(right, x[n] + widths[n] / 2);
+        }
+        for (int n = 0; n < x.length; n++) {
+            x[n] += MARGIN - left;
+        }
+        width = x.length == 0 ? 2 * MARGIN : right - left + 2 * MARGIN;
+    }
+
+    /**
+     * Moves the nodes to the mean x of their neighbours as far as possible. Packing the nodes from the
+     * left and from the right both respects the separations, and so does the mean of both.
+     */
+    private void pullTowardsNeighbours(int[] nodes, int[][] neighbours) {
+        double[] desired = new double[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            int n = nodes[i];
+            if (neighbours[n].length == 0) {
+                desired[i] = x[n];
+            } else {
+                double sum = 0;
+                for (int m : neighbours[n]) {
+                    sum += x[m];
+                }
+                desired[i] = sum / neighbours[n].length;
+            }
+        }
+        double[] fromLeft = new double[nodes.length];
+        double[] fromRight = new double[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            fromLeft[i] = i == 0 ? desired[i] 
+                    : Math.max(desired[i], fromLeft[i - 1] + separation(nodes[i - 1], nodes[i]));
+        }
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            fromRight[i] = i == nodes.length - 1 ? desired[i] 
+                    : Math.min(desired[i], fromRight[i + 1] - separation(nodes[i], nodes[i + 1]));
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            x[nodes[i]] = (fromLeft[i] + fromRight[i]) / 2;
+        }
+    }
+
+    private double separation(int left, int right) {
+        double gap = isDummy(left) && isDummy(right) ? DUMMY_GAP : NODE_GAP;
+        return (widths[left] + widths[right]) / 2 + gap;
+    }
+
+    boolean isDummy(int node) {
+        return node >= vertexCount;
+    }
+
+    /**
+     * @param edge an edge
+     * @return the nodes (vertices at both ends, dummy nodes in between) the edge passes through, 
+     * in the direction of the edge
+     */
+    int[] getPath(int edge) {
+        return paths[edge];
+    }
+
+    double getX(int node) {
+        return x[node];
+    }
+
+    double getY(int node) {
+        return MARGIN + NODE_HEIGHT / 2 + layer[node] * LAYER_DISTANCE;
+    }
+
+    int getLayer(int node) {
+        return layer[node];
+    }
+
+    double getWidth() {
+        return width;
+    }
+
+    double getHeight() {
+        return 2 * MARGIN + NODE_HEIGHT + Math.max(0, layers.length - 1) * LAYER_DISTANCE;
+    }
+}
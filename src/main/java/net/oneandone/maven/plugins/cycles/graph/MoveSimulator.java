@@ -0,0 +1,462 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+import net.oneandone.maven.plugins.cycles.classes.ClassDependencies;
+import net.oneandone.maven.plugins.cycles.classes.ClassDependency;
+import net.oneandone.maven.plugins.cycles.classes.ClassGraph;
+import net.oneandone.maven.plugins.cycles.classes.PackageDependencies;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedSparseGraph;
+
+/**
+ * Answers "which package cycles disappear if these classes are moved to that package?" without parsing
+ * again. The class dependencies are loaded once; a move then only updates the counters of the package pairs
+ * that the moved classes take part in, splits only the strong components that lost a dependency and merges 
+ * only along the dependencies that were added. Moves can be undone, so that scenarios can be tried one 
+ * after another from the same starting point.
+ *
+ * @author chschmitz
+ */
+public final class MoveSimulator {
+    private final Function<String, String> packageNames;
+    private final List<String> classNames = Lists.newArrayList();
+    private final Map<String, Integer> classIndex = Maps.newHashMap();
+    private final Multimap<Integer, Integer> nestedClasses = ArrayListMultimap.create();
+    private final int[][] dependencies;
+    private final int[][] dependents;
+    private final int[] packageOf;
+
+    private final List<String> packages = Lists.newArrayList();
+    private final Map<String, Integer> packageIndex = Maps.newHashMap();
+    // number of class dependencies by package pair, as source << 32 | target
+    private final Map<Long, Integer> counts = Maps.newHashMap();
+    private final List<Set<Integer>> successors = Lists.newArrayList();
+    private final List<Set<Integer>> predecessors = Lists.newArrayList();
+    // the strong component of each package; members share the set
+    private final List<Set<Integer>> components = Lists.newArrayList();
+    private final Deque<int[][]> undoStack = new ArrayDeque<int[][]>();
+
+    private final Set<Long> removedEdges = Sets.newHashSet();
+    private final Set<Long> addedEdges = Sets.newHashSet();
+
+    /**
+     * The package cycles that a move or undo changed.
+     */
+    public static final class Result {
+        private final Set<SortedSet<String>> resolvedCycles;
+        private final Set<SortedSet<String>> newCycles;
+
+        private Result(Set<SortedSet<String>> resolvedCycles, Set<SortedSet<String>> newCycles) {
+            this.resolvedCycles = resolvedCycles;
+            this.newCycles = newCycles;
+        }
+
+        /**
+         * @return the packages of each cycle that no longer exists, including cycles that shrank or grew
+         */
+        public Set<SortedSet<String>> getResolvedCycles() {
+            return resolvedCycles;
+        }
+
+        /**
+         * @return the packages of each cycle that did not exist before
+         */
+        public Set<SortedSet<String>> getNewCycles() {
+            return newCycles;
+        }
+
+        /**
+         * @return true iff the package cycles are the same as before
+         */
+        public boolean isUnchanged() {
+            return resolvedCycles.isEmpty() && newCycles.isEmpty();
+        }
+    }
+
+    /**
+     * @param classDependencies class-level dependencies that have already been parsed
+     * @param packageDepth depth to which package names are aggregated
+     */
+    public MoveSimulator(ClassDependencies classDependencies, int packageDepth) {
+        this(classDependencies, PackageDependencies.packageNames(packageDepth));
+    }
+
+    /**
+     * @param classDependencies class-level dependencies that have already been parsed
+     * @param packageNames maps class names to package vertices; classes mapped to null are left out
+     */
+    public MoveSimulator(ClassDependencies classDependencies, Function<String, String> packageNames) {
+        this.packageNames = packageNames;
+        Multimap<Integer, Integer> edges = ArrayListMultimap.create();
+        if (classDependencies.isOffHeap()) {
+            ClassGraph classGraph = classDependencies.getClassGraph();
+            for (int dependency = 0; dependency < classGraph.getDependencyCount(); dependency++) {
+                edges.put(classNumber(classGraph.getClassName(classGraph.getSource(dependency))), 
+                        classNumber(classGraph.getClassName(classGraph.getTarget(dependency))));
+            }
+        } else {
+            for (Map.Entry<String, Collection<ClassDependency>> entry 
+                    : classDependencies.getClassDependencies().entrySet()) {
+                int source = classNumber(entry.getKey());
+                for (ClassDependency dependency : entry.getValue()) {
+                    edges.put(source, classNumber(dependency.getTo()));
+                }
+            }
+        }
+
+        dependencies = new int[classNames.size()][];
+        Multimap<Integer, Integer> reverseEdges = ArrayListMultimap.create();
+        for (int cls = 0; cls < dependencies.length; cls++) {
+            Set<Integer> targets = Sets.newLinkedHashSet(edges.get(cls));
+            targets.remove(cls);
+            dependencies[cls] = Ints.toArray(targets);
+            for (int target : dependencies[cls]) {
+                reverseEdges.put(target, cls);
+            }
+        }
+        dependents = new int[classNames.size()][];
+        packageOf = new int[classNames.size()];
+        for (int cls = 0; cls < dependents.length; cls++) {
+            dependents[cls] = Ints.toArray(reverseEdges.get(cls));
+            String pkg = packageNames.apply(classNames.get(cls));
+            packageOf[cls] = pkg == null ? -1 : packageNumber(pkg);
+            int nest = classNames.get(cls).indexOf('$');
+            if (nest > 0) {
+                Integer topLevel = classIndex.get(classNames.get(cls).substring(0, nest));
+                if (topLevel != null) {
+                    nestedClasses.put(topLevel, cls);
+                }
+            }
+        }
+
+        for (int cls = 0; cls < dependencies.length; cls++) {
+            for (int target : dependencies[cls]) {
+                if (packageOf[cls] >= 0 && packageOf[target] >= 0 && packageOf[cls] != packageOf[target]) {
+                    change(packageOf[cls], packageOf[target], 1);
+                }
+            }
+        }
+        addedEdges.clear();
+        for (Set<Integer> component : strongComponents(allPackages())) {
+            for (int pkg : component) {
+                components.set(pkg, component);
+            }
+        }
+    }
+
+    /**
+     * Moves classes, together with their nested classes, to another package.
+     * 
+     * @param movedClassNames the FQCNs of the classes to move
+     * @param targetPackage the name of the package to move them to; it need not exist yet
+     * @return the cycles changed by the move
+     * @throws IllegalArgumentException iff a class is unknown or left out of the package graph
+     */
+    public Result move(Collection<String> movedClassNames, String targetPackage) {
+        Set<Integer> moved = Sets.newLinkedHashSet();
+        for (String className : movedClassNames) {
+            Integer cls = classIndex.get(className);
+            Preconditions.checkArgument(cls != null && packageOf[cls] >= 0, "Unknown class %s.", className);
+            moved.add(cls);
+            moved.addAll(nestedClasses.get(cls));
+        }
+        int[] classes = Ints.toArray(moved);
+        int[] targets = new int[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            String className = classNames.get(classes[i]);
+            String movedName = targetPackage + className.substring(className.lastIndexOf('.'));
+            String pkg = packageNames.apply(movedName);
+            Preconditions.checkArgument(pkg != null, "%s is left out of the package graph.", movedName);
+            targets[i] = packageNumber(pkg);
+        }
+        int[] previous = new int[classes.length];
+        Result result = apply(classes, targets, previous);
+        undoStack.push(new int[][] {classes, previous});
+        return result;
+    }
+
+    /**
+     * Reverts the last move that has not been undone yet.
+     * 
+     * @return the cycles changed by reverting it
+     * @throws IllegalStateException iff there is nothing to undo
+     */
+    public Result undo() {
+        Preconditions.checkState(!undoStack.isEmpty(), "Nothing to undo.");
+        int[][] move = undoStack.pop();
+        return apply(move[0], move[1], new int[move[0].length]);
+    }
+
+    /**
+     * @return the packages of each current package cycle
+     */
+    public Set<SortedSet<String>> getCycles() {
+        Set<SortedSet<String>> cycles = Sets.newHashSet();
+        for (Set<Integer> component : components) {
+            if (component.size() > 1) {
+                cycles.add(packageNames(component));
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * @param fromPackage a package
+     * @param toPackage another package
+     * @return the current number of class dependencies from the one to the other
+     */
+    public int getDependencyCount(String fromPackage, String toPackage) {
+        Integer from = packageIndex.get(fromPackage);
+        Integer to = packageIndex.get(toPackage);
+        Integer count = from == null || to == null ? null : counts.get(key(from, to));
+        return count == null ? 0 : count;
+    }
+
+    private Result apply(int[] classes, int[] targets, int[] previous) {
+        removedEdges.clear();
+        addedEdges.clear();
+        for (int i = 0; i < classes.length; i++) {
+            previous[i] = packageOf[classes[i]];
+            moveClass(classes[i], targets[i]);
+        }
+
+        Set<Set<Integer>> before = Sets.newIdentityHashSet();
+        Set<Set<Integer>> after = Sets.newIdentityHashSet();
+        for (long edge : removedEdges) {
+            Set<Integer> component = components.get(source(edge));
+            if (component == components.get(target(edge)) && !after.contains(component)) {
+                split(component, before, after);
+            }
+        }
+        List<Long> joining = Lists.newArrayList();
+        for (long edge : addedEdges) {
+            if (counts.containsKey(edge) && components.get(source(edge)) != components.get(target(edge))) {
+                joining.add(edge);
+            }
+        }
+        if (!joining.isEmpty()) {
+            merge(joining, before, after);
+        }
+
+        Set<SortedSet<String>> beforeCycles = cycles(before);
+        Set<SortedSet<String>> afterCycles = cycles(after);
+        return new Result(ImmutableSet.copyOf(Sets.difference(beforeCycles, afterCycles)), 
+                ImmutableSet.copyOf(Sets.difference(afterCycles, beforeCycles)));
+    }
+
+    private void moveClass(int cls, int to) {
+        int from = packageOf[cls];
+        if (from == to) {
+            return;
+        }
+        for (int target : dependencies[cls]) {
+            int pkg = packageOf[target];
+            if (pkg >= 0) {
+                changeUnlessLoop(from, pkg, -1);
+                changeUnlessLoop(to, pkg, 1);
+            }
+        }
+        for (int source : dependents[cls]) {
+            int pkg = packageOf[source];
+            if (pkg >= 0) {
+                changeUnlessLoop(pkg, from, -1);
+                changeUnlessLoop(pkg, to, 1);
+            }
+        }
+        packageOf[cls] = to;
+    }
+
+    private void changeUnlessLoop(int from, int to, int delta) {
+        if (from != to) {
+            change(from, to, delta);
+        }
+    }
+
+    private void change(int from, int to, int delta) {
+        long key = key(from, to);
+        Integer count = counts.get(key);
+        int newCount = (count == null ? 0 : count) + delta;
+        if (newCount == 0) {
+            counts.remove(key);
+            successors.get(from).remove(to);
+            predecessors.get(to).remove(from);
+            removedEdges.add(key);
+            return;
+        }
+        counts.put(key, newCount);
+        if (count == null) {
+            successors.get(from).add(to);
+            predecessors.get(to).add(from);
+            addedEdges.add(key);
+        }
+    }
+
+    /**
+     * Cycles through removed dependencies can only have run inside the component, so only it is checked again.
+     */
+    private void split(Set<Integer> component, Set<Set<Integer>> before, Set<Set<Integer>> after) {
+        before.add(component);
+        for (Set<Integer> part : strongComponents(component)) {
+            for (int pkg : part) {
+                components.set(pkg, part);
+            }
+            after.add(part);
+        }
+    }
+
+    /**
+     * A cycle through an added dependency from u to v runs only through packages that are reachable from v and
+     * reach u. So one search forward from the targets of all added dependencies and one backward from their
+     * sources, within the packages found forward, bound the packages whose components can merge; only their
+     * components are computed again.
+     */
+    private void merge(List<Long> joining, Set<Set<Integer>> before, Set<Set<Integer>> after) {
+        Set<Integer> sources = Sets.newHashSet();
+        Set<Integer> targets = Sets.newHashSet();
+        for (long edge : joining) {
+            sources.add(source(edge));
+            targets.add(target(edge));
+        }
+        Set<Integer> forward = reach(targets, successors, null);
+        Set<Integer> candidates = reach(Sets.intersection(sources, forward), predecessors, forward);
+        for (Set<Integer> merged : strongComponents(candidates)) {
+            if (merged.size() == components.get(merged.iterator().next()).size()) {
+                continue;
+            }
+            Set<Set<Integer>> parts = Sets.newIdentityHashSet();
+            for (int pkg : merged) {
+                parts.add(components.get(pkg));
+                components.set(pkg, merged);
+            }
+            for (Set<Integer> part : parts) {
+                if (!after.remove(part)) {
+                    before.add(part);
+                }
+            }
+            after.add(merged);
+        }
+    }
+
+    private static Set<Integer> reach(Collection<Integer> starts, List<Set<Integer>> neighbours, 
+            Set<Integer> within) {
+        Set<Integer> reached = Sets.newHashSet(starts);
+        Deque<Integer> queue = new ArrayDeque<Integer>(reached);
+        while (!queue.isEmpty()) {
+            for (int next : neighbours.get(queue.poll())) {
+                if ((within == null || within.contains(next)) && reached.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+        return reached;
+    }
+
+    private Collection<Set<Integer>> strongComponents(Collection<Integer> vertices) {
+        DirectedGraph<Integer, Long> graph = new DirectedSparseGraph<Integer, Long>();
+        for (int pkg : vertices) {
+            graph.addVertex(pkg);
+        }
+        for (int pkg : vertices) {
+            for (int target : successors.get(pkg)) {
+                if (graph.containsVertex(target)) {
+                    graph.addEdge(key(pkg, target), pkg, target);
+                }
+            }
+        }
+        return StronglyConnectedComponents.strongComponentsAsSets(graph);
+    }
+
+    private Set<SortedSet<String>> cycles(Set<Set<Integer>> changedComponents) {
+        Set<SortedSet<String>> cycles = Sets.newHashSet();
+        for (Set<Integer> component : changedComponents) {
+            if (component.size() > 1) {
+                cycles.add(packageNames(component));
+            }
+        }
+        return cycles;
+    }
+
+    private SortedSet<String> packageNames(Set<Integer> component) {
+        SortedSet<String> names = Sets.newTreeSet();
+        for (int pkg : component) {
+            names.add(packages.get(pkg));
+        }
+        return names;
+    }
+
+    private List<Integer> allPackages() {
+        List<Integer> all = Lists.newArrayListWithCapacity(packages.size());
+        for (int pkg = 0; pkg < packages.size(); pkg++) {
+            all.add(pkg);
+        }
+        return all;
+    }
+
+    private int classNumber(String className) {
+        Integer number = classIndex.get(className);
+        if (number == null) {
+            number = classNames.size();
+            classIndex.put(className, number);
+            classNames.add(className);
+        }
+        return number;
+    }
+
+    private int packageNumber(String pkg) {
+        Integer number = packageIndex.get(pkg);
+        if (number == null) {
+            number = packages.size();
+            packageIndex.put(pkg, number);
+            packages.add(pkg);
+            successors.add(Sets.<Integer>newHashSet());
+            predecessors.add(Sets.<Integer>newHashSet());
+            components.add(Sets.newHashSet(number));
+        }
+        return number;
+    }
+
+    private static long key(int from, int to) {
+        return (long) from << Integer.SIZE | to;
+    }
+
+    private static int source(long key) {
+        return (int) (key >>> Integer.SIZE);
+    }
+
+    private static int target(long key) {
+        return (int) key;
+    }
+}
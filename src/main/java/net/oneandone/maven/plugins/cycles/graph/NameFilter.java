@@ -15,32 +15,119 @@
  */
 package net.oneandone.maven.plugins.cycles.graph;
 
+import java.util.Collection;
+import java.util.Set;
+
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
 
 /**
- * A predicate that filters on package name prefixes.
- * 
+ * A predicate that filters on package name prefixes: a name passes if it starts with the name prefix, matches
+ * one of the include patterns (or there are none) and none of the exclude patterns. The include patterns thus
+ * narrow the name prefix. See {@link NamePatterns} for the pattern syntax.
+ *
  * @author chschmitz
  */
 @VisibleForTesting
 public final class NameFilter implements Predicate<String> {
-    private final String filterPrefix;
-    
+    private final String prefix;
+    private final Set<String> includePatterns;
+    private final Set<String> excludePatterns;
+    private final NamePatterns includes;
+    private final NamePatterns excludes;
+
     /**
      * @param filterPrefix the filter prefix
      * @return a predicate that returns true iff a string starts with that prefix
      */
     public static NameFilter nameFilter(String filterPrefix) {
-        return new NameFilter(filterPrefix);
+        return new NameFilter(filterPrefix, ImmutableSet.<String>of(), ImmutableSet.<String>of());
     }
 
-    private NameFilter(String filterPrefix) {
-        this.filterPrefix = filterPrefix;
+    /**
+     * @param includes include patterns; if empty, everything is included
+     * @param excludes exclude patterns
+     * @return a predicate that returns true iff a string matches an include pattern and no exclude pattern
+     */
+    public static NameFilter nameFilter(Collection<String> includes, Collection<String> excludes) {
+        return new NameFilter("", ImmutableSet.copyOf(includes), ImmutableSet.copyOf(excludes));
+    }
+
+    /**
+     * Combines the plugin parameters into one filter.
+     *
+     * @param filterPrefix a plain prefix that all names must start with; may be null or empty
+     * @param includes include patterns, which narrow the prefix; may be null
+     * @param excludes exclude patterns; may be null
+     * @return a predicate that returns true iff a string starts with the prefix, matches an include pattern and
+     * no exclude pattern
+     */
+    public static NameFilter nameFilter(String filterPrefix, String[] includes, String[] excludes) {
+        return new NameFilter(Strings.nullToEmpty(filterPrefix),
+                includes == null ? ImmutableSet.<String>of() : ImmutableSet.copyOf(includes),
+                excludes == null ? ImmutableSet.<String>of() : ImmutableSet.copyOf(excludes));
+    }
+
+    private NameFilter(String prefix, Set<String> includePatterns, Set<String> excludePatterns) {
+        this.prefix = prefix;
+        this.includePatterns = includePatterns;
+        this.excludePatterns = excludePatterns;
+        this.includes = new NamePatterns(includePatterns);
+        this.excludes = new NamePatterns(excludePatterns);
     }
 
     @Override
     public boolean apply(String name) {
-        return name.startsWith(filterPrefix);
+        return name.startsWith(prefix) && (includes.isEmpty() || includes.matches(name)) && !excludes.matches(name);
+    }
+
+    /**
+     * @return the plain prefix all names must start with; empty if there is none
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return the include patterns
+     */
+    public Set<String> getIncludePatterns() {
+        return includePatterns;
+    }
+
+    /**
+     * @return the exclude patterns
+     */
+    public Set<String> getExcludePatterns() {
+        return excludePatterns;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(prefix, includePatterns, excludePatterns);
+    }
+
+    @Override
+    public String toString() {
+        return "prefix " + prefix + ", includes " + includePatterns + ", excludes " + excludePatterns;
+    }
+
+    /**
+     * Filters are equal iff they have the same patterns, so that they can be part of cache keys.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof NameFilter)) {
+            return false;
+        }
+        NameFilter other = (NameFilter) obj;
+        return prefix.equals(other.prefix) && includePatterns.equals(other.includePatterns)
+                && excludePatterns.equals(other.excludePatterns);
     }
 }
@@ -0,0 +1,212 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * A set of name prefix patterns compiled into a single character trie. A pattern matches every
+ * name that starts with it; within a pattern, <code>*</code> stands for any number of characters
+ * except '.', and <code>**</code> stands for any number of characters including '.'.
+ *
+ * The trie is a nondeterministic automaton; the constructor turns it into a deterministic one, so that a
+ * match costs one lookup per character, regardless of the number of patterns, and allocates nothing.
+ *
+ * @author chschmitz
+ */
+public final class NamePatterns {
+    private Node root = new Node();
+    private boolean empty = true;
+    private State start;
+
+    /**
+     * @param patterns prefix patterns, possibly containing wildcards
+     */
+    public NamePatterns(Collection<String> patterns) {
+        for (String pattern : patterns) {
+            add(pattern);
+        }
+        start = compile();
+        root = null;
+    }
+
+    private void add(String pattern) {
+        Node node = root;
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '*') {
+                boolean anything = i + 1 < pattern.length() && pattern.charAt(i + 1) == '*';
+                if (anything) {
+                    if (node.anything == null) {
+                        node.anything = new Node();
+                        node.anything.loopsOnAnything = true;
+                    }
+                    node = node.anything;
+                    i += 2;
+                } else {
+                    if (node.anySegment == null) {
+                        node.anySegment = new Node();
+                        node.anySegment.loopsOnSegment = true;
+                    }
+                    node = node.anySegment;
+                    i++;
+                }
+            } else {
+                Node child = node.children.get(c);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(c, child);
+                }
+                node = child;
+                i++;
+            }
+        }
+        node.accepting = true;
+        empty = false;
+    }
+
+    /**
+     * @return true iff there are no patterns at all
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * @param name a name
+     * @return true iff one of the patterns matches a prefix of the name
+     */
+    public boolean matches(String name) {
+        State state = start;
+        for (int i = 0; state != null && !state.accepting && i < name.length(); i++) {
+            state = state.next(name.charAt(i));
+        }
+        return state != null && state.accepting;
+    }
+
+    /**
+     * Subset construction: each state stands for the set of trie nodes the automaton can be in. Transitions
+     * are computed for every character that leads to a child of one of the nodes, and for '.'; all other
+     * characters lead to the same state, since the wildcards only tell '.' from the rest. Accepting states
+     * need no transitions, since matches are prefix matches.
+     */
+    private State compile() {
+        if (empty) {
+            return null;
+        }
+        Map<Set<Node>, State> states = Maps.newHashMap();
+        Deque<Set<Node>> work = new ArrayDeque<Set<Node>>();
+        Set<Node> initial = closure(Collections.singleton(root));
+        State result = state(initial, states, work);
+        while (!work.isEmpty()) {
+            Set<Node> nodes = work.poll();
+            State state = states.get(nodes);
+            if (state.accepting) {
+                continue;
+            }
+            Set<Character> chars = Sets.newHashSet('.');
+            for (Node node : nodes) {
+                chars.addAll(node.children.keySet());
+            }
+            for (char c : chars) {
+                // null, i.e. no match possible, is recorded as well, so it does not fall back to other
+                state.transitions.put(c, state(step(nodes, c), states, work));
+            }
+            // any character that is neither '.' nor the label of a child
+            state.other = state(step(nodes, '\0'), states, work);
+        }
+        return result;
+    }
+
+    private static State state(Set<Node> nodes, Map<Set<Node>, State> states, Deque<Set<Node>> work) {
+        if (nodes.isEmpty()) {
+            return null;
+        }
+        State state = states.get(nodes);
+        if (state == null) {
+            state = new State();
+            for (Node node : nodes) {
+                state.accepting |= node.accepting;
+            }
+            states.put(nodes, state);
+            work.add(nodes);
+        }
+        return state;
+    }
+
+    private static Set<Node> step(Set<Node> nodes, char c) {
+        Set<Node> next = Sets.newHashSet();
+        for (Node node : nodes) {
+            if (node.loopsOnAnything || (node.loopsOnSegment && c != '.')) {
+                next.add(node);
+            }
+            Node child = node.children.get(c);
+            if (child != null) {
+                next.add(child);
+            }
+        }
+        return closure(next);
+    }
+
+    /**
+     * Adds the wildcard nodes reachable without consuming a character.
+     */
+    private static Set<Node> closure(Set<Node> nodes) {
+        Set<Node> result = Sets.newHashSet();
+        Deque<Node> work = new ArrayDeque<Node>(nodes);
+        while (!work.isEmpty()) {
+            Node node = work.poll();
+            if (result.add(node)) {
+                if (node.anySegment != null) {
+                    work.add(node.anySegment);
+                }
+                if (node.anything != null) {
+                    work.add(node.anything);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class State {
+        private Map<Character, State> transitions = Maps.newHashMap();
+        private State other;
+        private boolean accepting;
+
+        private State next(char c) {
+            State next = transitions.get(c);
+            return next != null || transitions.containsKey(c) ? next : other;
+        }
+    }
+
+    private static final class Node {
+        private Map<Character, Node> children = Maps.newHashMap();
+        private Node anySegment;
+        private Node anything;
+        private boolean accepting;
+        private boolean loopsOnSegment;
+        private boolean loopsOnAnything;
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import java.util.List;
+import java.util.Map;
+
+import net.oneandone.maven.plugins.cycles.classes.ClassDependencies;
+import net.oneandone.maven.plugins.cycles.classes.PackageDependencies;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+
+/**
+ * Robert C. Martin's package metrics, computed in one pass over the edges and one over the classes:
+ * <ul>
+ * <li>afferent coupling Ca: number of packages depending on the package</li>
+ * <li>efferent coupling Ce: number of packages the package depends on</li>
+ * <li>instability I = Ce / (Ca + Ce)</li>
+ * <li>abstractness A: share of interfaces and abstract classes among the package's classes</li>
+ * <li>distance from the main sequence D = |A + I - 1|</li>
+ * </ul>
+ * Couplings are counted in packages, since that is what the graph contains; the in and out weights
+ * count class dependencies instead.
+ *
+ * @author chschmitz
+ */
+public final class PackageMetrics {
+    private final List<String> packages;
+    private final Map<String, Integer> index;
+    private final int[] afferent;
+    private final int[] efferent;
+    private final int[] inWeight;
+    private final int[] outWeight;
+    private final int[] classes;
+    private final int[] abstractClasses;
+
+    /**
+     * @param packageGraph the package graph
+     * @param classDependencies the classes the graph was built from
+     * @param packageDepth the aggregation depth the graph was built with
+     */
+    public PackageMetrics(DirectedGraph<String, WeightedEdge> packageGraph, ClassDependencies classDependencies,
+            int packageDepth) {
+        this(packageGraph, classDependencies, PackageDependencies.packageNames(packageDepth));
+    }
+
+    /**
+     * @param packageGraph the package graph
+     * @param classDependencies the classes the graph was built from
+     * @param packageNames the mapping from classes to packages the graph was built with
+     */
+    public PackageMetrics(DirectedGraph<String, WeightedEdge> packageGraph, ClassDependencies classDependencies,
+            Function<String, String> packageNames) {
+        packages = Ordering.natural().sortedCopy(packageGraph.getVertices());
+        index = Maps.newHashMapWithExpectedSize(packages.size());
+        for (int p = 0; p < packages.size(); p++) {
+            index.put(packages.get(p), p);
+        }
+        afferent = new int[packages.size()];
+        efferent = new int[packages.size()];
+        inWeight = new int[packages.size()];
+        outWeight = new int[packages.size()];
+        classes = new int[packages.size()];
+        abstractClasses = new int[packages.size()];
+
+        for (WeightedEdge edge : packageGraph.getEdges()) {
+            int from = index.get(packageGraph.getSource(edge));
+            int to = index.get(packageGraph.getDest(edge));
+            efferent[from]++;
+            afferent[to]++;
+            outWeight[from] += (int) edge.getWeight();
+            inWeight[to] += (int) edge.getWeight();
+        }
+        for (String className : classDependencies.getClassNames()) {
+            String pkg = packageNames.apply(className);
+            Integer p = pkg == null ? null : index.get(pkg);
+            if (p != null) {
+                classes[p]++;
+                if (classDependencies.isAbstract(className)) {
+                    abstractClasses[p]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the packages with parsed classes, sorted by name; packages that are only depended upon, such as
+     * those of libraries, are left out
+     */
+    public List<String> getPackages() {
+        List<String> result = Lists.newArrayList();
+        for (int p = 0; p < packages.size(); p++) {
+            if (classes[p] > 0) {
+                result.add(packages.get(p));
+            }
+        }
+        return result;
+    }
+
+    public int getAfferentCoupling(String pkg) {
+        return afferent[index.get(pkg)];
+    }
+
+    public int getEfferentCoupling(String pkg) {
+        return efferent[index.get(pkg)];
+    }
+
+    /**
+     * @param pkg a package
+     * @return the number of class dependencies into the package
+     */
+    public int getInWeight(String pkg) {
+        return inWeight[index.get(pkg)];
+    }
+
+    /**
+     * @param pkg a package
+     * @return the number of class dependencies out of the package
+     */
+    public int getOutWeight(String pkg) {
+        return outWeight[index.get(pkg)];
+    }
+
+    public int getClassCount(String pkg) {
+        return classes[index.get(pkg)];
+    }
+
+    public int getAbstractClassCount(String pkg) {
+        return abstractClasses[index.get(pkg)];
+    }
+
+    /**
+     * @param pkg a package
+     * @return Ce / (Ca + Ce); 0 for a package without any coupling
+     */
+    public double getInstability(String pkg) {
+        int p = index.get(pkg);
+        int coupling = afferent[p] + efferent[p];
+        return coupling == 0 ? 0 : (double) efferent[p] / coupling;
+    }
+
+    /**
+     * @param pkg a package
+     * @return share of interfaces and abstract classes; 0 for a package without parsed classes
+     */
+    public double getAbstractness(String pkg) {
+        int p = index.get(pkg);
+        return classes[p] == 0 ? 0 : (double) abstractClasses[p] / classes[p];
+    }
+
+    /**
+     * @param pkg a package
+     * @return |A + I - 1|
+     */
+    public double getDistance(String pkg) {
+        return Math.abs(getAbstractness(pkg) + getInstability(pkg) - 1);
+    }
+}
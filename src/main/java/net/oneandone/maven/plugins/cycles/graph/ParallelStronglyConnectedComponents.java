@@ -0,0 +1,348 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+
+/**
+ * Computes strongly connected components on several threads, for graphs with millions of edges.
+ * 
+ * First, vertices without predecessors or successors are trimmed repeatedly; each of them is a 
+ * component of its own. The rest is split with the forward-backward algorithm (Fleischer, Hendrickson, 
+ * Pinar: "On Identifying Strongly Connected Components in Parallel", 2000): the vertices both reachable 
+ * from and reaching a pivot form its component, and the vertices reachable only one way or not at all 
+ * form three independent subproblems, which are processed in parallel. Subproblems are told apart by 
+ * a color per vertex; small ones are finished with Tarjan's algorithm on the task's own thread.
+ * 
+ * The result is the same partition as {@link StronglyConnectedComponents#strongComponentsAsSets}, 
+ * which is used for graphs below {@value #SEQUENTIAL_THRESHOLD} vertices.
+ *
+ * @author chschmitz
+ */
+public final class ParallelStronglyConnectedComponents {
+    private static final int SEQUENTIAL_THRESHOLD = 10000;
+    private static final int TASK_THRESHOLD = 1000;
+    private static final int DONE = -1;
+
+    private final IndexedGraph<?, ?> graph;
+    private final int[] inOffsets;
+    private final int[] sources;
+    private final int[] color;
+    private final int[] index;
+    private final int[] lowlink;
+    private final boolean[] onStack;
+    private final int taskThreshold;
+    private final AtomicInteger nextColor = new AtomicInteger(1);
+    private final Collection<int[]> components = new ConcurrentLinkedQueue<int[]>();
+    private final ExecutorService executor;
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    /**
+     * @param g a graph
+     * @param threads the number of threads to use
+     * @param <V> vertex type
+     * @param <E> edge type
+     * @return the strongly connected components
+     */
+    public static <V, E> Collection<Set<V>> strongComponentsAsSets(DirectedGraph<V, E> g, int threads) {
+        return strongComponentsAsSets(g, threads, SEQUENTIAL_THRESHOLD, TASK_THRESHOLD);
+    }
+
+    @VisibleForTesting
+    static <V, E> Collection<Set<V>> strongComponentsAsSets(DirectedGraph<V, E> g, int threads, 
+            int sequentialThreshold, int taskThreshold) {
+        if (g.getVertexCount() < sequentialThreshold || threads < 2) {
+            return StronglyConnectedComponents.strongComponentsAsSets(g);
+        }
+        IndexedGraph<V, E> indexed = new IndexedGraph<V, E>(g);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Collection<int[]> components = new ParallelStronglyConnectedComponents(indexed, executor, taskThreshold)
+                    .run();
+            List<Set<V>> result = Lists.newArrayListWithCapacity(components.size());
+            for (int[] component : components) {
+                result.add(Sets.newHashSet(indexed.getVertices(component)));
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ParallelStronglyConnectedComponents(IndexedGraph<?, ?> graph, ExecutorService executor, 
+            int taskThreshold) {
+        this.graph = graph;
+        this.executor = executor;
+        this.taskThreshold = taskThreshold;
+        int n = graph.getVertexCount();
+        inOffsets = new int[n + 1];
+        sources = new int[graph.getEdgeCount()];
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            inOffsets[graph.getTarget(e) + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] fill = new int[n];
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.outStart(v); e < graph.outEnd(v); e++) {
+                int w = graph.getTarget(e);
+                sources[inOffsets[w] + fill[w]++] = v;
+            }
+        }
+        color = new int[n];
+        index = new int[n];
+        lowlink = new int[n];
+        onStack = new boolean[n];
+    }
+
+    private Collection<int[]> run() {
+        int[] remaining = trim();
+        if (remaining.length > 0) {
+            submit(remaining, 0);
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while computing strong components", e);
+            }
+            if (failure.get() != null) {
+                throw Throwables.propagate(failure.get());
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Repeatedly removes vertices without predecessors or without successors among the remaining vertices.
+     * 
+     * @return the remaining vertices, all of color 0
+     */
+    private int[] trim() {
+        int n = graph.getVertexCount();
+        int[] inDegree = new int[n];
+        int[] outDegree = new int[n];
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            inDegree[v] = inOffsets[v + 1] - inOffsets[v];
+            outDegree[v] = graph.outEnd(v) - graph.outStart(v);
+            if (inDegree[v] == 0 || outDegree[v] == 0) {
+                color[v] = DONE;
+                queue[tail++] = v;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            components.add(new int[] {v});
+            for (int e = graph.outStart(v); e < graph.outEnd(v); e++) {
+                int w = graph.getTarget(e);
+                if (color[w] != DONE && --inDegree[w] == 0) {
+                    color[w] = DONE;
+                    queue[tail++] = w;
+                }
+            }
+            for (int e = inOffsets[v]; e < inOffsets[v + 1]; e++) {
+                int u = sources[e];
+                if (color[u] != DONE && --outDegree[u] == 0) {
+                    color[u] = DONE;
+                    queue[tail++] = u;
+                }
+            }
+        }
+        int[] remaining = new int[n - tail];
+        int r = 0;
+        for (int v = 0; v < n; v++) {
+            if (color[v] != DONE) {
+                remaining[r++] = v;
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Submits a subproblem; all its vertices must already have the given color.
+     */
+    private void submit(final int[] vertices, final int subproblemColor) {
+        pendingTasks.incrementAndGet();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (failure.get() == null) {
+                        if (vertices.length < taskThreshold) {
+                            tarjan(vertices, subproblemColor);
+                        } else {
+                            forwardBackward(vertices, subproblemColor);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    if (pendingTasks.decrementAndGet() == 0) {
+                        finished.countDown();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Colors, and thereby claims, only vertices of the subproblem's color, so tasks never write the same
+     * vertex. Colors are never reused, so reading the color of another task's vertex is harmless.
+     */
+    private void forwardBackward(int[] vertices, int subproblemColor) {
+        int pivot = vertices[0];
+        int forwardColor = nextColor.getAndIncrement();
+        int backwardColor = nextColor.getAndIncrement();
+        int[] queue = new int[vertices.length];
+
+        int tail = 0;
+        color[pivot] = forwardColor;
+        queue[tail++] = pivot;
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            for (int e = graph.outStart(v); e < graph.outEnd(v); e++) {
+                int w = graph.getTarget(e);
+                if (color[w] == subproblemColor) {
+                    color[w] = forwardColor;
+                    queue[tail++] = w;
+                }
+            }
+        }
+
+        tail = 0;
+        color[pivot] = DONE;
+        queue[tail++] = pivot;
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            for (int e = inOffsets[v]; e < inOffsets[v + 1]; e++) {
+                int u = sources[e];
+                if (color[u] == forwardColor) {
+                    color[u] = DONE;
+                    queue[tail++] = u;
+                } else if (color[u] == subproblemColor) {
+                    color[u] = backwardColor;
+                    queue[tail++] = u;
+                }
+            }
+        }
+        int[] scc = new int[vertices.length];
+        int size = 0;
+        for (int i = 0; i < tail; i++) {
+            if (color[queue[i]] == DONE) {
+                scc[size++] = queue[i];
+            }
+        }
+        components.add(Arrays.copyOf(scc, size));
+
+        submitRemaining(vertices, forwardColor);
+        submitRemaining(vertices, backwardColor);
+        submitRemaining(vertices, subproblemColor);
+    }
+
+    private void submitRemaining(int[] vertices, int remainingColor) {
+        int[] remaining = new int[vertices.length];
+        int size = 0;
+        for (int v : vertices) {
+            if (color[v] == remainingColor) {
+                remaining[size++] = v;
+            }
+        }
+        if (size > 0) {
+            submit(Arrays.copyOf(remaining, size), remainingColor);
+        }
+    }
+
+    /**
+     * Iterative Tarjan on the vertices of one color.
+     */
+    private void tarjan(int[] vertices, int subproblemColor) {
+        for (int v : vertices) {
+            index[v] = -1;
+        }
+        int counter = 0;
+        int[] stack = new int[vertices.length];
+        int stackSize = 0;
+        int[] callVertex = new int[vertices.length];
+        int[] callEdge = new int[vertices.length];
+        for (int root : vertices) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            index[root] = counter;
+            lowlink[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            callVertex[depth] = root;
+            callEdge[depth++] = graph.outStart(root);
+            while (depth > 0) {
+                int v = callVertex[depth - 1];
+                int e = callEdge[depth - 1];
+                if (e < graph.outEnd(v)) {
+                    callEdge[depth - 1]++;
+                    int w = graph.getTarget(e);
+                    if (color[w] != subproblemColor) {
+                        continue;
+                    }
+                    if (index[w] < 0) {
+                        index[w] = counter;
+                        lowlink[w] = counter++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        callVertex[depth] = w;
+                        callEdge[depth++] = graph.outStart(w);
+                    } else if (onStack[w]) {
+                        lowlink[v] = Math.min(lowlink[v], index[w]);
+                    }
+                } else {
+                    depth--;
+                    if (lowlink[v] == index[v]) {
+                        int start = stackSize;
+                        do {
+                            onStack[stack[--start]] = false;
+                        } while (stack[start] != v);
+                        components.add(Arrays.copyOfRange(stack, start, stackSize));
+                        stackSize = start;
+                    }
+                    if (depth > 0) {
+                        int u = callVertex[depth - 1];
+                        lowlink[u] = Math.min(lowlink[u], lowlink[v]);
+                    }
+                }
+            }
+        }
+    }
+}
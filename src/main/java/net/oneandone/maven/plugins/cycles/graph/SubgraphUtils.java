@@ -16,9 +16,17 @@
 package net.oneandone.maven.plugins.cycles.graph;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import edu.uci.ics.jung.algorithms.filters.FilterUtils;
+import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedSparseGraph;
 import edu.uci.ics.jung.graph.Hypergraph;
+import edu.uci.ics.jung.graph.util.Pair;
 
 /**
  * Different ways of dealing with subgraphs.
@@ -41,6 +49,41 @@ public final class SubgraphUtils {
         return FilterUtils.createAllInducedSubgraphs(vertexSets, graph);
     }
 
+    /**
+     * Presents the vertex sets with more than one vertex as induced subgraphs, in the order of the sets. 
+     * Unlike {@link #asSubgraphs(Collection, Hypergraph)}, this takes a single pass over the edges of the 
+     * graph, and doesn't build graphs for single vertices.
+     * 
+     * @param vertexSets disjoint sets of vertices
+     * @param graph a graph
+     * @param <V> vertex type
+     * @param <E> edge type
+     * @return the subgraphs induced by the sets with more than one vertex
+     */
+    public static <V, E> List<DirectedGraph<V, E>> asNonTrivialSubgraphs(
+            Collection<? extends Collection<V>> vertexSets, DirectedGraph<V, E> graph) {
+        List<DirectedGraph<V, E>> subgraphs = Lists.newArrayList();
+        Map<V, DirectedGraph<V, E>> subgraphOf = Maps.newHashMap();
+        for (Collection<V> vertexSet : vertexSets) {
+            if (vertexSet.size() > 1) {
+                DirectedGraph<V, E> subgraph = new DirectedSparseGraph<V, E>();
+                for (V vertex : vertexSet) {
+                    subgraph.addVertex(vertex);
+                    subgraphOf.put(vertex, subgraph);
+                }
+                subgraphs.add(subgraph);
+            }
+        }
+        for (E edge : graph.getEdges()) {
+            Pair<V> endpoints = graph.getEndpoints(edge);
+            DirectedGraph<V, E> subgraph = subgraphOf.get(endpoints.getFirst());
+            if (subgraph != null && subgraph == subgraphOf.get(endpoints.getSecond())) {
+                subgraph.addEdge(edge, endpoints.getFirst(), endpoints.getSecond());
+            }
+        }
+        return subgraphs;
+    }
+
     private SubgraphUtils() {
         // Don't instantiate
     }
@@ -0,0 +1,91 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+/**
+ * Partial selection of the largest elements by precomputed primitive keys, using a bounded heap of
+ * indices: <i>O(n log k)</i> time and <i>O(k)</i> extra space, with no comparator and no boxing.
+ *
+ * @author chschmitz
+ */
+public final class TopK {
+    /**
+     * @param keys the primary keys; larger is better
+     * @param tieBreakers the secondary keys, must have the same length; smaller is better
+     * @param k the number of elements to select
+     * @return the indices of the <code>k</code> best elements (or all of them, if there are fewer), 
+     * best first
+     */
+    public static int[] select(long[] keys, long[] tieBreakers, int k) {
+        int size = Math.min(k, keys.length);
+        // a heap with the worst selected element at the root
+        int[] heap = new int[size];
+        int filled = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (filled < size) {
+                heap[filled] = i;
+                siftUp(heap, filled++, keys, tieBreakers);
+            } else if (size > 0 && better(i, heap[0], keys, tieBreakers)) {
+                heap[0] = i;
+                siftDown(heap, 0, size, keys, tieBreakers);
+            }
+        }
+        int[] result = new int[size];
+        for (int end = size - 1; end >= 0; end--) {
+            result[end] = heap[0];
+            heap[0] = heap[end];
+            siftDown(heap, 0, end, keys, tieBreakers);
+        }
+        return result;
+    }
+
+    private static boolean better(int i, int j, long[] keys, long[] tieBreakers) {
+        return keys[i] != keys[j] ? keys[i] > keys[j] : tieBreakers[i] < tieBreakers[j];
+    }
+
+    private static void siftUp(int[] heap, int position, long[] keys, long[] tieBreakers) {
+        int element = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!better(heap[parent], element, keys, tieBreakers)) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = element;
+    }
+
+    private static void siftDown(int[] heap, int position, int size, long[] keys, long[] tieBreakers) {
+        int element = heap[position];
+        while (2 * position + 1 < size) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && better(heap[child], heap[child + 1], keys, tieBreakers)) {
+                child++;
+            }
+            if (!better(element, heap[child], keys, tieBreakers)) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = element;
+    }
+
+    private TopK() {
+        // Don't instantiate
+    }
+}
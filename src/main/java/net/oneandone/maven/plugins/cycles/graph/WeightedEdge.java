@@ -18,6 +18,7 @@ package net.oneandone.maven.plugins.cycles.graph;
 import java.util.Set;
 
 import net.oneandone.maven.plugins.cycles.classes.ClassDependency;
+import net.oneandone.maven.plugins.cycles.classes.DependencyKind;
 
 import com.google.common.base.Objects;
 
@@ -48,6 +49,31 @@ public final class WeightedEdge {
         return dependencies.size();
     }
 
+    /**
+     * @param kindMask a bitmask of {@link DependencyKind}s
+     * @return the number of class dependencies with at least one of the given kinds
+     */
+    public int getWeight(int kindMask) {
+        int weight = 0;
+        for (ClassDependency dependency : dependencies) {
+            if ((dependency.getKinds() & kindMask) != 0) {
+                weight++;
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * @return the {@link DependencyKind}s of all class dependencies, as a bitmask
+     */
+    public int getKinds() {
+        int kinds = 0;
+        for (ClassDependency dependency : dependencies) {
+            kinds |= dependency.getKinds();
+        }
+        return kinds;
+    }
+
     public Set<ClassDependency> getDependencies() {
         return dependencies;
     }
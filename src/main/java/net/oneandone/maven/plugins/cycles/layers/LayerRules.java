@@ -0,0 +1,160 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.layers;
+
+import java.util.List;
+import java.util.Map;
+
+import net.oneandone.maven.plugins.cycles.graph.WeightedEdge;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+
+/**
+ * An ordered list of architecture layers, from top to bottom. Each layer is a comma-separated list
+ * of package patterns; a pattern matches the package itself and all its subpackages (a trailing
+ * <code>.*</code> or <code>.**</code> is allowed, but makes no difference; other wildcards are rejected).
+ * A package belongs to the layer of its longest matching pattern. Packages may depend on packages in the
+ * same or in lower layers only; packages that do not match any pattern are not checked.
+ *
+ * The patterns are compiled into a trie over the package name segments, so that looking up the
+ * layer of a package costs one step per segment regardless of the number of patterns.
+ *
+ * @author chschmitz
+ */
+public final class LayerRules {
+    private static final int NO_LAYER = -1;
+
+    private List<String> layers;
+    private Node root = new Node();
+    private int depth;
+
+    /**
+     * @param layers the layers, top to bottom, each one a comma-separated list of package patterns
+     */
+    public LayerRules(List<String> layers) {
+        this.layers = ImmutableList.copyOf(layers);
+        for (int i = 0; i < layers.size(); i++) {
+            for (String pattern : Splitter.on(',').trimResults().omitEmptyStrings().split(layers.get(i))) {
+                add(pattern, i);
+            }
+        }
+    }
+
+    private void add(String pattern, int layer) {
+        String prefix = pattern;
+        if (prefix.endsWith(".**")) {
+            prefix = prefix.substring(0, prefix.length() - 3);
+        } else if (prefix.endsWith(".*")) {
+            prefix = prefix.substring(0, prefix.length() - 2);
+        }
+        Preconditions.checkArgument(prefix.indexOf('*') < 0, 
+                "Package pattern %s has a wildcard other than a trailing .* or .**.", pattern);
+        Node node = root;
+        int segments = 0;
+        for (String segment : Splitter.on('.').omitEmptyStrings().split(prefix)) {
+            segments++;
+            Node child = node.children.get(segment);
+            if (child == null) {
+                child = new Node();
+                node.children.put(segment, child);
+            }
+            node = child;
+        }
+        Preconditions.checkArgument(node.layer == NO_LAYER || node.layer == layer,
+                "Package pattern %s is assigned to more than one layer.", pattern);
+        node.layer = layer;
+        depth = Math.max(depth, segments);
+    }
+
+    public List<String> getLayers() {
+        return layers;
+    }
+
+    /**
+     * @return the number of segments of the longest pattern; packages aggregated to fewer segments 
+     * can never match it
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @param pkg a package name
+     * @return the index of the layer the package belongs to, or -1 if it does not belong to any layer
+     */
+    public int layerOf(String pkg) {
+        Node node = root;
+        int layer = root.layer;
+        int start = 0;
+        while (node != null && start <= pkg.length()) {
+            int end = pkg.indexOf('.', start);
+            if (end < 0) {
+                end = pkg.length();
+            }
+            node = node.children.get(pkg.substring(start, end));
+            if (node != null && node.layer != NO_LAYER) {
+                layer = node.layer;
+            }
+            start = end + 1;
+        }
+        return layer;
+    }
+
+    /**
+     * @param packageGraph the package dependency graph
+     * @return all dependencies from a lower to a higher layer, grouped by pair of layers and
+     * ordered by upper layer first
+     */
+    public List<LayerViolation> check(DirectedGraph<String, WeightedEdge> packageGraph) {
+        Map<String, Integer> layerOfPackage = Maps.newHashMap();
+        for (String pkg : packageGraph.getVertices()) {
+            layerOfPackage.put(pkg, layerOf(pkg));
+        }
+
+        LayerViolation[][] violations = new LayerViolation[layers.size()][layers.size()];
+        for (WeightedEdge edge : packageGraph.getEdges()) {
+            int from = layerOfPackage.get(packageGraph.getSource(edge));
+            int to = layerOfPackage.get(packageGraph.getDest(edge));
+            if (from != NO_LAYER && to != NO_LAYER && to < from) {
+                if (violations[to][from] == null) {
+                    violations[to][from] = new LayerViolation(layers.get(from), layers.get(to));
+                }
+                violations[to][from].add(edge);
+            }
+        }
+
+        List<LayerViolation> result = Lists.newArrayList();
+        for (LayerViolation[] row : violations) {
+            for (LayerViolation violation : row) {
+                if (violation != null) {
+                    result.add(violation);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class Node {
+        private Map<String, Node> children = Maps.newHashMap();
+        private int layer = NO_LAYER;
+    }
+}
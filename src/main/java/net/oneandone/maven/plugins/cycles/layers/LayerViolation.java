@@ -0,0 +1,72 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.layers;
+
+import java.util.List;
+
+import net.oneandone.maven.plugins.cycles.graph.WeightedEdge;
+
+import com.google.common.collect.Lists;
+
+/**
+ * All package dependencies that go from one layer up to another.
+ *
+ * @author chschmitz
+ */
+public final class LayerViolation {
+    private String fromLayer;
+    private String toLayer;
+    private List<WeightedEdge> dependencies = Lists.newArrayList();
+    private int classDependencyCount;
+
+    /**
+     * @param fromLayer the lower layer
+     * @param toLayer the upper layer that <code>fromLayer</code> must not depend on
+     */
+    LayerViolation(String fromLayer, String toLayer) {
+        this.fromLayer = fromLayer;
+        this.toLayer = toLayer;
+    }
+
+    void add(WeightedEdge dependency) {
+        dependencies.add(dependency);
+        classDependencyCount += dependency.getDependencies().size();
+    }
+
+    public String getFromLayer() {
+        return fromLayer;
+    }
+
+    public String getToLayer() {
+        return toLayer;
+    }
+
+    /**
+     * @return the offending package dependencies
+     */
+    public List<WeightedEdge> getDependencies() {
+        return dependencies;
+    }
+
+    public int getClassDependencyCount() {
+        return classDependencyCount;
+    }
+
+    @Override
+    public String toString() {
+        return fromLayer + " -> " + toLayer;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Interactive view of the package cycles in the report: opens a component when its row in the overview is 
+ * clicked, fetching its graph chunk, and the class dependencies behind its package dependencies only when one 
+ * of them is selected.
+ */
+(function () {
+    'use strict';
+
+    var SVG = 'http://www.w3.org/2000/svg';
+    var SIZE = 640;
+    var explorer = document.getElementById('cycles-explorer');
+    var chunks = {};
+
+    function element(name, attributes, parent, namespace) {
+        var node = namespace ? document.createElementNS(namespace, name) : document.createElement(name);
+        Object.keys(attributes).forEach(function (key) {
+            node.setAttribute(key, attributes[key]);
+        });
+        if (parent) {
+            parent.appendChild(node);
+        }
+        return node;
+    }
+
+    function text(name, content, parent) {
+        var node = element(name, {}, parent);
+        node.textContent = content;
+        return node;
+    }
+
+    /* Chunks are gzipped; servers that send them with Content-Encoding: gzip have unpacked them already. */
+    function load(name) {
+        if (!chunks[name]) {
+            chunks[name] = fetch('cycles/' + name).then(function (response) {
+                if (!response.ok) {
+                    throw new Error(name + ': HTTP ' + response.status);
+                }
+                return response.arrayBuffer();
+            }).then(function (buffer) {
+                var bytes = new Uint8Array(buffer);
+                if (bytes[0] !== 0x1f || bytes[1] !== 0x8b) {
+                    return JSON.parse(new TextDecoder().decode(bytes));
+                }
+                var stream = new Blob([bytes]).stream().pipeThrough(new DecompressionStream('gzip'));
+                return new Response(stream).json();
+            });
+        }
+        return chunks[name];
+    }
+
+    function show(component) {
+        explorer.textContent = 'Loading...';
+        load('component-' + component + '.json.gz').then(function (graph) {
+            explorer.textContent = '';
+            text('h3', 'Cycle ' + (component + 1) + ': ' + graph.packages.length + ' packages, ' 
+                    + graph.edges.length + ' dependencies', explorer);
+            var details = element('div', {}, null);
+            drawGraph(graph, component, details);
+            explorer.appendChild(details);
+        }, function (error) {
+            explorer.textContent = 'Could not load the component: ' + error.message;
+        });
+    }
+
+    function drawGraph(graph, component, details) {
+        var svg = element('svg', {width: SIZE, height: SIZE, 'font-size': 11}, explorer, SVG);
+        var defs = element('defs', {}, svg, SVG);
+        ['black', 'red'].forEach(function (color) {
+            var marker = element('marker', {id: 'cycles-arrow-' + color, viewBox: '0 0 10 10', refX: 10, refY: 5,
+                markerWidth: 6, markerHeight: 6, orient: 'auto'}, defs, SVG);
+            element('path', {d: 'M0,0 L10,5 L0,10 z', fill: color}, marker, SVG);
+        });
+        var radius = SIZE / 2 - 120;
+        var points = graph.packages.map(function (pkg, p) {
+            var angle = 2 * Math.PI * p / graph.packages.length;
+            return {x: SIZE / 2 + radius * Math.cos(angle), y: SIZE / 2 + radius * Math.sin(angle)};
+        });
+        var maxWeight = Math.max.apply(null, graph.edges.map(function (edge) { return edge[2]; }));
+        graph.edges.forEach(function (edge, e) {
+            var from = points[edge[0]];
+            var to = points[edge[1]];
+            var color = edge[3] ? 'red' : 'black';
+            var line = element('line', {x1: from.x, y1: from.y, x2: to.x, y2: to.y, stroke: color,
+                'stroke-width': 1 + 3 * edge[2] / maxWeight, 'marker-end': 'url(#cycles-arrow-' + color + ')',
+                cursor: 'pointer'}, svg, SVG);
+            text('title', graph.packages[edge[0]] + ' -> ' + graph.packages[edge[1]] + ' [' + edge[2] + ']', line);
+            line.addEventListener('click', function () {
+                showClassDependencies(graph, component, e, details);
+            });
+        });
+        points.forEach(function (point, p) {
+            var label = element('text', {x: point.x, y: point.y, 'text-anchor': 'middle'}, svg, SVG);
+            label.textContent = graph.packages[p];
+        });
+    }
+
+    function showClassDependencies(graph, component, e, details) {
+        details.textContent = 'Loading...';
+        load('component-' + component + '-classes.json.gz').then(function (classes) {
+            var edge = graph.edges[e];
+            details.textContent = '';
+            text('h4', graph.packages[edge[0]] + ' -> ' + graph.packages[edge[1]] 
+                    + (edge[3] ? ' (cycle-breaking)' : ''), details);
+            var list = element('ul', {}, details);
+            classes.edges[e].forEach(function (dependency) {
+                text('li', dependency[0] + ' -> ' + dependency[1] + ' (' + dependency[2] + ')', list);
+            });
+        }, function (error) {
+            details.textContent = 'Could not load the class dependencies: ' + error.message;
+        });
+    }
+
+    document.querySelectorAll('#cycles-overview a[data-component]').forEach(function (link) {
+        link.addEventListener('click', function () {
+            show(Number(link.getAttribute('data-component')));
+        });
+    });
+}());
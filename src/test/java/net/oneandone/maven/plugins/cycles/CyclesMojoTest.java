@@ -17,8 +17,11 @@ package net.oneandone.maven.plugins.cycles;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.FilenameFilter;
+import java.util.Arrays;
 
 import net.oneandone.maven.plugins.cycles.CyclesMojo;
 
@@ -35,12 +38,54 @@ public class CyclesMojoTest {
         mojo.setClassDir(new File("target/test-classes"));        
         mojo.setPackageDepth(Integer.MAX_VALUE);
         mojo.setWriteDotFiles(true);
+        mojo.setWriteSvgFiles(true);
         mojo.setNamePrefix("");
         mojo.setShorten(true);
+        mojo.setShowMetrics(true);
         
         mojo.execute();
         
-        assertThat(new File("target/graph-0.dot").exists(), is(true));
+        String[] graphFiles = new File("target").list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith("graph-");
+            }
+        });
+        assertThat(graphFiles.length, is(2));
+        Arrays.sort(graphFiles);
+        assertThat(graphFiles[0].endsWith(".dot"), is(true));
+        assertThat(graphFiles[1], is(graphFiles[0].replace(".dot", ".svg")));
+        assertThat(new File("target/package-metrics.csv").exists(), is(true));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void testLayerPatternDeeperThanPackages() throws MojoExecutionException, MojoFailureException {
+        CyclesMojo mojo = new CyclesMojo();
+        mojo.setClassDir(new File("target/test-classes"));
+        mojo.setPackageDepth(3);
+        mojo.setLayers("net.oneandone.maven.plugins", "net.oneandone");
+        mojo.execute();
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void testUnknownBreakKind() throws MojoExecutionException, MojoFailureException {
+        CyclesMojo mojo = new CyclesMojo();
+        mojo.setClassDir(new File("target/test-classes"));
+        mojo.setBreakKinds("inheritance", "fields");
+        mojo.execute();
+    }
+
+    @Test
+    public void testUnknownGraphExport() throws MojoFailureException {
+        CyclesMojo mojo = new CyclesMojo();
+        mojo.setClassDir(new File("target/test-classes"));
+        mojo.setGraphExport("package");
+        try {
+            mojo.execute();
+            fail();
+        } catch (MojoExecutionException e) {
+            assertThat(e.getMessage(), is("Unknown graphExport package, expected packages or classes."));
+        }
     }
 
 }
@@ -0,0 +1,58 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.oneandone.maven.plugins.cycles.classes.ClassDependencies;
+import net.oneandone.maven.plugins.cycles.graph.MoveSimulator;
+import net.oneandone.maven.plugins.cycles.graph.NameFilter;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Test;
+
+public class WhatIfMojoTest {
+    private static final String PKG = "net.oneandone.maven.plugins.cycles.graph.";
+
+    @Test
+    public void testEvaluate() throws IOException {
+        MoveSimulator simulator = new MoveSimulator(new ClassDependencies(NameFilter.nameFilter(PKG + "s"), 
+                new File("target/test-classes")), Integer.MAX_VALUE);
+
+        String report = WhatIfMojo.evaluate(simulator, PKG + "sink.c.C -> " + PKG + "source.a");
+        assertThat(report, containsString("=== Moving " + PKG + "sink.c.C to " + PKG + "source.a\n"));
+        assertThat(report, containsString("Resolved cycle (2 packages): " + PKG + "sink.c, " + PKG + "source.a\n"));
+        // every scenario starts from the classes as they are
+        assertThat(WhatIfMojo.evaluate(simulator, PKG + "sink.b.B -> " + PKG + "sink.c"), 
+                containsString("No change in package cycles.\n"));
+        assertThat(simulator.getCycles().size(), is(1));
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testUnknownClass() throws MojoExecutionException, MojoFailureException {
+        WhatIfMojo mojo = new WhatIfMojo();
+        mojo.setClassDir(new File("target/test-classes"));
+        mojo.setPackageDepth(Integer.MAX_VALUE);
+        mojo.setMoves(PKG + "Unknown -> " + PKG + "sink.c");
+        mojo.execute();
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.analyzer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import net.oneandone.maven.plugins.cycles.graph.NameFilter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class ComponentAnalyzerTest {
+    private static final String PKG = "net/oneandone/maven/plugins/cycles/graph/";
+
+    private File classDir;
+
+    @Before
+    public void setUp() throws IOException {
+        classDir = new File(Files.createTempDir(), "classes");
+        for (String clazz : new String[] {"source/a/A", "sink/b/B", "sink/c/C"}) {
+            File target = new File(classDir, PKG + clazz + ".class");
+            Files.createParentDirs(target);
+            Files.copy(new File("target/test-classes", PKG + clazz + ".class"), target);
+        }
+    }
+
+    @Test
+    public void testReportLimit() throws IOException {
+        ComponentAnalyzer analyzer = new ComponentAnalyzer("net.oneandone.maven.plugins.cycles.graph", false, false,
+                Integer.MAX_VALUE, false, classDir);
+        String full = analyzer.analyze();
+        assertThat(full, containsString("= Dependencies\n"));
+        assertThat(full, containsString("= Packages\n"));
+
+        analyzer.setReportLimit(1);
+        String limited = analyzer.analyze();
+        assertThat(limited, containsString("= Dependencies (1 heaviest of 2)\n"));
+        assertThat(limited, containsString("... 1 more dependency (1 class dependency)\n"));
+        assertThat(limited, containsString("= Packages (1 most involved of 2)\n"));
+        assertThat(limited, containsString("... 1 more package\n"));
+        assertThat(limited.contains("= Cycle-breaking dependencies"), is(true));
+    }
+
+    @Test
+    public void testSourceLocations() throws IOException {
+        ComponentAnalyzer analyzer = new ComponentAnalyzer("net.oneandone.maven.plugins.cycles.graph", false, false,
+                Integer.MAX_VALUE, false, classDir);
+        assertThat(analyzer.analyze().contains("] at "), is(false));
+
+        analyzer.setShowSourceLocations(true);
+        String report = analyzer.analyze();
+        // field types have no lines
+        assertThat(report.contains("] at A.java\n") || report.contains("] at C.java\n"), is(true));
+    }
+
+    @Test
+    public void testSkipIfUnchanged() throws IOException {
+        ComponentAnalyzer analyzer = new ComponentAnalyzer("net.oneandone.maven.plugins.cycles.graph", false, false,
+                Integer.MAX_VALUE, false, classDir);
+        analyzer.setSkipIfUnchanged(true);
+        String report = analyzer.analyze();
+        File reportFile = new File(classDir.getParentFile(), UpToDateCheck.REPORT_FILE);
+        assertThat(Files.toString(reportFile, Charsets.UTF_8), is(report));
+
+        Files.write("replayed", reportFile, Charsets.UTF_8);
+        assertThat(analyzer.analyze(), is("replayed"));
+
+        analyzer.setReportLimit(1);
+        assertThat(analyzer.analyze().contains("= Cycle"), is(true));
+        Files.write("replayed", reportFile, Charsets.UTF_8);
+        File classFile = new File(classDir, PKG + "sink/b/B.class");
+        assertThat(classFile.setLastModified(classFile.lastModified() - 10000), is(true));
+        assertThat(analyzer.analyze().contains("= Cycle"), is(true));
+
+        Files.write("replayed", reportFile, Charsets.UTF_8);
+        ComponentAnalyzer excluding = new ComponentAnalyzer(NameFilter.nameFilter(
+                "net.oneandone.maven.plugins.cycles.graph", null, new String[] {"org.example."}), false, false,
+                Integer.MAX_VALUE, false, classDir);
+        excluding.setSkipIfUnchanged(true);
+        assertThat(excluding.analyze().contains("= Cycle"), is(true));
+    }
+
+    @Test
+    public void testSeparateTestClasses() throws IOException {
+        File testClassDir = new File(classDir.getParentFile(), "test-classes");
+        File testClass = new File(testClassDir, PKG + "sink/c/C.class");
+        Files.createParentDirs(testClass);
+        Files.move(new File(classDir, PKG + "sink/c/C.class"), testClass);
+
+        ComponentAnalyzer analyzer = new ComponentAnalyzer("net.oneandone.maven.plugins.cycles.graph", false, false,
+                Integer.MAX_VALUE, false, classDir);
+        analyzer.setTestClassDirs(testClassDir);
+        String report = analyzer.analyze();
+        assertThat(report, startsWith("No package cycles.\n=== Cycles including test classes\n"));
+        assertThat(report, containsString("=== Cycle / strongly connected component (2 packages, 2 dependencies)"));
+        assertThat(report, containsString("net.oneandone.maven.plugins.cycles.graph.sink.c (test)"));
+    }
+
+    @Test
+    public void testGraphExport() throws Exception {
+        ComponentAnalyzer analyzer = new ComponentAnalyzer("net.oneandone.maven.plugins.cycles.graph", false, false,
+                Integer.MAX_VALUE, false, classDir);
+        File file = new File(classDir.getParentFile(), ComponentAnalyzer.GRAPHML_FILE);
+        DocumentBuilder parser = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+
+        analyzer.setGraphExport(ComponentAnalyzer.EXPORT_PACKAGES);
+        analyzer.analyze();
+        Document packages = parser.parse(file);
+        assertThat(packages.getElementsByTagName("node").getLength(), is(3));
+        assertThat(packages.getElementsByTagName("edge").getLength(), is(3));
+        assertThat(Files.toString(file, Charsets.UTF_8), containsString("<data key=\"feedback\">true</data>"));
+
+        analyzer.setGraphExport(ComponentAnalyzer.EXPORT_CLASSES);
+        analyzer.analyze();
+        Document classes = parser.parse(file);
+        assertThat(classes.getElementsByTagName("node").getLength(), is(3));
+        assertThat(classes.getElementsByTagName("edge").getLength(), is(3));
+        assertThat(Files.toString(file, Charsets.UTF_8), containsString("<data key=\"kinds\">field</data>"));
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.analyzer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
+import com.google.common.io.Files;
+
+public class CycleExplorerTest {
+    private static final String PKG = "net/oneandone/maven/plugins/cycles/graph/";
+
+    private File classDir;
+    private File outputDir;
+
+    @Before
+    public void setUp() throws IOException {
+        File baseDir = Files.createTempDir();
+        classDir = new File(baseDir, "classes");
+        outputDir = new File(baseDir, "site");
+        for (String clazz : new String[] {"source/a/A", "sink/b/B", "sink/c/C"}) {
+            File target = new File(classDir, PKG + clazz + ".class");
+            Files.createParentDirs(target);
+            Files.copy(new File("target/test-classes", PKG + clazz + ".class"), target);
+        }
+    }
+
+    @Test
+    public void testChunks() throws IOException {
+        ComponentAnalysis analysis = new ComponentAnalysis("net.oneandone.maven.plugins.cycles.graph", 
+                Integer.MAX_VALUE, classDir);
+        String html = new CycleExplorer(outputDir).write(analysis);
+        assertThat(html, containsString("<table class=\"bodyTable\" id=\"cycles-overview\">"));
+        assertThat(html, containsString("data-component=\"0\""));
+        assertThat(html, containsString("<td>2</td><td>2</td><td>2</td><td>1</td>"));
+
+        File dir = new File(outputDir, CycleExplorer.DIR);
+        assertThat(new File(dir, "cycles-explorer.js").isFile(), is(true));
+        String graph = gunzip(new File(dir, CycleExplorer.graphChunk(0)));
+        assertThat(graph, containsString("{\"packages\":[\"net.oneandone.maven.plugins.cycles.graph.sink.c\","
+                + "\"net.oneandone.maven.plugins.cycles.graph.source.a\"],\"edges\":["));
+        assertThat(graph, containsString("[0,1,1,true]"));
+        assertThat(graph, containsString("[1,0,1,false]"));
+        String classes = gunzip(new File(dir, CycleExplorer.classesChunk(0)));
+        assertThat(classes, containsString("[\"net.oneandone.maven.plugins.cycles.graph.sink.c.C\","
+                + "\"net.oneandone.maven.plugins.cycles.graph.source.a.A\",\"field"));
+        assertThat(new File(dir, CycleExplorer.graphChunk(1)).exists(), is(false));
+    }
+
+    @Test
+    public void testNoCycles() throws IOException {
+        ComponentAnalysis analysis = new ComponentAnalysis("net.oneandone.maven.plugins.cycles.graph.source", 
+                Integer.MAX_VALUE, classDir);
+        assertThat(new CycleExplorer(outputDir).write(analysis), containsString("<p>No package cycles.</p>"));
+    }
+
+    @Test
+    public void testStaleChunksDeleted() throws IOException {
+        new CycleExplorer(outputDir).write(new ComponentAnalysis("net.oneandone.maven.plugins.cycles.graph", 
+                Integer.MAX_VALUE, classDir));
+        File dir = new File(outputDir, CycleExplorer.DIR);
+        assertThat(new File(dir, CycleExplorer.graphChunk(0)).exists(), is(true));
+
+        new CycleExplorer(outputDir).write(new ComponentAnalysis("net.oneandone.maven.plugins.cycles.graph.source", 
+                Integer.MAX_VALUE, classDir));
+        assertThat(new File(dir, CycleExplorer.graphChunk(0)).exists(), is(false));
+        assertThat(new File(dir, CycleExplorer.classesChunk(0)).exists(), is(false));
+        assertThat(new File(dir, "cycles-explorer.js").isFile(), is(true));
+    }
+
+    private static String gunzip(File file) throws IOException {
+        InputStreamReader in = new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), Charsets.UTF_8);
+        try {
+            return CharStreams.toString(in);
+        } finally {
+            in.close();
+        }
+    }
+}
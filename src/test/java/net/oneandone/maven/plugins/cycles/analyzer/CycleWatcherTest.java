@@ -0,0 +1,65 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.analyzer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.oneandone.maven.plugins.cycles.graph.NameFilter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+public class CycleWatcherTest {
+    private static final String PKG = "net/oneandone/maven/plugins/cycles/graph/";
+
+    private File classDir;
+
+    @Before
+    public void setUp() throws IOException {
+        classDir = Files.createTempDir();
+        for (String clazz : new String[] {"source/a/A", "sink/b/B", "sink/c/C"}) {
+            copyClass(clazz);
+        }
+    }
+
+    private void copyClass(String clazz) throws IOException {
+        File target = new File(classDir, PKG + clazz + ".class");
+        Files.createParentDirs(target);
+        Files.copy(new File("target/test-classes", PKG + clazz + ".class"), target);
+    }
+
+    @Test
+    public void testResolvedAndNewCycle() throws IOException {
+        CycleWatcher watcher = new CycleWatcher(NameFilter.nameFilter("net.oneandone.maven.plugins.cycles.graph"), 
+                false, Integer.MAX_VALUE, false, classDir);
+        assertThat(watcher.currentCycles(), containsString("=== Cycle (2 packages, 2 dependencies)"));
+        assertThat(watcher.poll(), is(""));
+
+        assertThat(new File(classDir, PKG + "sink/c/C.class").delete(), is(true));
+        assertThat(watcher.poll(), containsString("=== Resolved cycle (2 packages)"));
+        assertThat(watcher.currentCycles(), is("No package cycles."));
+
+        copyClass("sink/c/C");
+        assertThat(watcher.poll(), containsString("=== New cycle (2 packages, 2 dependencies)"));
+    }
+}
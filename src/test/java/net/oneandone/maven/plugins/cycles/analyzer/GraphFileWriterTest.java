@@ -0,0 +1,88 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.analyzer;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+
+public class GraphFileWriterTest {
+    private File dir;
+
+    @Before
+    public void setUp() {
+        dir = Files.createTempDir();
+    }
+
+    @Test
+    public void testFileName() {
+        String name = GraphFileWriter.fileName(Arrays.asList("a.b", "a.c"));
+        assertThat(name.startsWith(GraphFileWriter.PREFIX), is(true));
+        assertThat(name.length(), is(GraphFileWriter.PREFIX.length() + 8));
+        assertThat(GraphFileWriter.fileName(Arrays.asList("a.b", "a.c")), is(name));
+        assertThat(GraphFileWriter.fileName(Arrays.asList("a.b", "a.d")).equals(name), is(false));
+    }
+
+    @Test
+    public void testSkipUnchangedAndDeleteStale() throws IOException {
+        assertThat(write(ImmutableMap.of("graph-1.dot", "one", "graph-2.dot", "two")), is(2));
+        assertThat(write(ImmutableMap.of("graph-1.dot", "one", "graph-2.dot", "2")), is(1));
+        assertThat(Files.toString(new File(dir, "graph-2.dot"), Charsets.UTF_8), is("2"));
+
+        Files.write("unrelated", new File(dir, "other.dot"), Charsets.UTF_8);
+        assertThat(write(ImmutableMap.of("graph-1.dot", "one")), is(0));
+        assertThat(new File(dir, "graph-2.dot").exists(), is(false));
+        assertThat(new File(dir, "other.dot").exists(), is(true));
+    }
+
+    @Test
+    public void testKeepStaleUnlessWritingGraphs() throws IOException {
+        assertThat(write(ImmutableMap.of("graph-1.dot", "one")), is(1));
+        assertThat(write(ImmutableMap.<String, String>of(), false), is(0));
+        assertThat(new File(dir, "graph-1.dot").exists(), is(true));
+    }
+
+    private int write(Map<String, String> files) throws IOException {
+        return write(files, true);
+    }
+
+    private int write(final Map<String, String> files, boolean deleteStaleFiles) throws IOException {
+        GraphFileWriter writer = new GraphFileWriter(dir, 2);
+        writer.write(new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call() {
+                return files;
+            }
+        });
+        try {
+            return writer.finish(deleteStaleFiles);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+public class ClassDependenciesTest {
+    private static final String PREFIX = "net.oneandone.maven.plugins.cycles.classes";
+
+    private static final Predicate<String> NAME_FILTER = new Predicate<String>() {
+        @Override
+        public boolean apply(String name) {
+            return name.startsWith(PREFIX);
+        }
+    };
+
+    @Test
+    public void testFatJar() throws IOException {
+        File fatJar = fatJar();
+        Map<String, Collection<ClassDependency>> dependencies = new ClassDependencies(
+                Predicates.<String>alwaysTrue(), fatJar).getClassDependencies();
+        String prefix = "net.oneandone.maven.plugins.cycles.graph.";
+        assertThat(dependencies.keySet().size(), is(3));
+        assertThat(dependencies.containsKey(prefix + "source.a.A"), is(true));
+        assertThat(dependencies.containsKey(prefix + "sink.b.B"), is(true));
+        assertThat(dependencies.containsKey(prefix + "sink.c.C"), is(true));
+    }
+
+    @Test
+    public void testArchiveCache() throws IOException {
+        File fatJar = fatJar();
+        ArchiveCache.clear();
+        Map<String, Collection<ClassDependency>> first = new ClassDependencies(
+                Predicates.<String>alwaysTrue(), fatJar).getClassDependencies();
+        assertThat(ArchiveCache.size(), is(1L));
+        Map<String, Collection<ClassDependency>> second = new ClassDependencies(
+                Predicates.<String>alwaysTrue(), fatJar).getClassDependencies();
+        assertThat(ArchiveCache.size(), is(1L));
+        assertThat(second, is(first));
+
+        new ClassDependencies(NAME_FILTER, fatJar);
+        assertThat(ArchiveCache.size(), is(2L));
+        assertThat(fatJar.setLastModified(fatJar.lastModified() - 10000), is(true));
+        new ClassDependencies(NAME_FILTER, fatJar);
+        assertThat(ArchiveCache.size(), is(3L));
+    }
+
+    @Test
+    public void testOffHeapBypassesArchiveCache() throws IOException {
+        File fatJar = fatJar();
+        File edgeFile = File.createTempFile("edges", ".bin");
+        edgeFile.deleteOnExit();
+        ArchiveCache.clear();
+        ClassDependencies offHeap = new ClassDependencies(
+                Predicates.<String>alwaysTrue(), true, new File[] {fatJar}, edgeFile);
+        try {
+            assertThat(ArchiveCache.size(), is(0L));
+            ClassDependencies onHeap = new ClassDependencies(Predicates.<String>alwaysTrue(), true, fatJar);
+            assertThat(Sets.newHashSet(offHeap.getClassNames()), is(onHeap.getClassDependencies().keySet()));
+        } finally {
+            offHeap.close();
+        }
+    }
+
+    @Test
+    public void testDependencyKinds() throws IOException {
+        File classDir = new File("target/test-classes");
+        Predicate<String> kindsFilter = new Predicate<String>() {
+            @Override
+            public boolean apply(String name) {
+                return name.startsWith(PREFIX + ".kinds");
+            }
+        };
+        assertKinds(new ClassDependencies(kindsFilter, classDir).getClassDependencies().get(PREFIX + ".kinds.Sub"));
+
+        File edgeFile = File.createTempFile("edges", ".bin");
+        ClassDependencies offHeap = new ClassDependencies(kindsFilter, false, new File[] {classDir}, edgeFile);
+        try {
+            Collection<ClassDependency> dependencies = Sets.newHashSet();
+            ClassGraph graph = offHeap.getClassGraph();
+            for (int dependency = 0; dependency < graph.getDependencyCount(); dependency++) {
+                if (graph.getClassName(graph.getSource(dependency)).equals(PREFIX + ".kinds.Sub")) {
+                    dependencies.add(new ClassDependency(PREFIX + ".kinds.Sub", 
+                            graph.getClassName(graph.getTarget(dependency)), graph.getKinds(dependency)));
+                }
+            }
+            assertKinds(dependencies);
+        } finally {
+            offHeap.close();
+            edgeFile.delete();
+        }
+    }
+
+    private static void assertKinds(Collection<ClassDependency> dependencies) {
+        Map<String, Integer> kinds = Maps.newHashMap();
+        for (ClassDependency dependency : dependencies) {
+            kinds.put(dependency.getTo().substring(PREFIX.length() + ".kinds.".length()), dependency.getKinds());
+        }
+        assertThat(kinds.keySet(), is((Set<String>) Sets.newHashSet("Base", "Member", "Parameter", "Helper")));
+        assertThat(DependencyKind.INHERITANCE.isIn(kinds.get("Base")), is(true));
+        assertThat(kinds.get("Member"), is(DependencyKind.FIELD.bit()));
+        // parameters are local variables as well
+        assertThat(DependencyKind.SIGNATURE.isIn(kinds.get("Parameter")), is(true));
+        assertThat(kinds.get("Helper"), is(DependencyKind.BODY.bit()));
+    }
+
+    private static File fatJar() throws IOException {
+        String fixtures = "net/oneandone/maven/plugins/cycles/graph/";
+        ByteArrayOutputStream nestedJar = new ByteArrayOutputStream();
+        ZipOutputStream nested = new ZipOutputStream(nestedJar);
+        addEntry(nested, fixtures + "sink/b/B.class", classFile(fixtures + "sink/b/B.class"));
+        addEntry(nested, fixtures + "sink/c/C.class", classFile(fixtures + "sink/c/C.class"));
+        nested.close();
+
+        File fatJar = File.createTempFile("fat", ".jar");
+        fatJar.deleteOnExit();
+        ZipOutputStream fat = new ZipOutputStream(new FileOutputStream(fatJar));
+        addEntry(fat, "BOOT-INF/classes/" + fixtures + "source/a/A.class", classFile(fixtures + "source/a/A.class"));
+        addEntry(fat, "BOOT-INF/lib/sink.jar", nestedJar.toByteArray());
+        addEntry(fat, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".getBytes("UTF-8"));
+        fat.close();
+        return fatJar;
+    }
+
+    private static byte[] classFile(String path) throws IOException {
+        return Files.toByteArray(new File("target/test-classes", path));
+    }
+
+    private static void addEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    @Test
+    public void testTopLevelClassName() {
+        assertThat(ClassDependencies.topLevelClassName("a.b.Foo"), is("a.b.Foo"));
+        assertThat(ClassDependencies.topLevelClassName("a.b.Foo$Bar$1"), is("a.b.Foo"));
+        assertThat(ClassDependencies.topLevelClassName("a.b.Foo$$Lambda$1"), is("a.b.Foo"));
+        assertThat(ClassDependencies.topLevelClassName("a.b.$Proxy"), is("a.b.$Proxy"));
+        assertThat(ClassDependencies.topLevelClassName("a.b$c.Foo"), is("a.b$c.Foo"));
+    }
+
+    @Test
+    public void testCollapseInnerClasses() throws IOException {
+        File classDir = new File("target/classes");
+        Map<String, Collection<ClassDependency>> expanded = 
+                new ClassDependencies(NAME_FILTER, false, classDir).getClassDependencies();
+        Map<String, Collection<ClassDependency>> collapsed = 
+                new ClassDependencies(NAME_FILTER, true, classDir).getClassDependencies();
+
+        assertThat(expanded.containsKey(PREFIX + ".ClassDependencies$1"), is(true));
+        assertThat(collapsed.containsKey(PREFIX + ".ClassDependencies$1"), is(false));
+        assertThat(collapsed.containsKey(PREFIX + ".ClassDependencies"), is(true));
+        for (Collection<ClassDependency> dependencies : collapsed.values()) {
+            for (ClassDependency dependency : dependencies) {
+                assertThat(dependency.getTo().contains("$"), is(false));
+                assertThat(dependency.getFrom().equals(dependency.getTo()), is(false));
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateCollapsedRemovesNestMembers() throws IOException {
+        File classDir = Files.createTempDir();
+        File packageDir = new File(classDir, PREFIX.replace('.', '/'));
+        assertThat(packageDir.mkdirs(), is(true));
+        for (File file : new File("target/classes", PREFIX.replace('.', '/')).listFiles()) {
+            if (file.getName().startsWith("ClassDependencies")) {
+                Files.copy(file, new File(packageDir, file.getName()));
+            }
+        }
+        ClassDependencies dependencies = new ClassDependencies(NAME_FILTER, true, classDir);
+        Map<String, Collection<ClassDependency>> before = Maps.newHashMap(dependencies.getClassDependencies());
+
+        assertThat(new File(packageDir, "ClassDependencies.class").delete(), is(true));
+        assertThat(new File(packageDir, "ClassDependencies$1.class").delete(), is(true));
+        dependencies.update(Collections.<File>emptyList(),
+                Arrays.asList(PREFIX + ".ClassDependencies", PREFIX + ".ClassDependencies$1"));
+
+        Map<String, Collection<ClassDependency>> expected =
+                new ClassDependencies(NAME_FILTER, true, classDir).getClassDependencies();
+        assertThat(dependencies.getClassDependencies(), is(expected));
+        assertThat(dependencies.getClassDependencies().equals(before), is(false));
+    }
+
+    @Test
+    public void testOffHeap() throws IOException {
+        File classDir = new File("target/classes");
+        File edgeFile = File.createTempFile("edges", ".bin");
+        edgeFile.deleteOnExit();
+        ClassDependencies onHeap = new ClassDependencies(NAME_FILTER, true, classDir);
+        ClassDependencies offHeap = new ClassDependencies(NAME_FILTER, true, new File[] {classDir}, edgeFile);
+        try {
+            assertThat(offHeap.isOffHeap(), is(true));
+            assertThat(Sets.newHashSet(offHeap.getClassNames()), is(onHeap.getClassDependencies().keySet()));
+            int count = 0;
+            for (Collection<ClassDependency> dependencies : onHeap.getClassDependencies().values()) {
+                count += dependencies.size();
+            }
+            assertThat(offHeap.getClassGraph().getDependencyCount(), is(count));
+
+            Map<String, Set<PackageDependency>> expected = new PackageDependencies(onHeap, 7).getPackageDependencies();
+            Map<String, Set<PackageDependency>> actual = new PackageDependencies(offHeap, 7).getPackageDependencies();
+            assertThat(actual.keySet(), is(expected.keySet()));
+            for (String pkg : expected.keySet()) {
+                assertThat(classDependencies(actual.get(pkg)), is(classDependencies(expected.get(pkg))));
+            }
+        } finally {
+            offHeap.close();
+        }
+    }
+
+    private static Map<String, Set<ClassDependency>> classDependencies(Set<PackageDependency> packageDependencies) {
+        Map<String, Set<ClassDependency>> result = Maps.newHashMap();
+        for (PackageDependency dependency : packageDependencies) {
+            Set<ClassDependency> classDependencies = Sets.newHashSet(dependency.getClassDependencies());
+            assertThat(classDependencies.size(), is(dependency.getClassDependencies().size()));
+            result.put(dependency.getTo(), classDependencies);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+public class ClassFileSnapshotTest {
+    @Test
+    public void testRewriteWithinOneTick() throws IOException {
+        File classDir = Files.createTempDir();
+        File classFile = new File(classDir, "a/A.class");
+        Files.createParentDirs(classFile);
+        Files.write(new byte[] {1, 2, 3}, classFile);
+        long lastModified = classFile.lastModified();
+        ClassFileSnapshot before = new ClassFileSnapshot(classDir);
+
+        Files.write(new byte[] {1, 2, 3, 4}, classFile);
+        assertThat(classFile.setLastModified(lastModified), is(true));
+        ClassFileSnapshot after = new ClassFileSnapshot(classDir);
+        assertThat(after.changedSince(before), is((Object) Collections.singletonList(classFile)));
+        assertThat(after.removedSince(before).isEmpty(), is(true));
+    }
+}
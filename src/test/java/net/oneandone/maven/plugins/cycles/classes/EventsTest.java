@@ -0,0 +1,76 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+public class EventsTest {
+    private static final String PREFIX = "net.oneandone.cycles.";
+
+    @Test
+    public void testRecording() throws IOException {
+        File dump = new File(Files.createTempDir(), "cycles.jfr");
+        Recording recording = new Recording();
+        recording.enable(PREFIX + "Parse");
+        recording.enable(PREFIX + "Graph");
+        recording.enable(PREFIX + "Component");
+        recording.start();
+        Events.parse(new File("target/classes")).end(12, 3456);
+        Events.graph("package graph").end(7, 8);
+        Events.component("feedback arc set").end(3, 4);
+        recording.stop();
+        recording.dump(dump.toPath());
+        recording.close();
+
+        Map<String, RecordedEvent> events = Maps.newHashMap();
+        List<RecordedEvent> recorded = RecordingFile.readAllEvents(dump.toPath());
+        for (RecordedEvent event : recorded) {
+            events.put(event.getEventType().getName(), event);
+        }
+        RecordedEvent parse = events.get(PREFIX + "Parse");
+        assertThat(parse.getString("input"), is(new File("target/classes").getPath()));
+        assertThat(parse.getLong("classes"), is(12L));
+        assertThat(parse.getLong("bytes"), is(3456L));
+        RecordedEvent graph = events.get(PREFIX + "Graph");
+        assertThat(graph.getString("phase"), is("package graph"));
+        assertThat(graph.getLong("vertices"), is(7L));
+        assertThat(graph.getLong("edges"), is(8L));
+        RecordedEvent component = events.get(PREFIX + "Component");
+        assertThat(component.getString("phase"), is("feedback arc set"));
+        assertThat(component.getLong("vertices"), is(3L));
+        assertThat(component.getLong("edges"), is(4L));
+    }
+
+    @Test
+    public void testNoRecording() {
+        assertThat(Events.graph("package graph"), is(Phase.NONE));
+    }
+}
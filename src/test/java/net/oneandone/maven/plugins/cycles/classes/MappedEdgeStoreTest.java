@@ -0,0 +1,55 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class MappedEdgeStoreTest {
+    @Test
+    public void testSortAndDeduplicateAcrossChunks() throws IOException {
+        File file = File.createTempFile("edges", ".bin");
+        file.deleteOnExit();
+        MappedEdgeStore store = new MappedEdgeStore(file, 4);
+        Random random = new Random(42);
+        SortedSet<Long> expected = Sets.newTreeSet();
+        for (int i = 0; i < 1000; i++) {
+            long value = (long) random.nextInt(50) << Integer.SIZE | random.nextInt(50);
+            store.add(value);
+            expected.add(value);
+        }
+        store.sortAndDeduplicate();
+
+        List<Long> actual = Lists.newArrayList();
+        for (int i = 0; i < store.size(); i++) {
+            actual.add(store.get(i));
+        }
+        store.close();
+        assertThat(actual, is((List<Long>) Lists.newArrayList(expected)));
+        assertThat(store.size(), is(0));
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.base.Predicates;
+
+public class SourceLocatorTest {
+    private static final String KINDS = "net.oneandone.maven.plugins.cycles.classes.kinds.";
+
+    @Test
+    public void testLocate() throws IOException {
+        SourceLocator locator = new SourceLocator(Predicates.<String>alwaysTrue(), false, 
+                new File("target/test-classes"));
+        assertThat(locator.locate(new ClassDependency(KINDS + "Sub", KINDS + "Helper")), 
+                is(Arrays.asList("Sub.java:22")));
+        assertThat(locator.locate(new ClassDependency(KINDS + "Sub", KINDS + "Base")), 
+                is(Arrays.asList("Sub.java:18")));
+        assertThat(locator.locate(new ClassDependency(KINDS + "Sub", KINDS + "Member")), 
+                is(Arrays.asList("Sub.java")));
+        assertThat(locator.locate(new ClassDependency(KINDS + "Missing", KINDS + "Member")), 
+                is(Collections.<String>emptyList()));
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.classes;
+
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class TypeSignaturesTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMethodDescriptor() {
+        Set<String> names = Sets.newHashSet();
+        TypeSignatures.collectClassNames("(I[Lcom/acme/Foo;J)Ljava/lang/String;", names);
+        assertThat(names.size(), is(2));
+        assertThat(names, hasItems("com.acme.Foo", "java.lang.String"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGenericSignature() {
+        Set<String> names = Sets.newHashSet();
+        TypeSignatures.collectClassNames("<T:Lcom/acme/Bound;L:Ljava/lang/Object;>"
+                + "(Ljava/util/Map<TT;+Lcom/acme/Foo<*>.Inner<Lcom/acme/Bar;>;>;)TL;^Lcom/acme/Failure;", names);
+        assertThat(names.size(), is(6));
+        assertThat(names, hasItems("com.acme.Bound", "java.lang.Object", "java.util.Map",
+                "com.acme.Foo", "com.acme.Bar", "com.acme.Failure"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testInternalName() {
+        Set<String> names = Sets.newHashSet();
+        TypeSignatures.collectInternalName("com/acme/Foo$1", names);
+        TypeSignatures.collectInternalName("[[Lcom/acme/Bar;", names);
+        TypeSignatures.collectInternalName("[I", names);
+        assertThat(names.size(), is(2));
+        assertThat(names, hasItems("com.acme.Foo$1", "com.acme.Bar"));
+    }
+}
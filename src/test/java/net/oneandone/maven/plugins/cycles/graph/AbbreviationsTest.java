@@ -0,0 +1,67 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class AbbreviationsTest {
+    @Test
+    public void testShortestUniquePrefixes() {
+        Abbreviations abbreviations = Abbreviations.of(Arrays.asList("com.acme.parser", "com.acme.printer", 
+                "com.acme.parser.Foo", "com.acme.printer.Foo", "com.apple.Bar", "org.acme.Baz"));
+        assertThat(abbreviations.abbreviate("com.acme.parser"), is("c.ac.parser"));
+        assertThat(abbreviations.abbreviate("com.acme.printer"), is("c.ac.printer"));
+        assertThat(abbreviations.abbreviate("com.acme.parser.Foo"), is("c.ac.pa.Foo"));
+        assertThat(abbreviations.abbreviate("com.acme.printer.Foo"), is("c.ac.pr.Foo"));
+        assertThat(abbreviations.abbreviate("com.apple.Bar"), is("c.ap.Bar"));
+        assertThat(abbreviations.abbreviate("org.acme.Baz"), is("o.a.Baz"));
+    }
+
+    @Test
+    public void testPrefixSegments() {
+        Abbreviations abbreviations = Abbreviations.of(Arrays.asList("a.foo.X", "a.foobar.X"));
+        assertThat(abbreviations.abbreviate("a.foo.X"), is("a.foo.X"));
+        assertThat(abbreviations.abbreviate("a.foobar.X"), is("a.foob.X"));
+    }
+
+    @Test
+    public void testUnknownNames() {
+        Abbreviations abbreviations = Abbreviations.of(Arrays.asList("com.acme.parser", "com.apple.Bar"));
+        assertThat(abbreviations.abbreviate("com.acme.printer.Foo"), is("c.ac.p.Foo"));
+        assertThat(abbreviations.abbreviate("Foo"), is("Foo"));
+        assertThat(Abbreviations.none().abbreviate("com.acme.Foo"), is("com.acme.Foo"));
+    }
+
+    @Test
+    public void testCollisionFree() {
+        List<String> names = Arrays.asList("a.b.c", "a.bc.c", "a.bd.c", "ab.b.c", "a.b.cd", "a.b", "a.b.c.d");
+        Abbreviations abbreviations = Abbreviations.of(names);
+        Set<String> abbreviated = Sets.newHashSet();
+        for (String name : names) {
+            abbreviated.add(abbreviations.abbreviate(name));
+        }
+        assertThat(abbreviated.size(), is(names.size()));
+    }
+}
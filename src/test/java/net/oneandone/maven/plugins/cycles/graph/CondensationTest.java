@@ -0,0 +1,81 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedSparseGraph;
+
+public class CondensationTest {
+    private Condensation<String> condensation;
+
+    @Before
+    public void setUp() {
+        // web -> {service <-> api} -> db -> util, web -> util
+        DirectedGraph<String, Integer> g = new DirectedSparseGraph<String, Integer>();
+        g.addEdge(1, "web", "service");
+        g.addEdge(2, "service", "api");
+        g.addEdge(3, "api", "service");
+        g.addEdge(4, "api", "db");
+        g.addEdge(5, "service", "db");
+        g.addEdge(6, "db", "util");
+        g.addEdge(7, "web", "util");
+        condensation = new Condensation<String>(g);
+    }
+
+    @Test
+    public void testDag() {
+        assertThat(condensation.getComponentCount(), is(4));
+        assertThat(condensation.getComponentOf("service"), is(condensation.getComponentOf("api")));
+        int service = condensation.getComponentOf("service");
+        assertThat(condensation.getSuccessors(service).length, is(1));
+
+        int[] order = condensation.getTopologicalOrder();
+        assertThat(order[0], is(condensation.getComponentOf("web")));
+        assertThat(order[3], is(condensation.getComponentOf("util")));
+    }
+
+    @Test
+    public void testLevels() {
+        assertThat(condensation.getLevel("util"), is(0));
+        assertThat(condensation.getLevel("db"), is(1));
+        assertThat(condensation.getLevel("api"), is(2));
+        assertThat(condensation.getLevel("web"), is(3));
+    }
+
+    @Test
+    public void testReachability() {
+        assertThat(condensation.dependsOn("web", "db"), is(true));
+        assertThat(condensation.dependsOn("db", "web"), is(false));
+        assertThat(condensation.dependsOn("api", "service"), is(true));
+        assertThat(condensation.dependsOn("api", "api"), is(true));
+        assertThat(condensation.dependsOn("db", "db"), is(false));
+    }
+
+    @Test
+    public void testCounts() {
+        assertThat(condensation.getDependencyCount("web"), is(4));
+        assertThat(condensation.getDependencyCount("service"), is(3));
+        assertThat(condensation.getDependentCount("util"), is(4));
+        assertThat(condensation.getDependentCount("service"), is(2));
+        assertThat(condensation.getDependentCount("web"), is(0));
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedSparseGraph;
+
+public class CyclesTest {
+    private IndexedGraph<String, Integer> graph;
+
+    @Before
+    public void setUp() {
+        // a -> b -> c -> d -> a, plus the shortcut b -> d and the dead end c -> e
+        DirectedGraph<String, Integer> g = new DirectedSparseGraph<String, Integer>();
+        g.addEdge(1, "a", "b");
+        g.addEdge(2, "b", "c");
+        g.addEdge(3, "c", "d");
+        g.addEdge(4, "d", "a");
+        g.addEdge(5, "b", "d");
+        g.addEdge(6, "c", "e");
+        graph = new IndexedGraph<String, Integer>(g);
+    }
+
+    @Test
+    public void testIndexedGraph() {
+        assertThat(graph.getVertexCount(), is(5));
+        assertThat(graph.getEdgeCount(), is(6));
+        int b = graph.indexOf("b");
+        assertThat(graph.outEnd(b) - graph.outStart(b), is(2));
+        assertThat(graph.indexOf("x"), is(-1));
+    }
+
+    @Test
+    public void testShortestCycle() {
+        assertThat(graph.getVertices(shortestCycle("d", "a")), is(Arrays.asList("d", "a", "b")));
+        assertThat(graph.getVertices(shortestCycle("c", "d")), is(Arrays.asList("c", "d", "a", "b")));
+        assertThat(shortestCycle("c", "e"), is(nullValue()));
+    }
+
+    private int[] shortestCycle(String from, String to) {
+        return Cycles.shortestCycle(graph, graph.indexOf(from), graph.indexOf(to));
+    }
+
+    @Test
+    public void testElementaryCycles() {
+        CycleEnumeration<String> all = Cycles.elementaryCycles(graph, 10, 10, 10000);
+        assertThat(all.isComplete(), is(true));
+        assertThat(all.getCycles().size(), is(2));
+
+        CycleEnumeration<String> short3 = Cycles.elementaryCycles(graph, 3, 10, 10000);
+        assertThat(short3.isComplete(), is(true));
+        assertThat(short3.getCycles().size(), is(1));
+        assertThat(short3.getCycles().get(0).size(), is(3));
+
+        CycleEnumeration<String> one = Cycles.elementaryCycles(graph, 10, 1, 10000);
+        assertThat(one.isComplete(), is(false));
+        assertThat(one.getCycles().size(), is(1));
+    }
+}
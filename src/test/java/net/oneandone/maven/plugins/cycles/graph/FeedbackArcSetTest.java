@@ -22,14 +22,18 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import javax.annotation.Nullable;
 
+import net.oneandone.maven.plugins.cycles.classes.DependencyKind;
+
 import org.junit.Test;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
 
 import edu.uci.ics.jung.algorithms.filters.FilterUtils;
 import edu.uci.ics.jung.graph.DirectedGraph;
@@ -108,4 +112,44 @@ public class FeedbackArcSetTest {
         assertThat(graph.getDest(feedbackArc), is("instable"));
     }
 
+    @Test
+    public void testFeedbackArcsInstabilityByKind() {
+        DirectedGraph<String, WeightedEdge> graph = new DirectedSparseGraph<String, WeightedEdge>();
+        WeightedEdge constants = weightedEdge(1, 10, DependencyKind.CONSTANT.bit());
+        WeightedEdge inheritance = weightedEdge(2, 2, DependencyKind.INHERITANCE.bit());
+        graph.addEdge(constants, "a", "b");
+        graph.addEdge(inheritance, "b", "a");
+
+        assertThat(FeedbackArcSet.feedbackArcs(graph, new InstabilityVertexEvaluator<String>()), 
+                is((Collection<WeightedEdge>) ImmutableList.of(inheritance)));
+        int structural = DependencyKind.mask("inheritance", "field", "signature");
+        assertThat(FeedbackArcSet.feedbackArcs(graph, new InstabilityVertexEvaluator<String>(structural)), 
+                is((Collection<WeightedEdge>) ImmutableList.of(constants)));
+    }
+
+    @Test
+    public void testFeedbackArcsOfVertexOrder() {
+        DirectedGraph<Integer, WeightedEdge> graph = new DirectedSparseGraph<Integer, WeightedEdge>();
+        for (int i = 0; i < 10; i++) {
+            graph.addEdge(weightedEdge(i, i + 1), i, (i + 1) % 10);
+            graph.addEdge(weightedEdge(10 + i, 1), i, (i + 3) % 10);
+        }
+
+        InstabilityVertexEvaluator<Integer> evaluator = new InstabilityVertexEvaluator<Integer>();
+        List<Integer> vertexOrder = FeedbackArcSet.vertexOrder(graph, evaluator);
+        assertThat(vertexOrder.size(), is(10));
+        assertThat(FeedbackArcSet.feedbackArcs(graph, vertexOrder), 
+                is(FeedbackArcSet.feedbackArcs(graph, evaluator)));
+    }
+
+    @Test
+    public void testKindMask() {
+        assertThat(DependencyKind.mask(), is(DependencyKind.ALL));
+        assertThat(DependencyKind.mask("Field", " body"), is(DependencyKind.FIELD.bit() | DependencyKind.BODY.bit()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownKind() {
+        DependencyKind.mask("fields");
+    }
 }
@@ -0,0 +1,93 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import static net.oneandone.maven.plugins.cycles.graph.TestUtil.weightedEdge;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.TreeMultimap;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedSparseGraph;
+
+public class GraphDotUtilsTest {
+    private DirectedGraph<String, WeightedEdge> graph;
+
+    @Before
+    public void setUp() {
+        graph = new DirectedSparseGraph<String, WeightedEdge>();
+        graph.addEdge(weightedEdge(1, 3), "com.acme.web.a", "com.acme.web.b");
+        graph.addEdge(weightedEdge(2, 2), "com.acme.web.b", "com.acme.db");
+        graph.addEdge(weightedEdge(3, 1), "com.acme.db", "com.acme.web.a");
+    }
+
+    @Test
+    public void testClusters() {
+        TreeMultimap<String, String> clusters = GraphDotUtils.clusters(graph.getVertices());
+        assertThat(clusters.keySet().size(), is(2));
+        assertThat(clusters.get("com.acme.web").size(), is(2));
+        assertThat(clusters.get("com.acme.db").size(), is(1));
+    }
+
+    @Test
+    public void testSmallComponent() {
+        Map<String, String> files = GraphDotUtils.toDotFiles(graph, false, 3);
+        assertThat(files.size(), is(1));
+        assertThat(files.get(""), containsString("subgraph cluster_1 {"));
+        assertThat(files.get(""), containsString("label=\"com.acme.web\";"));
+        assertThat(files.get(""), containsString("\"com.acme.web.a\" -> \"com.acme.web.b\""));
+    }
+
+    @Test
+    public void testLargeComponent() {
+        Map<String, String> files = GraphDotUtils.toDotFiles(graph, false, 2);
+        assertThat(files.size(), is(2));
+        assertThat(files.get(""), containsString("\"com.acme.web\" -> \"com.acme.db\" [label=\"2\""));
+        assertThat(files.get(""), containsString("\"com.acme.db\" -> \"com.acme.web\" [label=\"1\""));
+        assertThat(files.get("-1"), containsString("\"com.acme.web.a\" -> \"com.acme.web.b\""));
+        assertThat(files.get("-1"), containsString("\"com.acme.web.b\" -> \"com.acme.db\""));
+    }
+
+    @Test
+    public void testOversizedCluster() {
+        DirectedGraph<String, WeightedEdge> nested = new DirectedSparseGraph<String, WeightedEdge>();
+        nested.addEdge(weightedEdge(1, 1), "com.acme.web.a.x", "com.acme.web.a.y");
+        nested.addEdge(weightedEdge(2, 2), "com.acme.web.a.y", "com.acme.web.b");
+        nested.addEdge(weightedEdge(3, 3), "com.acme.web.b", "com.acme.db");
+        nested.addEdge(weightedEdge(4, 4), "com.acme.db", "com.acme.web.a.x");
+        Map<String, String> files = GraphDotUtils.toDotFiles(nested, false, 2);
+        assertThat(files.keySet(), is((Set<String>) ImmutableSet.of("", "-1", "-1-0")));
+        assertThat(files.get(""), 
+                containsString("\"com.acme.web\" [shape=box,label=\"com.acme.web.*\\n(3 packages)\"]"));
+        assertThat(files.get("-1"), containsString("\"com.acme.db\" [shape=box,style=dashed]"));
+        assertThat(files.get("-1"), containsString("\"com.acme.web.a\" -> \"com.acme.web.b\" [label=\"2\""));
+        assertThat(files.get("-1"), containsString("\"com.acme.db\" -> \"com.acme.web.a\" [label=\"4\""));
+        assertThat(files.get("-1-0"), containsString("\"com.acme.web.a.x\" -> \"com.acme.web.a.y\""));
+        assertThat(files.get("-1-0"), containsString("\"com.acme.web.a.y\" -> \"com.acme.web.b\""));
+        assertThat(files.get("-1-0"), not(containsString("\"com.acme.web\"")));
+    }
+}
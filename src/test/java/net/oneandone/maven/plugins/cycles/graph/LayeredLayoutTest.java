@@ -0,0 +1,72 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LayeredLayoutTest {
+
+    @Test
+    public void testCycle() {
+        double[] widths = {50, 50, 50, 50};
+        int[] from = {0, 1, 2, 3, 0};
+        int[] to = {1, 2, 3, 0, 2};
+        LayeredLayout layout = new LayeredLayout(widths, from, to);
+
+        for (int v = 0; v < widths.length; v++) {
+            assertThat(layout.getLayer(v), is(v));
+        }
+        // 3 -> 0 is reversed and passes through two dummy nodes, 0 -> 2 through one
+        assertThat(layout.getPath(3).length, is(4));
+        assertThat(layout.getPath(3)[0], is(3));
+        assertThat(layout.getPath(3)[3], is(0));
+        assertThat(layout.getPath(4).length, is(3));
+        assertThat(layout.isDummy(layout.getPath(4)[1]), is(true));
+    }
+
+    @Test
+    public void testNoOverlaps() {
+        Random random = new Random(42);
+        int vertexCount = 500;
+        double[] widths = new double[vertexCount];
+        Arrays.fill(widths, 80);
+        int[] from = new int[2000];
+        int[] to = new int[from.length];
+        for (int e = 0; e < from.length; e++) {
+            from[e] = random.nextInt(vertexCount);
+            to[e] = Math.min(vertexCount - 1, from[e] + 1 + random.nextInt(5));
+        }
+        LayeredLayout layout = new LayeredLayout(widths, from, to);
+
+        for (int v = 0; v < vertexCount; v++) {
+            assertThat(layout.getX(v), greaterThan(widths[v] / 2));
+            assertThat(layout.getX(v), lessThan(layout.getWidth() - widths[v] / 2));
+            for (int w = v + 1; w < vertexCount; w++) {
+                if (layout.getLayer(v) == layout.getLayer(w)) {
+                    assertThat(Math.abs(layout.getX(v) - layout.getX(w)), greaterThan(widths[v] - 1e-6));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedSet;
+
+import net.oneandone.maven.plugins.cycles.classes.ClassDependencies;
+import net.oneandone.maven.plugins.cycles.classes.PackageDependencies;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+
+public class MoveSimulatorTest {
+    private static final String PKG = "net.oneandone.maven.plugins.cycles.graph.";
+    private static final String A = PKG + "source.a";
+    private static final String B = PKG + "sink.b";
+    private static final String C = PKG + "sink.c";
+
+    private MoveSimulator simulator;
+
+    @Before
+    public void setUp() throws IOException {
+        File baseDir = new File(MoveSimulatorTest.class.getResource(".").getFile());
+        ClassDependencies classDependencies = new ClassDependencies(
+                NameFilter.nameFilter(Arrays.asList(PKG + "source", PKG + "sink"), Collections.<String>emptySet()), 
+                baseDir);
+        simulator = new MoveSimulator(classDependencies, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testMoveResolvesCycle() {
+        assertThat(simulator.getCycles(), is(cycles(A, C)));
+
+        MoveSimulator.Result result = simulator.move(Collections.singleton(C + ".C"), A);
+        assertThat(result.getResolvedCycles(), is(cycles(A, C)));
+        assertThat(result.getNewCycles().isEmpty(), is(true));
+        assertThat(simulator.getCycles().isEmpty(), is(true));
+        assertThat(simulator.getDependencyCount(A, C), is(0));
+        assertThat(simulator.getDependencyCount(A, B), is(1));
+
+        result = simulator.undo();
+        assertThat(result.getNewCycles(), is(cycles(A, C)));
+        assertThat(simulator.getCycles(), is(cycles(A, C)));
+        assertThat(simulator.getDependencyCount(A, C), is(1));
+        assertThat(simulator.getDependencyCount(C, A), is(1));
+    }
+
+    @Test
+    public void testMoveToNewPackage() {
+        String d = PKG + "sink.d";
+        MoveSimulator.Result result = simulator.move(Collections.singleton(C + ".C"), d);
+        assertThat(result.getResolvedCycles(), is(cycles(A, C)));
+        assertThat(result.getNewCycles(), is(cycles(A, d)));
+        assertThat(simulator.getCycles(), is(cycles(A, d)));
+    }
+
+    @Test
+    public void testMoveCreatesCycle() {
+        assertThat(simulator.move(Collections.singleton(B + ".B"), C).isUnchanged(), is(true));
+        simulator.undo();
+
+        // A depends on C, and C on A
+        MoveSimulator.Result result = simulator.move(Collections.singleton(A + ".A"), B);
+        assertThat(result.getResolvedCycles(), is(cycles(A, C)));
+        assertThat(result.getNewCycles(), is(cycles(B, C)));
+        result = simulator.undo();
+        assertThat(result.getResolvedCycles(), is(cycles(B, C)));
+        assertThat(result.getNewCycles(), is(cycles(A, C)));
+
+        simulator.move(Collections.singleton(C + ".C"), A);
+        result = simulator.move(Collections.singleton(C + ".C"), C);
+        assertThat(result.getResolvedCycles().isEmpty(), is(true));
+        assertThat(result.getNewCycles(), is(cycles(A, C)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownClass() {
+        simulator.move(Collections.singleton(PKG + "Unknown"), A);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNothingToUndo() {
+        simulator.undo();
+    }
+
+    /**
+     * Compares a seeded series of random moves and undos on Guava's packages with a full analysis after each step.
+     */
+    @Test
+    public void testRandomMovesMatchFullAnalysis() throws Exception {
+        File guava = new File(Preconditions.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        ClassDependencies classDependencies = new ClassDependencies(NameFilter.nameFilter("com.google.common."), guava);
+        Function<String, String> packageNames = PackageDependencies.packageNames(Integer.MAX_VALUE);
+        MoveSimulator randomSimulator = new MoveSimulator(classDependencies, packageNames);
+
+        List<String> topLevelClasses = Lists.newArrayList();
+        for (String className : Ordering.natural().sortedCopy(classDependencies.getClassNames())) {
+            if (className.indexOf('$') < 0) {
+                topLevelClasses.add(className);
+            }
+        }
+        SortedSet<String> packages = Sets.newTreeSet(Collections.singleton("com.google.common.moved"));
+        for (String className : classDependencies.getAllClassNames()) {
+            packages.add(packageNames.apply(className));
+        }
+        List<String> targets = Lists.newArrayList(packages);
+
+        Random random = new Random(4711);
+        Map<String, String> moved = Maps.newHashMap();
+        Deque<Map<String, String>> undoStack = new ArrayDeque<Map<String, String>>();
+        Set<SortedSet<String>> cycles = fullAnalysis(classDependencies, packageNames, moved);
+        assertThat(randomSimulator.getCycles(), is(cycles));
+        for (int step = 0; step < 100; step++) {
+            MoveSimulator.Result result;
+            if (!undoStack.isEmpty() && random.nextInt(3) == 0) {
+                moved = undoStack.pop();
+                result = randomSimulator.undo();
+            } else {
+                undoStack.push(Maps.newHashMap(moved));
+                List<String> classes = Lists.newArrayList();
+                for (int i = random.nextInt(3); i >= 0; i--) {
+                    classes.add(topLevelClasses.get(random.nextInt(topLevelClasses.size())));
+                }
+                String target = targets.get(random.nextInt(targets.size()));
+                for (String className : classDependencies.getAllClassNames()) {
+                    for (String movedClass : classes) {
+                        if (className.equals(movedClass) || className.startsWith(movedClass + "$")) {
+                            moved.put(className, target);
+                        }
+                    }
+                }
+                result = randomSimulator.move(classes, target);
+            }
+            Set<SortedSet<String>> expected = fullAnalysis(classDependencies, packageNames, moved);
+            assertThat("step " + step, randomSimulator.getCycles(), is(expected));
+            assertThat(result.getResolvedCycles(), is((Set<SortedSet<String>>) 
+                    ImmutableSet.copyOf(Sets.difference(cycles, expected))));
+            assertThat(result.getNewCycles(), is((Set<SortedSet<String>>) 
+                    ImmutableSet.copyOf(Sets.difference(expected, cycles))));
+            cycles = expected;
+        }
+    }
+
+    private static Set<SortedSet<String>> fullAnalysis(ClassDependencies classDependencies, 
+            final Function<String, String> packageNames, final Map<String, String> moved) {
+        DirectedGraph<String, WeightedEdge> graph = GraphBuilder.buildPackageGraph(classDependencies, 
+                new Function<String, String>() {
+                    @Override
+                    public String apply(String className) {
+                        String pkg = moved.get(className);
+                        return pkg != null ? pkg : packageNames.apply(className);
+                    }
+                });
+        Set<SortedSet<String>> cycles = Sets.newHashSet();
+        for (Set<String> component : StronglyConnectedComponents.strongComponentsAsSets(graph)) {
+            if (component.size() > 1) {
+                cycles.add(Sets.newTreeSet(component));
+            }
+        }
+        return cycles;
+    }
+
+    private static Set<SortedSet<String>> cycles(String... packages) {
+        return ImmutableSet.<SortedSet<String>>of(Sets.newTreeSet(Arrays.asList(packages)));
+    }
+}
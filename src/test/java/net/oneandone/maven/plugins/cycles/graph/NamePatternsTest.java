@@ -0,0 +1,94 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class NamePatternsTest {
+
+    @Test
+    public void testPrefixes() {
+        NamePatterns patterns = new NamePatterns(Arrays.asList("com.acme.", "org.example.Foo"));
+        assertThat(patterns.matches("com.acme.Foo"), is(true));
+        assertThat(patterns.matches("com.acme.sub.Foo"), is(true));
+        assertThat(patterns.matches("com.acmex.Foo"), is(false));
+        assertThat(patterns.matches("org.example.FooBar"), is(true));
+        assertThat(patterns.matches("org.example.Bar"), is(false));
+    }
+
+    @Test
+    public void testWildcards() {
+        NamePatterns patterns = new NamePatterns(Arrays.asList("com.*.generated.", "org.**.vendor."));
+        assertThat(patterns.matches("com.acme.generated.Foo"), is(true));
+        assertThat(patterns.matches("com.acme.sub.generated.Foo"), is(false));
+        assertThat(patterns.matches("org.vendor.Foo"), is(false));
+        assertThat(patterns.matches("org.a.vendor.Foo"), is(true));
+        assertThat(patterns.matches("org.a.b.c.vendor.Foo"), is(true));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertThat(new NamePatterns(Collections.<String>emptyList()).matches("foo"), is(false));
+        assertThat(new NamePatterns(Arrays.asList("")).matches("foo"), is(true));
+    }
+
+    @Test
+    public void testNameFilter() {
+        NameFilter filter = NameFilter.nameFilter("com.acme", null, new String[] {"com.acme.generated."});
+        assertThat(filter.apply("com.acme.Foo"), is(true));
+        assertThat(filter.apply("com.acme.generated.Foo"), is(false));
+        assertThat(filter.apply("java.lang.String"), is(false));
+    }
+
+    @Test
+    public void testDeadEnds() {
+        NamePatterns patterns = new NamePatterns(Arrays.asList("a.*x", "a.b.c"));
+        assertThat(patterns.matches("a.bx"), is(true));
+        assertThat(patterns.matches("a.b.c"), is(true));
+        assertThat(patterns.matches("a.b.x"), is(false));
+        assertThat(patterns.matches("a.b"), is(false));
+        assertThat(patterns.matches("a.yyx"), is(true));
+    }
+
+    @Test
+    public void testNameFilterPrefixAndIncludes() {
+        NameFilter filter = NameFilter.nameFilter("com.acme", new String[] {"com.acme.web", "org.example"}, null);
+        assertThat(filter.apply("com.acme.web.Foo"), is(true));
+        assertThat(filter.apply("com.acme.Foo"), is(false));
+        assertThat(filter.apply("org.example.Foo"), is(false));
+        NameFilter withoutPrefix = NameFilter.nameFilter(null, new String[] {"com.acme.web", "org.example"}, null);
+        assertThat(withoutPrefix.apply("org.example.Foo"), is(true));
+    }
+
+    @Test
+    public void testNameFilterEquality() {
+        NameFilter filter = NameFilter.nameFilter("com.acme", new String[] {"org.example"}, 
+                new String[] {"com.acme.gen"});
+        NameFilter same = NameFilter.nameFilter("com.acme", new String[] {"org.example"}, 
+                new String[] {"com.acme.gen"});
+        assertThat(filter.equals(same), is(true));
+        assertThat(filter.hashCode(), is(same.hashCode()));
+        assertThat(filter.equals(NameFilter.nameFilter(Arrays.asList("org.example"), Arrays.asList("com.acme.gen"))),
+                is(false));
+        assertThat(filter.equals(NameFilter.nameFilter("com.acme")), is(false));
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.oneandone.maven.plugins.cycles.classes.ClassDependencies;
+
+import org.junit.Test;
+
+import com.google.common.base.Predicates;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+
+public class PackageMetricsTest {
+    private static final String PREFIX = "net.oneandone.maven.plugins.cycles.";
+
+    @Test
+    public void testOwnPackages() throws IOException {
+        ClassDependencies classDependencies = new ClassDependencies(NameFilter.nameFilter(PREFIX),
+                new File("target/classes"));
+        DirectedGraph<String, WeightedEdge> graph = GraphBuilder.buildPackageGraph(classDependencies, 
+                Integer.MAX_VALUE);
+        PackageMetrics metrics = new PackageMetrics(graph, classDependencies, Integer.MAX_VALUE);
+
+        String classes = PREFIX + "classes";
+        assertThat(metrics.getEfferentCoupling(classes), is(0));
+        assertThat(metrics.getAfferentCoupling(classes), greaterThan(0));
+        assertThat(metrics.getInstability(classes), closeTo(0, 1e-9));
+        assertThat(metrics.getInWeight(classes), greaterThan(metrics.getAfferentCoupling(classes) - 1));
+
+        String graphPackage = PREFIX + "graph";
+        // VertexEvaluator is an interface
+        assertThat(metrics.getAbstractClassCount(graphPackage), greaterThan(0));
+        double a = metrics.getAbstractness(graphPackage);
+        double i = metrics.getInstability(graphPackage);
+        assertThat(a, closeTo((double) metrics.getAbstractClassCount(graphPackage) 
+                / metrics.getClassCount(graphPackage), 1e-9));
+        assertThat(metrics.getDistance(graphPackage), closeTo(Math.abs(a + i - 1), 1e-9));
+    }
+
+    @Test
+    public void testExternalPackagesOmitted() throws IOException {
+        ClassDependencies classDependencies = new ClassDependencies(Predicates.<String>alwaysTrue(),
+                new File("target/classes"));
+        DirectedGraph<String, WeightedEdge> graph = GraphBuilder.buildPackageGraph(classDependencies, 
+                Integer.MAX_VALUE);
+        PackageMetrics metrics = new PackageMetrics(graph, classDependencies, Integer.MAX_VALUE);
+
+        assertThat(graph.containsVertex("java.lang"), is(true));
+        assertThat(metrics.getPackages(), not(hasItem("java.lang")));
+        assertThat(metrics.getPackages(), hasItem(PREFIX + "graph"));
+    }
+}
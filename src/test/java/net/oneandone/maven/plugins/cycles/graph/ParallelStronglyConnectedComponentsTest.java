@@ -0,0 +1,57 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedSparseGraph;
+
+public class ParallelStronglyConnectedComponentsTest {
+    @Test
+    public void testSamePartitionAsTarjan() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            int n = 50 + random.nextInt(500);
+            int m = random.nextInt(3 * n);
+            DirectedGraph<Integer, Integer> graph = new DirectedSparseGraph<Integer, Integer>();
+            for (int v = 0; v < n; v++) {
+                graph.addVertex(v);
+            }
+            for (int e = 0; e < m; e++) {
+                int from = random.nextInt(n);
+                int to = random.nextInt(n);
+                if (from != to && graph.findEdge(from, to) == null) {
+                    graph.addEdge(e, from, to);
+                }
+            }
+            Collection<Set<Integer>> expected = StronglyConnectedComponents.strongComponentsAsSets(graph);
+            Collection<Set<Integer>> actual = ParallelStronglyConnectedComponents.strongComponentsAsSets(graph, 4, 
+                    0, 1 + random.nextInt(50));
+            assertThat(actual.size(), is(expected.size()));
+            assertThat(Sets.newHashSet(actual), is(Sets.newHashSet(expected)));
+        }
+    }
+}
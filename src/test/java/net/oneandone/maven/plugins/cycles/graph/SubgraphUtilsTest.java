@@ -19,9 +19,11 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import edu.uci.ics.jung.graph.DirectedGraph;
@@ -44,4 +46,26 @@ public class SubgraphUtilsTest {
         
         assertThat(subgraphs.size(), is(2));
     }
+
+    @Test
+    public void testNonTrivialSubgraphs() {
+        DirectedGraph<Integer, Integer> graph = new DirectedSparseGraph<Integer, Integer>();
+        graph.addEdge(12, 1, 2);
+        graph.addEdge(21, 2, 1);
+        graph.addEdge(23, 2, 3);
+        graph.addEdge(34, 3, 4);
+        graph.addEdge(45, 4, 5);
+        graph.addEdge(54, 5, 4);
+
+        Collection<? extends Collection<Integer>> vertexSets = ImmutableList.<Collection<Integer>>of(
+                ImmutableSet.of(1, 2),
+                ImmutableSet.of(3),
+                ImmutableSet.of(4, 5));
+        List<DirectedGraph<Integer, Integer>> subgraphs = SubgraphUtils.asNonTrivialSubgraphs(vertexSets, graph);
+
+        assertThat(subgraphs.size(), is(2));
+        assertThat(ImmutableSet.copyOf(subgraphs.get(0).getEdges()), is(ImmutableSet.of(12, 21)));
+        assertThat(ImmutableSet.copyOf(subgraphs.get(1).getEdges()), is(ImmutableSet.of(45, 54)));
+        assertThat(subgraphs.get(1).getSource(45), is(4));
+    }
 }
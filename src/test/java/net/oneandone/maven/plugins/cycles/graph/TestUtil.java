@@ -18,14 +18,19 @@ package net.oneandone.maven.plugins.cycles.graph;
 import java.util.Set;
 
 import net.oneandone.maven.plugins.cycles.classes.ClassDependency;
+import net.oneandone.maven.plugins.cycles.classes.DependencyKind;
 
 import com.google.common.collect.Sets;
 
 public class TestUtil {
     public static WeightedEdge weightedEdge(int id, int count) {
+        return weightedEdge(id, count, DependencyKind.ALL);
+    }
+
+    public static WeightedEdge weightedEdge(int id, int count, int kinds) {
         Set<ClassDependency> deps = Sets.newHashSet();
         for (int i = 0; i < count; i++) {
-            deps.add(new ClassDependency("from" + i, "to" + i));
+            deps.add(new ClassDependency("from" + i, "to" + i, kinds));
         }
         return new WeightedEdge(id, deps);
     }
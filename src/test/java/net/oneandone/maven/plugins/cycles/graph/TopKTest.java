@@ -0,0 +1,55 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.graph;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TopKTest {
+    @Test
+    public void testSelect() {
+        long[] keys = {3, 7, 7, 1, 5};
+        long[] tieBreakers = {0, 2, 1, 0, 0};
+        assertThat(Arrays.toString(TopK.select(keys, tieBreakers, 3)), is("[2, 1, 4]"));
+        assertThat(Arrays.toString(TopK.select(keys, tieBreakers, 10)), is("[2, 1, 4, 0, 3]"));
+        assertThat(TopK.select(keys, tieBreakers, 0).length, is(0));
+    }
+
+    @Test
+    public void testSelectMatchesSort() {
+        Random random = new Random(42);
+        int n = 1000;
+        long[] keys = new long[n];
+        long[] tieBreakers = new long[n];
+        long[] expected = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = random.nextInt(100);
+            tieBreakers[i] = i;
+            // descending by key, then ascending by index
+            expected[i] = -keys[i] * n + i;
+        }
+        Arrays.sort(expected);
+        int[] selected = TopK.select(keys, tieBreakers, 50);
+        for (int i = 0; i < selected.length; i++) {
+            assertThat(-keys[selected[i]] * n + selected[i], is(expected[i]));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.cycles.layers;
+
+import static net.oneandone.maven.plugins.cycles.graph.TestUtil.weightedEdge;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.oneandone.maven.plugins.cycles.graph.WeightedEdge;
+
+import org.junit.Test;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedSparseGraph;
+
+public class LayerRulesTest {
+    private LayerRules rules = new LayerRules(Arrays.asList("com.acme.web", "com.acme.service.*, com.acme.api",
+            "com.acme", "com.acme.service.internal.db"));
+
+    @Test
+    public void testLayerOf() {
+        assertThat(rules.layerOf("com.acme.web"), is(0));
+        assertThat(rules.layerOf("com.acme.web.controller"), is(0));
+        assertThat(rules.layerOf("com.acme.service"), is(1));
+        assertThat(rules.layerOf("com.acme.api.dto"), is(1));
+        assertThat(rules.layerOf("com.acme.util"), is(2));
+        assertThat(rules.layerOf("com.acme.service.internal.db.jdbc"), is(3));
+        assertThat(rules.layerOf("com.acme.service.internal"), is(1));
+        assertThat(rules.layerOf("com.acmeweb"), is(-1));
+        assertThat(rules.layerOf("org.other"), is(-1));
+    }
+
+    @Test
+    public void testDepth() {
+        assertThat(rules.getDepth(), is(5));
+        assertThat(new LayerRules(Arrays.asList("com.acme.web.**", "com")).getDepth(), is(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAmbiguousPattern() {
+        new LayerRules(Arrays.asList("com.acme", "com.acme.*"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInnerWildcard() {
+        new LayerRules(Arrays.asList("com.*.api"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPartialSegmentWildcard() {
+        new LayerRules(Arrays.asList("com.acme*"));
+    }
+
+    @Test
+    public void testCheck() {
+        DirectedGraph<String, WeightedEdge> graph = new DirectedSparseGraph<String, WeightedEdge>();
+        graph.addEdge(weightedEdge(1, 3), "com.acme.web", "com.acme.service");
+        graph.addEdge(weightedEdge(2, 2), "com.acme.service", "com.acme.web");
+        graph.addEdge(weightedEdge(3, 1), "com.acme.api", "com.acme.web.controller");
+        graph.addEdge(weightedEdge(4, 5), "com.acme.util", "com.acme.web");
+        graph.addEdge(weightedEdge(5, 1), "org.other", "com.acme.web");
+
+        List<LayerViolation> violations = rules.check(graph);
+        assertThat(violations.size(), is(2));
+        assertThat(violations.get(0).getFromLayer(), is("com.acme.service.*, com.acme.api"));
+        assertThat(violations.get(0).getToLayer(), is("com.acme.web"));
+        assertThat(violations.get(0).getDependencies().size(), is(2));
+        assertThat(violations.get(0).getClassDependencyCount(), is(3));
+        assertThat(violations.get(1).getFromLayer(), is("com.acme"));
+        assertThat(violations.get(1).getClassDependencyCount(), is(5));
+    }
+}